@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.standalone;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command line entry point that parses every build script below the given directories with {@link ScriptParser} and prints the
+ * dependencies they declare, one per line as tab separated {@code path, line, scope, configuration, notation}. Scripts are parsed in
+ * parallel and the output is in the order the scripts were found.
+ *
+ * <p>It lives in its own {@code cli} source set so the plugin doesn't ship a {@code main} method, run it with:
+ * <pre>
+ * ./gradlew :plugin:scanBuildScripts --args="[--threads N] DIR_OR_FILE..."
+ * </pre>
+ */
+public final class BuildScriptScanner {
+  private static final Set<String> SKIPPED_DIRECTORIES = new HashSet<>(Arrays.asList(".git", ".gradle", ".idea", "build", "node_modules"));
+
+  private BuildScriptScanner() {
+  }
+
+  public static void main(@NotNull String[] args) throws InterruptedException {
+    int threads = Runtime.getRuntime().availableProcessors();
+    List<Path> roots = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--threads") && i + 1 < args.length) {
+        threads = Math.max(1, Integer.parseInt(args[++i]));
+      }
+      else {
+        roots.add(Paths.get(args[i]));
+      }
+    }
+    if (roots.isEmpty()) {
+      System.err.println("Usage: BuildScriptScanner [--threads N] DIR_OR_FILE...");
+      System.exit(2);
+    }
+
+    System.exit(run(roots, threads, System.out, System.err));
+  }
+
+  /**
+   * @return the exit code, 0 if all scripts were read.
+   */
+  public static int run(@NotNull List<Path> roots, int threads, @NotNull PrintStream out, @NotNull PrintStream err)
+    throws InterruptedException {
+    long start = System.nanoTime();
+    List<Path> scripts = new ArrayList<>();
+    for (Path root : roots) {
+      try {
+        collectScripts(root, scripts);
+      }
+      catch (IOException e) {
+        err.println("Could not list " + root + ": " + e.getMessage());
+      }
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    int failures = 0;
+    try {
+      List<Future<StandaloneBuildScript>> results = new ArrayList<>(scripts.size());
+      for (Path script : scripts) {
+        results.add(executor.submit(() -> StandaloneBuildScript.read(script)));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        try {
+          print(results.get(i).get(), out);
+        }
+        catch (ExecutionException e) {
+          failures++;
+          err.println("Could not read " + scripts.get(i) + ": " + e.getCause().getMessage());
+        }
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    err.println("Parsed " + (scripts.size() - failures) + " build scripts in " + millis + " ms");
+    return failures == 0 ? 0 : 1;
+  }
+
+  private static void collectScripts(@NotNull Path root, @NotNull List<Path> scripts) throws IOException {
+    if (Files.isRegularFile(root)) {
+      scripts.add(root);
+      return;
+    }
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        Path name = dir.getFileName();
+        boolean skip = !dir.equals(root) && name != null && SKIPPED_DIRECTORIES.contains(name.toString());
+        return skip ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (ScriptLanguage.forFileName(file.getFileName().toString()) != null) {
+          scripts.add(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(Path file, IOException e) {
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private static void print(@NotNull StandaloneBuildScript script, @NotNull PrintStream out) {
+    for (StandaloneBuildScript.Dependency dependency : script.getDependencies()) {
+      out.println(script.getPath() + '\t' + dependency.getLine() + '\t' + dependency.getScope() + '\t' + dependency.getConfiguration() +
+                  '\t' + dependency.getNotation());
+    }
+  }
+}
@@ -11,6 +11,9 @@ class Copys {
         const val RESULT_LIST_TITLE = "Select it from the list:"
 
         const val DEPENDENCY_ADDED_TITLE = "Dependency added to %s"
+        const val DEPENDENCY_ALREADY_DECLARED_TITLE = "Already declared in %s"
+        const val DEPENDENCY_ALREADY_DECLARED = "%s is already declared as %s"
+        const val DEPENDENCY_ALSO_DECLARED = "%s (also declared as %s)"
         const val DEPENDENCY_COPIED_TITLE = "Copied!"
         const val DEPENDENCY_COPIED_MSG = "Dependency statements have been copied to your clipboard."
         const val TIP = "Tip: %s"
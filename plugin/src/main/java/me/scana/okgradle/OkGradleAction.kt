@@ -9,10 +9,10 @@ import me.scana.okgradle.data.AddDependencyUseCase
 import me.scana.okgradle.data.AddDependencyUseCaseFactory
 import me.scana.okgradle.data.SearchArtifactsUseCase
 import me.scana.okgradle.data.repository.*
+import me.scana.okgradle.internal.dsl.model.dependencies.ArtifactUsageIndex
 import me.scana.okgradle.util.IntellijTools
 import me.scana.okgradle.util.Notifier
 import me.scana.okgradle.util.ToolsFactory
-import okhttp3.OkHttpClient
 
 class OkGradleAction : AnAction() {
 
@@ -20,7 +20,7 @@ class OkGradleAction : AnAction() {
         val gson = GsonBuilder()
                 .registerTypeAdapter(Spellcheck::class.java, SpellcheckDeserializer())
                 .create()
-        val networkClient = NetworkClient(OkHttpClient.Builder().build())
+        val networkClient = NetworkClient(NetworkClient.createHttpClient())
         val repositories = mapOf(
                 "Google" to GoogleRepository(networkClient),
                 "Maven" to MavenRepository(networkClient, gson),
@@ -29,9 +29,11 @@ class OkGradleAction : AnAction() {
         )
         val searchUseCase = SearchArtifactsUseCase(repositories)
         val project = event.getData(CommonDataKeys.PROJECT)
+        // Starts indexing the declared dependencies in the background while the user searches.
+        project?.let { ArtifactUsageIndex.getInstance(it) }
         val notifier = Notifier(project)
-        val addDependencyUseCase = AddDependencyUseCaseFactory.create(project, notifier)
         val intellijTools = ToolsFactory.intellijTools(project)
+        val addDependencyUseCase = AddDependencyUseCaseFactory.create(project, notifier, intellijTools)
         val presenter = OkGradleDialogPresenter(project, searchUseCase, addDependencyUseCase, intellijTools)
 
         val dialog = OkGradleDialog(presenter)
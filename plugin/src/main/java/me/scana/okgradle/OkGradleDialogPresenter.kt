@@ -96,8 +96,7 @@ class OkGradleDialogPresenter(
 
     override fun onAddDependencyClicked() {
         if (hasProject) {
-            val modules = intellijTools.getModules().sortedBy { it.name }
-            view?.displayModules(modules)
+            view?.displayModules(intellijTools.getModules())
         } else {
             onCopyToClipboardClick()
         }
@@ -1,15 +1,21 @@
 package me.scana.okgradle.data
 
+import com.intellij.openapi.fileEditor.FileDocumentManager
 import com.intellij.openapi.project.Project
 import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.psi.PsiDocumentManager
 import com.intellij.psi.PsiManager
 import com.intellij.psi.codeStyle.CodeStyleManager
+import me.scana.okgradle.Copys
 import me.scana.okgradle.data.repository.Artifact
 import me.scana.okgradle.internal.dsl.api.GradleBuildModel
 import me.scana.okgradle.internal.dsl.api.ProjectBuildModel
 import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencySpec
 import me.scana.okgradle.internal.dsl.api.dependencies.CommonConfigurationNames
 import me.scana.okgradle.internal.dsl.api.dependencies.DependenciesModel
+import me.scana.okgradle.internal.dsl.model.dependencies.ArtifactUsageIndex
+import me.scana.okgradle.internal.dsl.parser.standalone.ScriptLanguage
+import me.scana.okgradle.internal.dsl.parser.standalone.StandaloneBuildScript
 import me.scana.okgradle.util.Constants.DOT_GRADLE
 import me.scana.okgradle.util.Constants.DOT_KTS
 import org.jetbrains.kotlin.psi.KtPsiFactory
@@ -20,7 +26,20 @@ private const val KAPT = "kapt"
 private const val KAPT_PLUGIN = "kotlin-kapt"
 
 interface AddDependencyStrategy {
-    fun add(): List<String>
+    fun add(): AddDependencyResult
+}
+
+/**
+ * The lines to report back to the user, for the dependencies that were added and for those that were skipped as the build file
+ * already declared them.
+ */
+data class AddDependencyResult(
+        val added: List<String> = emptyList(),
+        val alreadyDeclared: List<String> = emptyList()
+) {
+    operator fun plus(other: AddDependencyResult): AddDependencyResult {
+        return AddDependencyResult(added + other.added, alreadyDeclared + other.alreadyDeclared)
+    }
 }
 
 object CopyDependencyStrategy {
@@ -56,14 +75,13 @@ class GradleAddDependencyStrategy(
         private val artifact: Artifact
 ) : AddDependencyStrategy {
 
-    override fun add(): List<String> {
+    override fun add(): AddDependencyResult {
         val gradleBuildModel = ProjectBuildModel.get(project).getModuleBuildModel(gradleFile)
         val dependencies = gradleBuildModel.dependencies()
+        val usageIndex = ArtifactUsageIndex.getInstance(project)
         val dependencySpec = ArtifactDependencySpec.create(artifact.name, artifact.groupId, artifact.version)
-        val result = mutableListOf<String>()
-        result.add(dependencySpec.compactNotation())
+        var result = dependencies.addUnlessDeclared(usageIndex, gradleFile, CommonConfigurationNames.IMPLEMENTATION, dependencySpec)
         if (dependencySpec.hasAnnotationProcessor()) {
-            dependencies.addArtifactCompat(CommonConfigurationNames.IMPLEMENTATION, dependencySpec)
             val compilerName = dependencySpec.annotationProcessorName()
             compilerName?.let {
                 val annotationProcessorSpec = ArtifactDependencySpec.create(it, dependencySpec.group, dependencySpec.version)
@@ -72,17 +90,11 @@ class GradleAddDependencyStrategy(
                 } else {
                     ANNOTATION_PROCESSOR
                 }
-                dependencies.addArtifactCompat(configurationName, annotationProcessorSpec)
-                result.add(annotationProcessorSpec.compactNotation())
+                result += dependencies.addUnlessDeclared(usageIndex, gradleFile, configurationName, annotationProcessorSpec)
             }
-        } else {
-            dependencies.addArtifactCompat(CommonConfigurationNames.IMPLEMENTATION, dependencySpec)
         }
+        // Only the statements the writer inserted are reformatted, as part of saving the file.
         gradleBuildModel.applyChanges()
-        val psiFile = PsiManager.getInstance(project).findFile(gradleFile)
-        psiFile?.let {
-            CodeStyleManager.getInstance(project).adjustLineIndent(it, 0)
-        }
         return result
     }
 }
@@ -92,7 +104,7 @@ class GradleKtsAddDependencyStrategy(
         private val gradleFile: VirtualFile,
         private val artifact: Artifact
 ) : AddDependencyStrategy {
-    override fun add(): List<String> {
+    override fun add(): AddDependencyResult {
         val psiFile = PsiManager.getInstance(project).findFile(gradleFile)
         val kotlinDependenciesPsi = psiFile?.children
                 ?.mapNotNull { it.children.getOrNull(0) }
@@ -101,17 +113,32 @@ class GradleKtsAddDependencyStrategy(
                 ?.find { it.text == "dependencies" }
 
         val artifactId = "${artifact.groupId}:${artifact.name}:${artifact.version}"
-        val expression = "${CommonConfigurationNames.IMPLEMENTATION}(\"$artifactId\")"
+        val configurationName = CommonConfigurationNames.IMPLEMENTATION
+        val currentText = FileDocumentManager.getInstance().getDocument(gradleFile)?.immutableCharSequence
+        val alreadyDeclared = currentText != null && StandaloneBuildScript
+                .parse(gradleFile.path, currentText, ScriptLanguage.KOTLIN)
+                .dependencies
+                .any { it.configuration == configurationName && it.notation == artifactId }
+        if (alreadyDeclared) {
+            return AddDependencyResult(alreadyDeclared = listOf(Copys.DEPENDENCY_ALREADY_DECLARED.format(artifactId, configurationName)))
+        }
+        val spec = ArtifactDependencySpec.create(artifact.name, artifact.groupId, artifact.version)
+        val expression = "$configurationName(\"$artifactId\")"
+        val report = ArtifactUsageIndex.getInstance(project).reportAdded(gradleFile, configurationName, spec, expression)
         kotlinDependenciesPsi?.let {
             val psiFactory = KtPsiFactory(project, false)
             val block = psiFactory.createExpression(expression)
             val dependenciesBlock = it.parent.children[1].children[0].children[0].children[0]
             dependenciesBlock.add(psiFactory.createNewLine())
-            dependenciesBlock.add(block)
-            psiFile.subtreeChanged()
-            gradleFile.refresh(true, false)
+            val added = dependenciesBlock.add(block)
+            CodeStyleManager.getInstance(project).reformatText(psiFile, listOf(added.textRange))
+            // The change is made through the document, saving it writes the file without refreshing the VFS.
+            PsiDocumentManager.getInstance(project).getDocument(psiFile)?.let { document ->
+                PsiDocumentManager.getInstance(project).doPostponedOperationsAndUnblockDocument(document)
+                FileDocumentManager.getInstance().saveDocument(document)
+            }
         }
-        return listOf(expression)
+        return AddDependencyResult(added = listOf(report))
     }
 }
 
@@ -141,6 +168,56 @@ private fun DependenciesModel.addArtifactCompat(configurationName: String, depen
     }
 }
 
+/**
+ * Adds the dependency unless the build file already declares the same artifact with the same version in the same configuration.
+ * The check is made against the model of the build file, which is up to date; the usage index only reports the other declarations.
+ *
+ * @return the line to report back to the user, as either added or already declared.
+ */
+private fun DependenciesModel.addUnlessDeclared(
+        usageIndex: ArtifactUsageIndex,
+        gradleFile: VirtualFile,
+        configurationName: String,
+        dependencySpec: ArtifactDependencySpec
+): AddDependencyResult {
+    val alreadyDeclared = artifacts().any {
+        it.configurationName() == configurationName &&
+                it.group().toString() == dependencySpec.group &&
+                it.name().toString() == dependencySpec.name &&
+                it.version().toString() == dependencySpec.version
+    }
+    if (alreadyDeclared) {
+        val text = Copys.DEPENDENCY_ALREADY_DECLARED.format(dependencySpec.compactNotation(), configurationName)
+        return AddDependencyResult(alreadyDeclared = listOf(text))
+    }
+    val report = usageIndex.reportAdded(gradleFile, configurationName, dependencySpec, dependencySpec.compactNotation())
+    addArtifactCompat(configurationName, dependencySpec)
+    return AddDependencyResult(added = listOf(report))
+}
+
+/**
+ * @return the line to report for a dependency that is being added, [text] followed by the other declarations of the artifact in the
+ * project. Those come from the last completed update of the index, so they can miss the latest edits.
+ */
+private fun ArtifactUsageIndex.reportAdded(
+        gradleFile: VirtualFile,
+        configurationName: String,
+        dependencySpec: ArtifactDependencySpec,
+        text: String
+): String {
+    val otherUsages = getUsages(dependencySpec.group, dependencySpec.name)
+            .filterNot {
+                it.file == gradleFile && it.configurationName == configurationName && it.versionText == dependencySpec.version
+            }
+            .map { usage ->
+                listOfNotNull(usage.configurationName, usage.versionText, "in", usage.moduleName ?: usage.file.path).joinToString(" ")
+            }
+    if (otherUsages.isEmpty()) {
+        return text
+    }
+    return Copys.DEPENDENCY_ALSO_DECLARED.format(text, otherUsages.joinToString(", "))
+}
+
 private val GradleBuildModel.usesKotlinKapt: Boolean
     get() = plugins().any { it.name().forceString() == KAPT_PLUGIN }
 
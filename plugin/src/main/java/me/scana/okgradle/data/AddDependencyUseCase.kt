@@ -5,22 +5,21 @@ import com.intellij.openapi.command.impl.DummyProject
 import com.intellij.openapi.ide.CopyPasteManager
 import com.intellij.openapi.module.Module
 import com.intellij.openapi.project.Project
-import com.intellij.openapi.project.rootManager
 import com.intellij.openapi.vfs.VirtualFile
 import com.intellij.psi.PsiFile
 import com.intellij.psi.PsiManager
 import com.intellij.util.ui.TextTransferable
 import me.scana.okgradle.Copys
 import me.scana.okgradle.data.repository.Artifact
-import me.scana.okgradle.util.Constants
+import me.scana.okgradle.util.IntellijTools
 import me.scana.okgradle.util.Notifier
 
 object AddDependencyUseCaseFactory {
-    fun create(project: Project?, notifier: Notifier): AddDependencyUseCase {
+    fun create(project: Project?, notifier: Notifier, intellijTools: IntellijTools): AddDependencyUseCase {
         return if (project != null) {
-            AddDependencyUseCaseImpl(project, notifier)
+            AddDependencyUseCaseImpl(project, notifier, intellijTools)
         } else {
-            val copyImpl = AddDependencyUseCaseImpl(DummyProject.getInstance(), notifier)
+            val copyImpl = AddDependencyUseCaseImpl(DummyProject.getInstance(), notifier, intellijTools)
             CopyOnlyDependencyUseCase(copyImpl)
         }
     }
@@ -33,7 +32,8 @@ interface AddDependencyUseCase {
 
 class AddDependencyUseCaseImpl(
         private val project: Project,
-        private val notifier: Notifier
+        private val notifier: Notifier,
+        private val intellijTools: IntellijTools
 ) : AddDependencyUseCase {
 
     override fun addDependency(module: Module, artifact: Artifact) {
@@ -41,8 +41,13 @@ class AddDependencyUseCaseImpl(
         val strategy = AddDependencyStrategyFactory.create(project, buildGradleFile, artifact)
         val psiFile = PsiManager.getInstance(project).findFile(buildGradleFile)
         runAddDependencyWriteCommand(psiFile) {
-            val addedDependencies = strategy.add()
-            notifier.showDependenciesAddedMessage(module.name, addedDependencies)
+            val result = strategy.add()
+            if (result.added.isNotEmpty()) {
+                notifier.showDependenciesAddedMessage(module.name, result.added)
+            }
+            if (result.alreadyDeclared.isNotEmpty()) {
+                notifier.showDependenciesAlreadyDeclaredMessage(module.name, result.alreadyDeclared)
+            }
         }
     }
 
@@ -53,9 +58,7 @@ class AddDependencyUseCaseImpl(
     }
 
     private fun findGradleFile(module: Module): VirtualFile? {
-        val buildGradle = module.rootManager.contentRoots.first().findChild(Constants.BUILD_GRADLE)
-        val buildGradleKts = module.rootManager.contentRoots.first().findChild(Constants.BUILD_GRADLE_KTS)
-        return buildGradle ?: buildGradleKts
+        return intellijTools.getModuleBuildFiles().firstOrNull { it.module == module }?.buildFile
     }
 
     private fun runAddDependencyWriteCommand(psiFile: PsiFile?, command: () -> Unit) {
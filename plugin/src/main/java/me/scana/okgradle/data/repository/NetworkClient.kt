@@ -1,26 +1,157 @@
 package me.scana.okgradle.data.repository
 
+import okhttp3.Call
+import okhttp3.Callback
+import okhttp3.Dispatcher
+import okhttp3.MediaType
 import okhttp3.OkHttpClient
 import okhttp3.Request
+import okhttp3.Response
 import okhttp3.ResponseBody
+import okhttp3.ResponseBody.Companion.toResponseBody
 import java.io.IOException
+import java.io.InterruptedIOException
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ExecutionException
 
 class NetworkClient(private val okHttpClient: OkHttpClient) {
 
+    private val inFlightCalls = HashMap<String, InFlightCall>()
+
+    // Called whenever a caller joins a call that is already in flight, lets tests wait for that to happen.
+    internal var onCallShared: (() -> Unit)? = null
+
+    /**
+     * Executes [request] and parses its body with [parse].
+     *
+     * Identical requests (same method, url and headers, without a body) issued while one is still in flight share that
+     * call and the bytes of its response, each caller parses them with its own [parse]. The underlying call is
+     * cancelled only when the last caller waiting for it leaves (e.g. its thread is interrupted).
+     */
     fun <T> execute(request: Request, parse: ResponseBody.() -> T): NetworkResult<T> {
-        try {
-            val response = okHttpClient.newCall(request).execute()
-            if (!response.isSuccessful) {
-                return NetworkResult.Failure(HttpException(response.code, response.message))
-            }
-            return try {
-                val result = response.body!!.use(parse)
-                NetworkResult.Success(result)
+        val key = request.identity()
+        val inFlightCall = join(key, request)
+        val body = try {
+            inFlightCall.result.get()
+        } catch (exception: InterruptedException) {
+            Thread.currentThread().interrupt()
+            return NetworkResult.Failure(InterruptedIOException())
+        } catch (exception: ExecutionException) {
+            return NetworkResult.Failure(exception.cause ?: exception)
+        } finally {
+            leave(key, inFlightCall)
+        }
+        return when (body) {
+            is NetworkResult.Failure -> NetworkResult.Failure(body.throwable)
+            is NetworkResult.Success -> try {
+                NetworkResult.Success(body.data.toResponseBody().parse())
             } catch (exception: Exception) {
                 NetworkResult.Failure(ResponseParseException(exception))
             }
-        } catch (exception: IOException) {
-            return NetworkResult.Failure(exception)
+        }
+    }
+
+    private fun join(key: String?, request: Request): InFlightCall {
+        synchronized(inFlightCalls) {
+            val existing = key?.let { inFlightCalls[it] }
+            if (existing != null) {
+                existing.subscribers++
+                onCallShared?.invoke()
+                return existing
+            }
+            val inFlightCall = InFlightCall(okHttpClient.newCall(request))
+            if (key != null) {
+                inFlightCalls[key] = inFlightCall
+            }
+            inFlightCall.call.enqueue(ReadingCallback(key, inFlightCall))
+            return inFlightCall
+        }
+    }
+
+    private fun leave(key: String?, inFlightCall: InFlightCall) {
+        synchronized(inFlightCalls) {
+            inFlightCall.subscribers--
+            if (inFlightCall.subscribers == 0 && !inFlightCall.result.isDone) {
+                inFlightCall.call.cancel()
+                forget(key, inFlightCall)
+            }
+        }
+    }
+
+    private fun complete(key: String?, inFlightCall: InFlightCall, result: NetworkResult<ResponseBytes>) {
+        synchronized(inFlightCalls) {
+            forget(key, inFlightCall)
+        }
+        inFlightCall.result.complete(result)
+    }
+
+    private fun completeExceptionally(key: String?, inFlightCall: InFlightCall, throwable: Throwable) {
+        synchronized(inFlightCalls) {
+            forget(key, inFlightCall)
+        }
+        inFlightCall.result.completeExceptionally(throwable)
+    }
+
+    private fun forget(key: String?, inFlightCall: InFlightCall) {
+        if (key != null && inFlightCalls[key] === inFlightCall) {
+            inFlightCalls.remove(key)
+        }
+    }
+
+    /**
+     * @return the key calls for this request are shared under, null if they can't be shared because it has a body.
+     */
+    private fun Request.identity(): String? = if (body == null) "$method $url\n$headers" else null
+
+    private inner class ReadingCallback(
+            private val key: String?,
+            private val inFlightCall: InFlightCall
+    ) : Callback {
+
+        override fun onFailure(call: Call, e: IOException) {
+            complete(key, inFlightCall, NetworkResult.Failure(e))
+        }
+
+        override fun onResponse(call: Call, response: Response) {
+            try {
+                val result: NetworkResult<ResponseBytes> = response.use {
+                    if (!it.isSuccessful) {
+                        return@use NetworkResult.Failure(HttpException(it.code, it.message))
+                    }
+                    val body = it.body!!
+                    NetworkResult.Success(ResponseBytes(body.contentType(), body.bytes()))
+                }
+                complete(key, inFlightCall, result)
+            } catch (throwable: Throwable) {
+                // Completed whatever went wrong, the callers would otherwise wait forever.
+                completeExceptionally(key, inFlightCall, throwable)
+                if (throwable is Error) {
+                    throw throwable
+                }
+            }
+        }
+    }
+
+    private class ResponseBytes(private val contentType: MediaType?, private val bytes: ByteArray) {
+        fun toResponseBody() = bytes.toResponseBody(contentType)
+    }
+
+    private class InFlightCall(val call: Call) {
+        val result = CompletableFuture<NetworkResult<ResponseBytes>>()
+        var subscribers = 1
+    }
+
+    companion object {
+
+        /**
+         * A client for [NetworkClient]. Every call is enqueued, so the per host limit is raised to the overall one to
+         * let the lookups a repository makes in parallel run at the same time.
+         */
+        fun createHttpClient(): OkHttpClient {
+            val dispatcher = Dispatcher().apply { maxRequestsPerHost = maxRequests }
+            return OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .build()
         }
     }
 }
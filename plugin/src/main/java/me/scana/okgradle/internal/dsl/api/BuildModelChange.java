@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.api;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A change to one element of a build file, as reported to a {@link BuildModelChangeListener}. Values are the resolved values of the
+ * element before and after the change, in the form used by {@link FrozenBlock}.
+ */
+public final class BuildModelChange {
+  public enum Kind {
+    ADDED,
+    REMOVED,
+    CHANGED
+  }
+
+  public enum ElementType {
+    /**
+     * A block such as {@code android} or {@code defaultConfig}, the values are {@link FrozenBlock}s.
+     */
+    BLOCK,
+    /**
+     * An entry of a {@code dependencies} block. Dependencies are only ever added or removed, editing one reports both.
+     */
+    DEPENDENCY,
+    PROPERTY
+  }
+
+  @NotNull private final Kind myKind;
+  @NotNull private final ElementType myElementType;
+  @NotNull private final VirtualFile myFile;
+  @NotNull private final String myPath;
+  @Nullable private final Object myOldValue;
+  @Nullable private final Object myNewValue;
+
+  public BuildModelChange(@NotNull Kind kind,
+                          @NotNull ElementType elementType,
+                          @NotNull VirtualFile file,
+                          @NotNull String path,
+                          @Nullable Object oldValue,
+                          @Nullable Object newValue) {
+    myKind = kind;
+    myElementType = elementType;
+    myFile = file;
+    myPath = path;
+    myOldValue = oldValue;
+    myNewValue = newValue;
+  }
+
+  @NotNull
+  public Kind getKind() {
+    return myKind;
+  }
+
+  @NotNull
+  public ElementType getElementType() {
+    return myElementType;
+  }
+
+  @NotNull
+  public VirtualFile getFile() {
+    return myFile;
+  }
+
+  /**
+   * @return the dotted path of the element from the root of its file, e.g {@code android.defaultConfig.minSdkVersion}.
+   */
+  @NotNull
+  public String getPath() {
+    return myPath;
+  }
+
+  /**
+   * @return the value before the change, null if the element was added.
+   */
+  @Nullable
+  public Object getOldValue() {
+    return myOldValue;
+  }
+
+  /**
+   * @return the value after the change, null if the element was removed.
+   */
+  @Nullable
+  public Object getNewValue() {
+    return myNewValue;
+  }
+
+  @Override
+  @NotNull
+  public String toString() {
+    return myKind + " " + myElementType + " " + myPath + " in " + myFile.getName() + ": " + myOldValue + " -> " + myNewValue;
+  }
+}
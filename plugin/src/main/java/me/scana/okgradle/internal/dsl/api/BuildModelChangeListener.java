@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Notified of the changes made to the build files of a {@link ProjectBuildModel}, see
+ * {@link ProjectBuildModel#addChangeListener(BuildModelChangeListener, com.intellij.openapi.Disposable)}.
+ */
+public interface BuildModelChangeListener {
+  /**
+   * Called on the UI thread once the model has been updated, with the changes of one round of edits in file order.
+   */
+  void modelChanged(@NotNull List<BuildModelChange> changes);
+}
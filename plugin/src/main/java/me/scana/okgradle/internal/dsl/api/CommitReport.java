@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.api;
+
+import com.google.common.collect.ImmutableList;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Describes the outcome of applying changes through a {@link ProjectBuildModel}, namely which files had pending changes and were
+ * therefore written and saved. Files that were only read while resolving the model are never part of a report.
+ */
+public final class CommitReport {
+  @NotNull private static final CommitReport EMPTY = new CommitReport(ImmutableList.of());
+
+  @NotNull private final List<VirtualFile> myWrittenFiles;
+
+  @NotNull
+  public static CommitReport empty() {
+    return EMPTY;
+  }
+
+  public CommitReport(@NotNull List<VirtualFile> writtenFiles) {
+    myWrittenFiles = ImmutableList.copyOf(writtenFiles);
+  }
+
+  /**
+   * @return the files that were written and saved, in the order they were applied.
+   */
+  @NotNull
+  public List<VirtualFile> getWrittenFiles() {
+    return myWrittenFiles;
+  }
+
+  public boolean isEmpty() {
+    return myWrittenFiles.isEmpty();
+  }
+
+  @Override
+  @NotNull
+  public String toString() {
+    return "CommitReport" + myWrittenFiles;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.api;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * An immutable copy of a block of a build file, or of the whole file, taken by {@link ProjectBuildModel#freeze()}.
+ *
+ * <p>The entries keep the order and the repetitions of the file, e.g every {@code implementation} line of a {@code dependencies} block.
+ * Values have already been resolved and are one of {@link String}, {@link Integer}, {@link java.math.BigDecimal}, {@link Boolean}, an
+ * {@link com.google.common.collect.ImmutableList} or {@link com.google.common.collect.ImmutableMap} of such values, or a nested
+ * {@link FrozenBlock}. Nothing refers back to the model or to PSI, so blocks can be read from any thread.
+ */
+public final class FrozenBlock {
+  @NotNull private final String myName;
+  @NotNull private final ImmutableListMultimap<String, Object> myEntries;
+  private int myHashCode;
+
+  public FrozenBlock(@NotNull String name, @NotNull ImmutableListMultimap<String, Object> entries) {
+    myName = name;
+    myEntries = entries;
+  }
+
+  @NotNull
+  public String getName() {
+    return myName;
+  }
+
+  @NotNull
+  public ImmutableListMultimap<String, Object> getEntries() {
+    return myEntries;
+  }
+
+  /**
+   * @return the values given to {@code name} in the order they appear.
+   */
+  @NotNull
+  public ImmutableList<Object> getValues(@NotNull String name) {
+    return myEntries.get(name);
+  }
+
+  /**
+   * @return the last value given to {@code name}, which is the one Gradle ends up with, or null if there is none.
+   */
+  @Nullable
+  public Object getValue(@NotNull String name) {
+    List<Object> values = myEntries.get(name);
+    return values.isEmpty() ? null : values.get(values.size() - 1);
+  }
+
+  @Nullable
+  public FrozenBlock getBlock(@NotNull String name) {
+    Object value = getValue(name);
+    return value instanceof FrozenBlock ? (FrozenBlock)value : null;
+  }
+
+  /**
+   * @return the value at the dotted {@code path} below this block, e.g {@code android.defaultConfig.minSdkVersion}, or null if there is
+   * none.
+   */
+  @Nullable
+  public Object find(@NotNull String path) {
+    FrozenBlock block = this;
+    List<String> segments = Splitter.on('.').splitToList(path);
+    for (int i = 0; i < segments.size() - 1; i++) {
+      block = block.getBlock(segments.get(i));
+      if (block == null) {
+        return null;
+      }
+    }
+    return block.getValue(segments.get(segments.size() - 1));
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof FrozenBlock)) {
+      return false;
+    }
+    FrozenBlock other = (FrozenBlock)o;
+    return hashCode() == other.hashCode() && myName.equals(other.myName) && myEntries.equals(other.myEntries);
+  }
+
+  @Override
+  public int hashCode() {
+    // Racy but safe, every thread computes the same value from immutable state.
+    int hashCode = myHashCode;
+    if (hashCode == 0) {
+      hashCode = 31 * myName.hashCode() + myEntries.hashCode();
+      myHashCode = hashCode;
+    }
+    return hashCode;
+  }
+
+  @Override
+  @NotNull
+  public String toString() {
+    return myName + myEntries;
+  }
+}
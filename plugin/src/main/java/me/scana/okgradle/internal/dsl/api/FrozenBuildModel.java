@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.api;
+
+import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable version of the build files of a project, taken by {@link ProjectBuildModel#freeze()}. It can be shared with and read by
+ * any number of threads without a read action while the {@link ProjectBuildModel} it was taken from goes on being edited.
+ *
+ * <p>Versions taken from the same model share every block that didn't change in between, so keeping several of them around costs
+ * little more than keeping one.
+ */
+public final class FrozenBuildModel {
+  private final long myVersion;
+  @NotNull private final ImmutableMap<String, FrozenBlock> myFiles;
+
+  public FrozenBuildModel(long version, @NotNull ImmutableMap<String, FrozenBlock> files) {
+    myVersion = version;
+    myFiles = files;
+  }
+
+  /**
+   * @return the version of the model this was taken from, versions only increase and are the same for models with the same content.
+   */
+  public long getVersion() {
+    return myVersion;
+  }
+
+  /**
+   * @return the contents of each build file keyed by its path, in the order of {@link ProjectBuildModel#getAllIncludedBuildModels()}.
+   */
+  @NotNull
+  public ImmutableMap<String, FrozenBlock> getFiles() {
+    return myFiles;
+  }
+
+  @Nullable
+  public FrozenBlock getFile(@NotNull String path) {
+    return myFiles.get(path);
+  }
+
+  @Override
+  @NotNull
+  public String toString() {
+    return "FrozenBuildModel(" + myVersion + ")" + myFiles.keySet();
+  }
+}
@@ -15,6 +15,7 @@
  */
 package me.scana.okgradle.internal.dsl.api;
 
+import me.scana.okgradle.internal.dsl.api.android.AndroidModel;
 import me.scana.okgradle.internal.dsl.api.configurations.ConfigurationsModel;
 import me.scana.okgradle.internal.dsl.api.dependencies.DependenciesModel;
 import me.scana.okgradle.internal.dsl.api.ext.ExtModel;
@@ -126,6 +127,9 @@ public interface GradleBuildModel extends me.scana.okgradle.internal.dsl.api.Gra
 
   void removePlugin(@NotNull String plugin);
 
+  @NotNull
+  AndroidModel android();
+
   @NotNull
   BuildScriptModel buildscript();
 
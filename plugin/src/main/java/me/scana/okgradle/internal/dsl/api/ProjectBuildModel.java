@@ -17,12 +17,15 @@ package me.scana.okgradle.internal.dsl.api;
 
 import static me.scana.okgradle.internal.dsl.api.GradleBuildModel.tryOrLog;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import me.scana.okgradle.internal.dsl.api.ext.ResolvedPropertyModel;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.gradle.settings.GradleProjectSettings;
@@ -157,6 +160,15 @@ public interface ProjectBuildModel {
    */
   void applyChanges();
 
+  /**
+   * Applies changes in the same way as {@link #applyChanges()}. Only files that have pending changes are applied and saved, files that
+   * were only read in order to resolve properties are left untouched.
+   *
+   * @return a report of the files that were written.
+   */
+  @NotNull
+  CommitReport applyChangesWithReport();
+
   /**
    * Resets the state of all {@link me.scana.okgradle.internal.dsl.api.GradleBuildModel}s and the {@link GradleSettingsModel}  that have been created by this model.
    */
@@ -180,4 +192,36 @@ public interface ProjectBuildModel {
    */
   @NotNull
   List<GradleBuildModel> getAllIncludedBuildModels();
+
+  /**
+   * Looks up {@code property} in the build variant {@code variantName} of every module, see
+   * {@link me.scana.okgradle.internal.dsl.api.android.BuildVariantModel#property(String)}. The variants of each module are cached until
+   * its {@code android} block changes, so asking for several properties or variants in a row is cheap.
+   * <p>
+   * This method should never be called on the UI thread, it will cause the parsing of Gradle build files which can take a long time.
+   *
+   * @return the property models keyed by the build file of their module, modules without the variant or that don't declare the property
+   * are left out.
+   */
+  @NotNull
+  Map<VirtualFile, ResolvedPropertyModel> getVariantProperty(@NotNull String variantName, @NotNull String property);
+
+  /**
+   * Takes an immutable copy of every build file of {@link #getAllIncludedBuildModels()}, with all values resolved. Unlike this model the
+   * result can be read from any number of threads at once, changes made to this model afterwards are only visible in the next version.
+   * Calling this again without changes returns the same instance.
+   * <p>
+   * This method should never be called on the UI thread, it will cause the parsing of Gradle build files which can take a long time.
+   */
+  @NotNull
+  FrozenBuildModel freeze();
+
+  /**
+   * Keeps the files this model has parsed up to date with edits made to them in the IDE, without a full {@link #reparse()}, and tells
+   * {@code listener} which elements were added, removed or changed until {@code parentDisposable} is disposed. Only the edited files and
+   * the files that apply them are parsed again, values they provide to other files are not compared.
+   * <p>
+   * This method must be called with read access.
+   */
+  void addChangeListener(@NotNull BuildModelChangeListener listener, @NotNull Disposable parentDisposable);
 }
@@ -20,6 +20,7 @@ import me.scana.okgradle.internal.dsl.api.android.externalNativeBuild.AdbOptions
 import me.scana.okgradle.internal.dsl.api.ext.ResolvedPropertyModel;
 import me.scana.okgradle.internal.dsl.api.util.GradleDslModel;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 
@@ -112,4 +113,18 @@ public interface AndroidModel extends GradleDslModel {
 
   @NotNull
   ResolvedPropertyModel resourcePrefix();
+
+  /**
+   * @return every combination of a build type with one product flavor of each flavor dimension, the {@code debug} and {@code release}
+   * build types are included even if they aren't declared. The variants are only computed again once the {@code android} block or the
+   * values of the flavor dimensions have been modified.
+   */
+  @NotNull
+  List<BuildVariantModel> variants();
+
+  /**
+   * @return the variant with the given name, e.g {@code freeDebug}, or null if there is no such variant.
+   */
+  @Nullable
+  BuildVariantModel variant(@NotNull String name);
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.api.android;
+
+import me.scana.okgradle.internal.dsl.api.ext.ResolvedPropertyModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+
+/**
+ * A build variant of an Android module, i.e a build type combined with one product flavor of each flavor dimension.
+ * See {@link AndroidModel#variants()}.
+ */
+public interface BuildVariantModel {
+  /**
+   * @return the name Gradle gives the variant, e.g {@code freeDebug}.
+   */
+  @NotNull
+  String name();
+
+  @NotNull
+  String buildTypeName();
+
+  /**
+   * @return the build type of the variant, null if it is the implicit {@code debug} or {@code release} build type and isn't declared in
+   * the build file.
+   */
+  @Nullable
+  BuildTypeModel buildType();
+
+  /**
+   * @return the product flavors of the variant in the order of their flavor dimensions.
+   */
+  @NotNull
+  List<ProductFlavorModel> productFlavors();
+
+  /**
+   * @return the model of {@code property} from the block with the highest priority that declares it, null if none of them do. The build
+   * type has the highest priority, followed by the product flavors in the order of their dimensions and then {@code defaultConfig}.
+   */
+  @Nullable
+  ResolvedPropertyModel property(@NotNull String property);
+
+  /**
+   * @return the models of {@code property} from every block of the variant that declares it, highest priority first. Gradle combines some
+   * properties rather than picking one, for example {@code applicationIdSuffix} or {@code proguardFiles}, these can be merged from here.
+   */
+  @NotNull
+  List<ResolvedPropertyModel> propertyChain(@NotNull String property);
+}
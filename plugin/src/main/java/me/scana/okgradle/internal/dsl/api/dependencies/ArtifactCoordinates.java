@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.api.dependencies;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The coordinates of an artifact that can only be read, e.g the ones reported by {@link ArtifactDependencyEntry}. These may be shared
+ * between callers, a {@link ArtifactDependencySpec} should be created to change them.
+ */
+public interface ArtifactCoordinates {
+  boolean equalsIgnoreVersion(Object o);
+
+  @NotNull
+  String getName();
+
+  @Nullable
+  String getGroup();
+
+  @Nullable
+  String getVersion();
+
+  @Nullable
+  String getClassifier();
+
+  @Nullable
+  String getExtension();
+
+  @NotNull
+  String compactNotation();
+}
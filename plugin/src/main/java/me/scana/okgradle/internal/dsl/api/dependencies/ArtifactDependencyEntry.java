@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.api.dependencies;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The coordinates of an artifact dependency as reported by {@link DependenciesModel#artifactEntries()}. Unlike an
+ * {@link ArtifactDependencyModel} this is a plain value that can't be used to modify the dependency.
+ */
+public final class ArtifactDependencyEntry {
+  public enum NotationKind {
+    /**
+     * E.g {@code implementation 'com.example:library:1.0'}.
+     */
+    COMPACT,
+    /**
+     * E.g {@code implementation group: 'com.example', name: 'library', version: '1.0'}.
+     */
+    MAP,
+  }
+
+  @NotNull private final String myConfigurationName;
+  @NotNull private final ArtifactCoordinates myCoordinates;
+  @NotNull private final NotationKind myNotationKind;
+
+  public ArtifactDependencyEntry(@NotNull String configurationName,
+                                 @NotNull ArtifactCoordinates coordinates,
+                                 @NotNull NotationKind notationKind) {
+    myConfigurationName = configurationName;
+    myCoordinates = coordinates;
+    myNotationKind = notationKind;
+  }
+
+  @NotNull
+  public String getConfigurationName() {
+    return myConfigurationName;
+  }
+
+  /**
+   * @return the resolved coordinates of the dependency.
+   */
+  @NotNull
+  public ArtifactCoordinates getCoordinates() {
+    return myCoordinates;
+  }
+
+  @Nullable
+  public String getGroup() {
+    return myCoordinates.getGroup();
+  }
+
+  @NotNull
+  public String getName() {
+    return myCoordinates.getName();
+  }
+
+  @Nullable
+  public String getVersion() {
+    return myCoordinates.getVersion();
+  }
+
+  @NotNull
+  public NotationKind getNotationKind() {
+    return myNotationKind;
+  }
+
+  @Override
+  public String toString() {
+    return myConfigurationName + " " + myCoordinates.compactNotation();
+  }
+}
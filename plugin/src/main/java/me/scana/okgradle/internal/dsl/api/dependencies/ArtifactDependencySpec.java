@@ -19,7 +19,10 @@ import me.scana.okgradle.internal.dsl.api.GradleModelProvider;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-public interface ArtifactDependencySpec {
+/**
+ * The coordinates of an artifact dependency that can be changed.
+ */
+public interface ArtifactDependencySpec extends ArtifactCoordinates {
   @Nullable
   static ArtifactDependencySpec create(@NotNull String notation) {
     return GradleModelProvider.get().getArtifactDependencySpec(notation);
@@ -46,23 +49,6 @@ public interface ArtifactDependencySpec {
     return GradleModelProvider.get().getArtifactDependencySpec(name, group, version, classifier, extension);
   }
 
-  boolean equalsIgnoreVersion(Object o);
-
-  @NotNull
-  String getName();
-
-  @Nullable
-  String getGroup();
-
-  @Nullable
-  String getVersion();
-
-  @Nullable
-  String getClassifier();
-
-  @Nullable
-  String getExtension();
-
   void setName(@NotNull String name);
 
   void setGroup(@Nullable String group);
@@ -81,7 +67,4 @@ public interface ArtifactDependencySpec {
 
   @Override
   String toString();
-
-  @NotNull
-  String compactNotation();
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.api.dependencies;
+
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyEntry.NotationKind;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Receives the artifact dependencies of a {@link DependenciesModel}, see
+ * {@link DependenciesModel#visitArtifacts(ArtifactDependencyVisitor)}.
+ */
+@FunctionalInterface
+public interface ArtifactDependencyVisitor {
+  /**
+   * @return whether the remaining dependencies should be visited.
+   */
+  boolean visitArtifact(@NotNull String configurationName,
+                        @Nullable String group,
+                        @NotNull String name,
+                        @Nullable String version,
+                        @NotNull NotationKind notationKind);
+}
@@ -31,6 +31,18 @@ public interface DependenciesModel {
   @NotNull
   List<ArtifactDependencyModel> artifacts();
 
+  /**
+   * @return the coordinates of the same dependencies as {@link #artifacts()}, without creating a model for each of them. The list is
+   * cached until the dependencies, or a property one of them refers to, are modified.
+   */
+  @NotNull
+  List<ArtifactDependencyEntry> artifactEntries();
+
+  /**
+   * Passes the coordinates of each of {@link #artifactEntries()} to {@code visitor} in the order they are declared.
+   */
+  void visitArtifacts(@NotNull ArtifactDependencyVisitor visitor);
+
   void addArtifact(@NotNull String configurationName, @NotNull String compactNoation);
 
   boolean containsArtifact(@NotNull String configurationName, @NotNull ArtifactDependencySpec dependency);
@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.model;
+
+import static me.scana.okgradle.internal.dsl.api.BuildModelChange.ElementType.BLOCK;
+import static me.scana.okgradle.internal.dsl.api.BuildModelChange.ElementType.DEPENDENCY;
+import static me.scana.okgradle.internal.dsl.api.BuildModelChange.ElementType.PROPERTY;
+import static me.scana.okgradle.internal.dsl.api.BuildModelChange.Kind.ADDED;
+import static me.scana.okgradle.internal.dsl.api.BuildModelChange.Kind.CHANGED;
+import static me.scana.okgradle.internal.dsl.api.BuildModelChange.Kind.REMOVED;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import com.intellij.util.containers.ContainerUtil;
+import com.intellij.util.ui.update.MergingUpdateQueue;
+import com.intellij.util.ui.update.Update;
+import me.scana.okgradle.internal.dsl.api.BuildModelChange;
+import me.scana.okgradle.internal.dsl.api.BuildModelChangeListener;
+import me.scana.okgradle.internal.dsl.api.FrozenBlock;
+import me.scana.okgradle.internal.dsl.parser.BuildModelContext;
+import me.scana.okgradle.internal.dsl.parser.apply.AppliedScriptGraph;
+import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
+import me.scana.okgradle.internal.dsl.parser.files.GradlePropertiesFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps the files of a {@link BuildModelContext} up to date with the edits made to their PSI and reports what changed to
+ * {@link BuildModelChangeListener}s.
+ *
+ * <p>PSI events only record which files changed. Once no event has arrived for {@link #UPDATE_DELAY_MS}, only those files and the files
+ * that apply them are parsed again in place, so existing models see the new elements and caches keyed on modification counts are
+ * invalidated. The resolved contents of each file are then compared with the ones from the last round to find the added, removed and
+ * changed elements. Parsing and comparing happen in a write action, as other code reads the same files from background read actions,
+ * e.g through {@link ProjectBuildModelLoader}. Listeners are called once the write action is over. Files with changes that haven't been
+ * applied yet are skipped until a later round, parsing them again would throw the changes away.
+ */
+final class BuildModelChangeFeed implements Disposable {
+  private static final int UPDATE_DELAY_MS = 300;
+
+  @NotNull private final BuildModelContext myContext;
+  @NotNull private final List<BuildModelChangeListener> myListeners = ContainerUtil.createLockFreeCopyOnWriteList();
+  // The contents of each file as of the last round of changes, files without one are not reported until they have one. They are keyed by
+  // VirtualFile as resetting the context replaces the parsed files.
+  @NotNull private final Map<VirtualFile, FrozenBlock> myBaselines = new HashMap<>();
+  // Files whose PSI changed since the last round, in the order they were first changed.
+  @NotNull private final Set<VirtualFile> myChangedFiles = new LinkedHashSet<>();
+  // Merges the PSI events of consecutive edits into one round, run on the EDT.
+  @NotNull private final MergingUpdateQueue myUpdateQueue;
+  private boolean myDisposed;
+
+  /**
+   * Must be called with read access, the current contents of every file of the context are recorded.
+   */
+  BuildModelChangeFeed(@NotNull BuildModelContext context) {
+    myContext = context;
+    for (GradleDslFile file : context.getAllRequestedFiles()) {
+      if (!(file instanceof GradlePropertiesFile)) {
+        myBaselines.put(file.getFile(), BuildModelFreezer.freezeFile(file, null));
+      }
+    }
+    myUpdateQueue = new MergingUpdateQueue("BuildModelChangeFeed", UPDATE_DELAY_MS, true, null, this);
+    PsiManager.getInstance(context.getProject()).addPsiTreeChangeListener(new PsiChangeListener(), this);
+    Disposer.register(context.getProject(), this);
+  }
+
+  /**
+   * Adds {@code listener} until {@code parentDisposable} is disposed, the feed disposes itself once it has no listeners left.
+   */
+  void addListener(@NotNull BuildModelChangeListener listener, @NotNull Disposable parentDisposable) {
+    myListeners.add(listener);
+    Disposer.register(parentDisposable, () -> {
+      myListeners.remove(listener);
+      if (myListeners.isEmpty()) {
+        Disposer.dispose(this);
+      }
+    });
+  }
+
+  boolean isDisposed() {
+    return myDisposed;
+  }
+
+  @Override
+  public void dispose() {
+    myDisposed = true;
+    myListeners.clear();
+    myBaselines.clear();
+    myChangedFiles.clear();
+  }
+
+  private void psiChanged(@Nullable PsiFile psiFile) {
+    VirtualFile changed = psiFile == null ? null : psiFile.getVirtualFile();
+    if (changed == null || myDisposed) {
+      return;
+    }
+
+    GradleDslFile file = myContext.getRequestedFile(changed);
+    if (file == null || file instanceof GradlePropertiesFile) {
+      return;
+    }
+    myChangedFiles.add(changed);
+    myUpdateQueue.queue(Update.create(this, this::update));
+  }
+
+  private void update() {
+    if (myDisposed) {
+      return;
+    }
+
+    // Files that apply a changed script have its old elements merged into them, so they are parsed again after it.
+    AppliedScriptGraph graph = myContext.getAppliedScriptGraph();
+    Set<GradleDslFile> toParse = new LinkedHashSet<>();
+    Deque<GradleDslFile> toVisit = new ArrayDeque<>();
+    // The parsed files are looked up again, the context may have been reset since the PSI changed.
+    myChangedFiles.removeIf(changed -> {
+      GradleDslFile file = myContext.getRequestedFile(changed);
+      if (file == null) {
+        return true;
+      }
+      toVisit.add(file);
+      return false;
+    });
+    while (!toVisit.isEmpty()) {
+      GradleDslFile file = toVisit.poll();
+      if (!file.isModified() && toParse.add(file)) {
+        toVisit.addAll(graph.getApplyingFiles(file));
+      }
+    }
+    toParse.forEach(file -> myChangedFiles.remove(file.getFile()));
+    if (toParse.isEmpty()) {
+      return;
+    }
+
+    List<BuildModelChange> changes = new ArrayList<>();
+    ApplicationManager.getApplication().runWriteAction(() -> {
+      toParse.forEach(GradleDslFile::reparse);
+      for (GradleDslFile file : toParse) {
+        FrozenBlock before = myBaselines.get(file.getFile());
+        FrozenBlock after = BuildModelFreezer.freezeFile(file, before);
+        myBaselines.put(file.getFile(), after);
+        if (before != null && before != after) {
+          compare(file.getFile(), "", before, after, changes);
+        }
+      }
+    });
+
+    if (!changes.isEmpty()) {
+      List<BuildModelChange> result = Collections.unmodifiableList(changes);
+      myListeners.forEach(listener -> listener.modelChanged(result));
+    }
+  }
+
+  private static void compare(@NotNull VirtualFile file,
+                              @NotNull String path,
+                              @NotNull FrozenBlock before,
+                              @NotNull FrozenBlock after,
+                              @NotNull List<BuildModelChange> changes) {
+    // The entries of a dependencies block share a handful of names, match them by value rather than by position.
+    boolean dependencies = "dependencies".equals(after.getName());
+    Set<String> names = new LinkedHashSet<>(before.getEntries().keySet());
+    names.addAll(after.getEntries().keySet());
+    for (String name : names) {
+      List<Object> oldValues = before.getValues(name);
+      List<Object> newValues = after.getValues(name);
+      if (oldValues.equals(newValues)) {
+        continue;
+      }
+
+      String childPath = path.isEmpty() ? name : path + "." + name;
+      if (!dependencies && oldValues.size() == 1 && newValues.size() == 1) {
+        Object oldValue = oldValues.get(0);
+        Object newValue = newValues.get(0);
+        if (oldValue instanceof FrozenBlock && newValue instanceof FrozenBlock) {
+          compare(file, childPath, (FrozenBlock)oldValue, (FrozenBlock)newValue, changes);
+        }
+        else {
+          changes.add(new BuildModelChange(CHANGED, PROPERTY, file, childPath, oldValue, newValue));
+        }
+        continue;
+      }
+
+      List<Object> removed = new ArrayList<>(oldValues);
+      List<Object> added = new ArrayList<>();
+      for (Object value : newValues) {
+        if (!removed.remove(value)) {
+          added.add(value);
+        }
+      }
+      removed.forEach(value -> changes.add(new BuildModelChange(REMOVED, typeOf(value, dependencies), file, childPath, value, null)));
+      added.forEach(value -> changes.add(new BuildModelChange(ADDED, typeOf(value, dependencies), file, childPath, null, value)));
+    }
+  }
+
+  @NotNull
+  private static BuildModelChange.ElementType typeOf(@NotNull Object value, boolean inDependencies) {
+    if (value instanceof FrozenBlock) {
+      return BLOCK;
+    }
+    return inDependencies ? DEPENDENCY : PROPERTY;
+  }
+
+  private class PsiChangeListener extends PsiTreeChangeAdapter {
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.model;
+
+import static me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel.OBJECT_TYPE;
+import static me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel.STRING_TYPE;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import me.scana.okgradle.internal.dsl.api.FrozenBlock;
+import me.scana.okgradle.internal.dsl.api.FrozenBuildModel;
+import me.scana.okgradle.internal.dsl.api.GradleBuildModel;
+import me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel;
+import me.scana.okgradle.internal.dsl.model.ext.GradlePropertyModelImpl;
+import me.scana.okgradle.internal.dsl.parser.apply.ApplyDslElement;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpression;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpressionList;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpressionMap;
+import me.scana.okgradle.internal.dsl.parser.elements.GradlePropertiesDslElement;
+import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the {@link FrozenBuildModel}s of {@link ProjectBuildModelImpl#freeze()}. Every block is compared with the block at the same
+ * place in the previous version and that block is reused if they are equal, so unchanged parts of the model are shared between versions.
+ */
+final class BuildModelFreezer {
+  // Guards against maps and lists that end up containing themselves.
+  private static final int MAX_VALUE_DEPTH = 32;
+
+  private BuildModelFreezer() {
+  }
+
+  /**
+   * Must be called with read access. All the blocks of the files are parsed.
+   *
+   * @return {@code previous} if nothing has changed since it was taken, otherwise the next version.
+   */
+  @NotNull
+  static FrozenBuildModel freeze(@NotNull List<GradleBuildModel> buildModels, @Nullable FrozenBuildModel previous) {
+    Map<String, FrozenBlock> files = new LinkedHashMap<>();
+    boolean changed = previous == null;
+    for (GradleBuildModel buildModel : buildModels) {
+      GradleDslFile file = ((GradleFileModelImpl)buildModel).myGradleDslFile;
+      String path = file.getFile().getPath();
+      if (files.containsKey(path)) {
+        continue;
+      }
+      FrozenBlock previousFile = previous == null ? null : previous.getFile(path);
+      FrozenBlock frozenFile = freezeFile(file, previousFile);
+      changed |= frozenFile != previousFile;
+      files.put(path, frozenFile);
+    }
+
+    if (!changed && files.size() == previous.getFiles().size()) {
+      return previous;
+    }
+    return new FrozenBuildModel(previous == null ? 1 : previous.getVersion() + 1, ImmutableMap.copyOf(files));
+  }
+
+  /**
+   * Must be called with read access.
+   *
+   * @return the contents of {@code file}, named after its path, or {@code previous} if they are the same.
+   */
+  @NotNull
+  static FrozenBlock freezeFile(@NotNull GradleDslFile file, @Nullable FrozenBlock previous) {
+    return freezeBlock(file, file.getFile().getPath(), previous);
+  }
+
+  @NotNull
+  private static FrozenBlock freezeBlock(@NotNull GradlePropertiesDslElement element, @NotNull String name, @Nullable FrozenBlock previous) {
+    ImmutableListMultimap.Builder<String, Object> entries = ImmutableListMultimap.builder();
+    for (GradleDslElement child : element.getAllPropertyElements()) {
+      // The properties of applied files have already been merged into the element.
+      if (child instanceof ApplyDslElement) {
+        continue;
+      }
+
+      String childName = child.getName();
+      Object value;
+      if (child instanceof GradlePropertiesDslElement &&
+          !(child instanceof GradleDslExpressionMap) &&
+          !(child instanceof GradleDslExpressionList)) {
+        value = freezeBlock((GradlePropertiesDslElement)child, childName, previous == null ? null : previous.getBlock(childName));
+      }
+      else if (child instanceof GradleDslExpression) {
+        value = freezeValue(new GradlePropertyModelImpl(child), 0);
+      }
+      else {
+        continue;
+      }
+
+      if (value != null) {
+        entries.put(childName, value);
+      }
+    }
+
+    FrozenBlock block = new FrozenBlock(name, entries.build());
+    return block.equals(previous) ? previous : block;
+  }
+
+  @Nullable
+  private static Object freezeValue(@NotNull GradlePropertyModel model, int depth) {
+    if (depth > MAX_VALUE_DEPTH) {
+      return null;
+    }
+
+    GradlePropertyModel resolved = model.resolve().getResultModel();
+    switch (resolved.getValueType()) {
+      case LIST: {
+        List<GradlePropertyModel> items = resolved.toList();
+        if (items == null) {
+          return null;
+        }
+        ImmutableList.Builder<Object> list = ImmutableList.builder();
+        for (GradlePropertyModel item : items) {
+          Object value = freezeValue(item, depth + 1);
+          if (value != null) {
+            list.add(value);
+          }
+        }
+        return list.build();
+      }
+      case MAP: {
+        Map<String, GradlePropertyModel> entries = resolved.toMap();
+        if (entries == null) {
+          return null;
+        }
+        ImmutableMap.Builder<String, Object> map = ImmutableMap.builder();
+        entries.forEach((key, entry) -> {
+          Object value = freezeValue(entry, depth + 1);
+          if (value != null) {
+            map.put(key, value);
+          }
+        });
+        return map.build();
+      }
+      case NONE:
+        return null;
+      default: {
+        Object value = resolved.getValue(OBJECT_TYPE);
+        if (value instanceof String || value instanceof Integer || value instanceof BigDecimal || value instanceof Boolean) {
+          return value;
+        }
+        // E.g method calls such as project(':lib'), keep their text.
+        return resolved.getValue(STRING_TYPE);
+      }
+    }
+  }
+}
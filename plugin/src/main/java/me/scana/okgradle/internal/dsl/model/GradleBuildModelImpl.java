@@ -16,6 +16,7 @@
 package me.scana.okgradle.internal.dsl.model;
 
 import static me.scana.okgradle.util.AndroidPluginUtils.getBaseDirPath;
+import static me.scana.okgradle.internal.dsl.parser.android.AndroidDslElement.ANDROID_BLOCK_NAME;
 import static me.scana.okgradle.internal.dsl.parser.apply.ApplyDslElement.APPLY_BLOCK_NAME;
 import static me.scana.okgradle.internal.dsl.parser.buildscript.BuildScriptDslElement.BUILDSCRIPT_BLOCK_NAME;
 import static me.scana.okgradle.internal.dsl.parser.buildscript.SubProjectsDslElement.SUBPROJECTS_BLOCK_NAME;
@@ -32,12 +33,14 @@ import me.scana.okgradle.internal.dsl.api.GradleFileModel;
 import me.scana.okgradle.internal.dsl.api.GradleSettingsModel;
 import me.scana.okgradle.internal.dsl.api.PluginModel;
 import me.scana.okgradle.internal.dsl.api.ProjectBuildModel;
+import me.scana.okgradle.internal.dsl.api.android.AndroidModel;
 import me.scana.okgradle.internal.dsl.api.configurations.ConfigurationsModel;
 import me.scana.okgradle.internal.dsl.api.dependencies.DependenciesModel;
 import me.scana.okgradle.internal.dsl.api.ext.ExtModel;
 import me.scana.okgradle.internal.dsl.api.java.JavaModel;
 import me.scana.okgradle.internal.dsl.api.repositories.RepositoriesModel;
 import me.scana.okgradle.internal.dsl.api.values.GradleNotNullValue;
+import me.scana.okgradle.internal.dsl.model.android.AndroidModelImpl;
 import me.scana.okgradle.internal.dsl.model.buildscript.BuildScriptModelImpl;
 import me.scana.okgradle.internal.dsl.model.configurations.ConfigurationsModelImpl;
 import me.scana.okgradle.internal.dsl.model.dependencies.DependenciesModelImpl;
@@ -45,6 +48,7 @@ import me.scana.okgradle.internal.dsl.model.ext.ExtModelImpl;
 import me.scana.okgradle.internal.dsl.model.java.JavaModelImpl;
 import me.scana.okgradle.internal.dsl.model.repositories.RepositoriesModelImpl;
 import me.scana.okgradle.internal.dsl.parser.BuildModelContext;
+import me.scana.okgradle.internal.dsl.parser.android.AndroidDslElement;
 import me.scana.okgradle.internal.dsl.parser.apply.ApplyDslElement;
 import me.scana.okgradle.internal.dsl.parser.buildscript.BuildScriptDslElement;
 import me.scana.okgradle.internal.dsl.parser.buildscript.SubProjectsDslElement;
@@ -65,6 +69,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -191,13 +196,20 @@ public class GradleBuildModelImpl extends GradleFileModelImpl implements GradleB
                                                @NotNull BuildModelContext context,
                                                boolean isApplied) {
     GradleBuildFile buildDslFile = new GradleBuildFile(file, project, moduleName, context);
-    ApplicationManager.getApplication().runReadAction(() -> {
-      if (!isApplied) {
-        populateWithParentModuleSubProjectsProperties(buildDslFile, context);
-      }
-      populateSiblingDslFileWithGradlePropertiesFile(buildDslFile, context);
-      buildDslFile.parse();
-    });
+    try {
+      ApplicationManager.getApplication().runReadAction(() -> {
+        if (!isApplied) {
+          populateWithParentModuleSubProjectsProperties(buildDslFile, context);
+        }
+        populateSiblingDslFileWithGradlePropertiesFile(buildDslFile, context);
+        buildDslFile.parse();
+      });
+    }
+    catch (ProcessCanceledException e) {
+      // The half parsed file is dropped, see ProjectBuildModelLoader, so it must not be left as a child of its parent module.
+      buildDslFile.detachFromParentModuleDslFile();
+      throw e;
+    }
     return buildDslFile;
   }
 
@@ -306,6 +318,26 @@ public class GradleBuildModelImpl extends GradleFileModelImpl implements GradleB
     me.scana.okgradle.internal.dsl.model.PluginModelImpl.removePlugins(PluginModelImpl.create(applyDslElement), plugin);
   }
 
+  @NotNull
+  @Override
+  public AndroidModel android() {
+    AndroidDslElement androidDslElement = myGradleDslFile.getPropertyElement(ANDROID_BLOCK_NAME, AndroidDslElement.class);
+    if (androidDslElement == null) {
+      androidDslElement = new AndroidDslElement(myGradleDslFile);
+      myGradleDslFile.setNewElement(androidDslElement);
+    }
+    return new AndroidModelImpl(androidDslElement);
+  }
+
+  /**
+   * @return the model of the {@code android} block, null if the file doesn't have one. Unlike {@link #android()} this doesn't add it.
+   */
+  @Nullable
+  public AndroidModel findAndroid() {
+    AndroidDslElement androidDslElement = myGradleDslFile.getPropertyElement(ANDROID_BLOCK_NAME, AndroidDslElement.class);
+    return androidDslElement == null ? null : new AndroidModelImpl(androidDslElement);
+  }
+
   @NotNull
   @Override
   public BuildScriptModel buildscript() {
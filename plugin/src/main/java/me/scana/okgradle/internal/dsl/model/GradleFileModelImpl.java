@@ -122,15 +122,16 @@ public abstract class GradleFileModelImpl implements GradleFileModel {
     return files;
   }
 
-  private void saveAllRelatedFiles() {
-    getAllInvolvedFiles().forEach(GradleDslFile::saveAllChanges);
-  }
-
   @Override
   public void applyChanges() {
+    // Only files with pending changes need to be saved, the others were just read to resolve the model.
+    Set<GradleDslFile> involvedFiles = getAllInvolvedFiles();
+    List<GradleDslFile> modifiedFiles = myGradleDslFile.getContext().getModifiedFiles().stream()
+      .filter(involvedFiles::contains).collect(Collectors.toList());
+
     myGradleDslFile.applyChanges();
 
-    saveAllRelatedFiles();
+    modifiedFiles.stream().filter(file -> !file.isModified()).forEach(GradleDslFile::saveAllChanges);
   }
 
   @TestOnly
@@ -18,7 +18,6 @@ package me.scana.okgradle.internal.dsl.model;
 import static me.scana.okgradle.internal.dsl.parser.settings.ProjectPropertiesDslElement.BUILD_FILE_NAME;
 import static me.scana.okgradle.util.AndroidPluginUtils.getGradleBuildFile;
 import static me.scana.okgradle.util.AndroidPluginUtils.getGradleSettingsFile;
-import static com.intellij.openapi.util.io.FileUtil.filesEqual;
 import static com.intellij.openapi.vfs.VfsUtil.findFileByIoFile;
 import static com.intellij.openapi.vfs.VfsUtilCore.virtualToIoFile;
 import static me.scana.okgradle.util.AndroidPluginUtils.getBaseDirPath;
@@ -28,16 +27,15 @@ import me.scana.okgradle.internal.dsl.api.GradleSettingsModel;
 import me.scana.okgradle.internal.dsl.api.ProjectBuildModel;
 import me.scana.okgradle.internal.dsl.parser.BuildModelContext;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
-import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpressionList;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
 import me.scana.okgradle.internal.dsl.parser.files.GradleBuildFile;
 import me.scana.okgradle.internal.dsl.parser.files.GradleSettingsFile;
 import me.scana.okgradle.internal.dsl.parser.settings.ProjectPropertiesDslElement;
-import com.google.common.collect.Lists;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -84,21 +82,7 @@ public class GradleSettingsModelImpl extends GradleFileModelImpl implements Grad
   @NotNull
   @Override
   public List<String> modulePaths() {
-    List<String> result = Lists.newArrayList();
-    result.add(":"); // Indicates the root module.
-
-    GradleDslExpressionList includePaths = myGradleDslFile.getPropertyElement(INCLUDE, GradleDslExpressionList.class);
-    if (includePaths == null) {
-      return result;
-    }
-
-    for (GradleDslSimpleExpression includePath : includePaths.getSimpleExpressions()) {
-      String value = includePath.getValue(String.class);
-      if (value != null) {
-        result.add(standardiseModulePath(value));
-      }
-    }
-    return result;
+    return new ArrayList<>(getModulePathIndex().modulePaths());
   }
 
   @Override
@@ -131,53 +115,13 @@ public class GradleSettingsModelImpl extends GradleFileModelImpl implements Grad
   @Nullable
   @Override
   public File moduleDirectory(String modulePath) {
-    modulePath = standardiseModulePath(modulePath);
-    if (!modulePaths().contains(modulePath)) {
-      return null;
-    }
-    return moduleDirectoryNoCheck(modulePath);
-  }
-
-  @Nullable
-  private File moduleDirectoryNoCheck(String modulePath) {
-    File rootDirPath = virtualToIoFile(myGradleDslFile.getFile().getParent());
-    if (modulePath.equals(":")) {
-      return rootDirPath;
-    }
-
-    String projectKey = "project('" + modulePath + "')";
-    ProjectPropertiesDslElement projectProperties = myGradleDslFile.getPropertyElement(projectKey, ProjectPropertiesDslElement.class);
-    if (projectProperties != null) {
-      File projectDir = projectProperties.projectDir();
-      if (projectDir != null) {
-        return projectDir;
-      }
-    }
-
-    File parentDir;
-    if (modulePath.lastIndexOf(':') == 0) {
-      parentDir = rootDirPath;
-    }
-    else {
-      String parentModule = parentModuleNoCheck(modulePath);
-      if (parentModule == null) {
-        return null;
-      }
-      parentDir = moduleDirectoryNoCheck(parentModule);
-    }
-    String moduleName = modulePath.substring(modulePath.lastIndexOf(':') + 1);
-    return new File(parentDir, moduleName);
+    return getModulePathIndex().moduleDirectory(standardiseModulePath(modulePath));
   }
 
   @Nullable
   @Override
   public String moduleWithDirectory(@NotNull File moduleDir) {
-    for (String modulePath : modulePaths()) {
-      if (filesEqual(moduleDir, moduleDirectory(modulePath))) {
-        return modulePath;
-      }
-    }
-    return null;
+    return getModulePathIndex().moduleWithDirectory(moduleDir);
   }
 
   @Nullable
@@ -199,30 +143,7 @@ public class GradleSettingsModelImpl extends GradleFileModelImpl implements Grad
   @Nullable
   @Override
   public String parentModule(@NotNull String modulePath) {
-    modulePath = standardiseModulePath(modulePath);
-    List<String> allModulePaths = modulePaths();
-    if (!allModulePaths.contains(modulePath)) {
-      return null;
-    }
-    String currentPath = modulePath;
-    do {
-      currentPath = parentModuleNoCheck(currentPath);
-      if (allModulePaths.contains(currentPath)) {
-        return currentPath;
-      }
-    }
-    while (currentPath != null && !currentPath.equals(":"));
-    return null;
-  }
-
-  @Nullable
-  private static String parentModuleNoCheck(@NotNull String modulePath) {
-    modulePath = standardiseModulePath(modulePath);
-    if (modulePath.equals(":")) {
-      return null;
-    }
-    int lastPathElementIndex = modulePath.lastIndexOf(':');
-    return lastPathElementIndex == 0 ? ":" : modulePath.substring(0, lastPathElementIndex);
+    return getModulePathIndex().parentModule(standardiseModulePath(modulePath));
   }
 
   @Nullable
@@ -270,8 +191,13 @@ public class GradleSettingsModelImpl extends GradleFileModelImpl implements Grad
     }).filter(Objects::nonNull).collect(Collectors.toList());
   }
 
+  @NotNull
+  private ModulePathIndex getModulePathIndex() {
+    return ((GradleSettingsFile)myGradleDslFile).getModulePathIndex();
+  }
+
   private static String standardiseModulePath(@NotNull String modulePath) {
-    return modulePath.startsWith(":") ? modulePath : ":" + modulePath;
+    return ModulePathIndex.standardiseModulePath(modulePath);
   }
 
   @Nullable
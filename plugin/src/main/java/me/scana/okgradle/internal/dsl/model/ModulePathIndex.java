@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.model;
+
+import static com.intellij.openapi.vfs.VfsUtilCore.virtualToIoFile;
+import static me.scana.okgradle.internal.dsl.model.GradleSettingsModelImpl.INCLUDE;
+
+import com.google.common.collect.ImmutableList;
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpressionList;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
+import me.scana.okgradle.internal.dsl.parser.files.GradleSettingsFile;
+import me.scana.okgradle.internal.dsl.parser.settings.ProjectPropertiesDslElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A bidirectional index between the module paths declared in a settings file, the directories of those modules and their parent
+ * module paths. The index is built in a single pass over the include statements and is cached by the {@link GradleSettingsFile}
+ * until the settings file is next modified, see {@link GradleSettingsFile#getModulePathIndex()}.
+ */
+public final class ModulePathIndex {
+  @NotNull private final List<String> myModulePaths;
+  @NotNull private final Map<String, File> myPathToDirectory = new HashMap<>();
+  @NotNull private final Map<String, String> myDirectoryToPath = new HashMap<>();
+  @NotNull private final Map<String, String> myPathToParentPath = new HashMap<>();
+
+  @NotNull private final GradleSettingsFile mySettingsFile;
+  @NotNull private final File myRootDirPath;
+
+  @NotNull
+  public static ModulePathIndex build(@NotNull GradleSettingsFile settingsFile) {
+    return new ModulePathIndex(settingsFile);
+  }
+
+  private ModulePathIndex(@NotNull GradleSettingsFile settingsFile) {
+    mySettingsFile = settingsFile;
+    myRootDirPath = virtualToIoFile(settingsFile.getFile().getParent());
+    myModulePaths = ImmutableList.copyOf(collectModulePaths(settingsFile));
+
+    Set<String> knownPaths = new LinkedHashSet<>(myModulePaths);
+    for (String modulePath : myModulePaths) {
+      File directory = computeDirectory(modulePath);
+      if (directory != null) {
+        // The first declared module wins, this mirrors the order in which the module paths used to be searched.
+        myDirectoryToPath.putIfAbsent(directoryKey(directory), modulePath);
+      }
+      myPathToParentPath.put(modulePath, computeParentPath(modulePath, knownPaths));
+    }
+  }
+
+  /**
+   * @return the module paths declared by the include statements, starting with the root module ":".
+   */
+  @NotNull
+  public List<String> modulePaths() {
+    return myModulePaths;
+  }
+
+  public boolean containsModulePath(@NotNull String modulePath) {
+    return myPathToParentPath.containsKey(modulePath);
+  }
+
+  /**
+   * @return the directory of the given standardised module path or {@code null} if the module is not declared or the directory can't
+   * be determined.
+   */
+  @Nullable
+  public File moduleDirectory(@NotNull String modulePath) {
+    return containsModulePath(modulePath) ? myPathToDirectory.get(modulePath) : null;
+  }
+
+  @Nullable
+  public String moduleWithDirectory(@NotNull File moduleDir) {
+    return myDirectoryToPath.get(directoryKey(moduleDir));
+  }
+
+  @Nullable
+  public String parentModule(@NotNull String modulePath) {
+    return myPathToParentPath.get(modulePath);
+  }
+
+  @NotNull
+  private static List<String> collectModulePaths(@NotNull GradleSettingsFile settingsFile) {
+    List<String> result = new ArrayList<>();
+    result.add(":"); // Indicates the root module.
+
+    GradleDslExpressionList includePaths = settingsFile.getPropertyElement(INCLUDE, GradleDslExpressionList.class);
+    if (includePaths == null) {
+      return result;
+    }
+
+    for (GradleDslSimpleExpression includePath : includePaths.getSimpleExpressions()) {
+      String value = includePath.getValue(String.class);
+      if (value != null) {
+        result.add(standardiseModulePath(value));
+      }
+    }
+    return result;
+  }
+
+  @Nullable
+  private File computeDirectory(@NotNull String modulePath) {
+    if (myPathToDirectory.containsKey(modulePath)) {
+      return myPathToDirectory.get(modulePath);
+    }
+
+    File directory = computeDirectoryNoCache(modulePath);
+    myPathToDirectory.put(modulePath, directory);
+    return directory;
+  }
+
+  @Nullable
+  private File computeDirectoryNoCache(@NotNull String modulePath) {
+    if (modulePath.equals(":")) {
+      return myRootDirPath;
+    }
+
+    String projectKey = "project('" + modulePath + "')";
+    ProjectPropertiesDslElement projectProperties = mySettingsFile.getPropertyElement(projectKey, ProjectPropertiesDslElement.class);
+    if (projectProperties != null) {
+      File projectDir = projectProperties.projectDir();
+      if (projectDir != null) {
+        return projectDir;
+      }
+    }
+
+    File parentDir;
+    if (modulePath.lastIndexOf(':') == 0) {
+      parentDir = myRootDirPath;
+    }
+    else {
+      String parentModule = parentModuleNoCheck(modulePath);
+      if (parentModule == null) {
+        return null;
+      }
+      parentDir = computeDirectory(parentModule);
+    }
+    String moduleName = modulePath.substring(modulePath.lastIndexOf(':') + 1);
+    return new File(parentDir, moduleName);
+  }
+
+  @Nullable
+  private static String computeParentPath(@NotNull String modulePath, @NotNull Set<String> knownPaths) {
+    String currentPath = modulePath;
+    do {
+      currentPath = parentModuleNoCheck(currentPath);
+      if (knownPaths.contains(currentPath)) {
+        return currentPath;
+      }
+    }
+    while (currentPath != null && !currentPath.equals(":"));
+    return null;
+  }
+
+  @Nullable
+  static String parentModuleNoCheck(@NotNull String modulePath) {
+    modulePath = standardiseModulePath(modulePath);
+    if (modulePath.equals(":")) {
+      return null;
+    }
+    int lastPathElementIndex = modulePath.lastIndexOf(':');
+    return lastPathElementIndex == 0 ? ":" : modulePath.substring(0, lastPathElementIndex);
+  }
+
+  @NotNull
+  static String standardiseModulePath(@NotNull String modulePath) {
+    return modulePath.startsWith(":") ? modulePath : ":" + modulePath;
+  }
+
+  /**
+   * Produces a key that is equal for two directories exactly when {@link FileUtil#filesEqual(File, File)} considers them equal.
+   */
+  @NotNull
+  public static String directoryKey(@NotNull File directory) {
+    String path = FileUtil.toSystemIndependentName(FileUtil.toCanonicalPath(directory.getPath()));
+    return SystemInfo.isFileSystemCaseSensitive ? path : path.toLowerCase(Locale.US);
+  }
+}
@@ -21,22 +21,32 @@ import static me.scana.okgradle.internal.dsl.model.GradleBuildModelImpl.populate
 import static me.scana.okgradle.util.AndroidPluginUtils.getGradleBuildFile;
 import static me.scana.okgradle.util.AndroidPluginUtils.getGradleSettingsFile;
 
+import me.scana.okgradle.internal.dsl.api.BuildModelChangeListener;
+import me.scana.okgradle.internal.dsl.api.CommitReport;
+import me.scana.okgradle.internal.dsl.api.FrozenBuildModel;
 import me.scana.okgradle.internal.dsl.api.GradleBuildModel;
 import me.scana.okgradle.internal.dsl.api.GradleSettingsModel;
 import me.scana.okgradle.internal.dsl.api.ProjectBuildModel;
+import me.scana.okgradle.internal.dsl.api.android.AndroidModel;
+import me.scana.okgradle.internal.dsl.api.android.BuildVariantModel;
+import me.scana.okgradle.internal.dsl.api.ext.ResolvedPropertyModel;
 import me.scana.okgradle.internal.dsl.parser.BuildModelContext;
 import me.scana.okgradle.internal.dsl.parser.files.GradleBuildFile;
 import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
 import me.scana.okgradle.internal.dsl.parser.files.GradleSettingsFile;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -46,6 +56,9 @@ import org.jetbrains.annotations.Nullable;
 public class ProjectBuildModelImpl implements ProjectBuildModel {
   @NotNull private final BuildModelContext myBuildModelContext;
   @Nullable private final GradleBuildFile myProjectBuildFile;
+  // The result of the last freeze(), the next one shares its unchanged blocks.
+  @Nullable private FrozenBuildModel myLastFrozenModel;
+  @Nullable private BuildModelChangeFeed myChangeFeed;
 
   @NotNull
   public static ProjectBuildModel get(@NotNull Project project) {
@@ -68,17 +81,26 @@ public class ProjectBuildModelImpl implements ProjectBuildModel {
    * @param file the file contain the projects main build.gradle
    */
   private ProjectBuildModelImpl(@NotNull Project project, @Nullable VirtualFile file) {
+    this(project, file, ApplicationManager.getApplication()::runReadAction);
+  }
+
+  /**
+   * @param readRunner runs the parse of the main build file, this is started over with a new {@link GradleBuildFile} if it is
+   *                   interrupted.
+   */
+  ProjectBuildModelImpl(@NotNull Project project, @Nullable VirtualFile file, @NotNull ProjectBuildModelLoader.ReadRunner readRunner) {
     myBuildModelContext = BuildModelContext.create(project);
 
     // First parse the main project build file.
-    myProjectBuildFile = file != null ? new GradleBuildFile(file, project, project.getName(), myBuildModelContext) : null;
+    myProjectBuildFile = file == null ? null : readRunner.compute(() -> {
+      GradleBuildFile buildFile = new GradleBuildFile(file, project, project.getName(), myBuildModelContext);
+      myBuildModelContext.setRootProjectFile(buildFile);
+      populateWithParentModuleSubProjectsProperties(buildFile, myBuildModelContext);
+      populateSiblingDslFileWithGradlePropertiesFile(buildFile, myBuildModelContext);
+      buildFile.parse();
+      return buildFile;
+    });
     if (myProjectBuildFile != null) {
-      myBuildModelContext.setRootProjectFile(myProjectBuildFile);
-      ApplicationManager.getApplication().runReadAction(() -> {
-        populateWithParentModuleSubProjectsProperties(myProjectBuildFile, myBuildModelContext);
-        populateSiblingDslFileWithGradlePropertiesFile(myProjectBuildFile, myBuildModelContext);
-        myProjectBuildFile.parse();
-      });
       myBuildModelContext.putBuildFile(file.getUrl(), myProjectBuildFile);
     }
   }
@@ -144,16 +166,29 @@ public class ProjectBuildModelImpl implements ProjectBuildModel {
 
   @Override
   public void applyChanges() {
-    runOverProjectTree(file -> {
+    applyChangesWithReport();
+  }
+
+  @Override
+  @NotNull
+  public CommitReport applyChangesWithReport() {
+    List<GradleDslFile> modifiedFiles = myBuildModelContext.getModifiedFiles();
+    if (modifiedFiles.isEmpty()) {
+      return CommitReport.empty();
+    }
+
+    List<VirtualFile> writtenFiles = new ArrayList<>();
+    for (GradleDslFile file : modifiedFiles) {
       file.applyChanges();
       file.saveAllChanges();
-    });
-
+      writtenFiles.add(file.getFile());
+    }
+    return new CommitReport(writtenFiles);
   }
 
   @Override
   public void resetState() {
-    runOverProjectTree(GradleDslFile::resetState);
+    myBuildModelContext.getModifiedFiles().forEach(GradleDslFile::resetState);
   }
 
   @Override
@@ -162,6 +197,40 @@ public class ProjectBuildModelImpl implements ProjectBuildModel {
     runOverProjectTree(GradleDslFile::reparse);
   }
 
+  @NotNull
+  @Override
+  public FrozenBuildModel freeze() {
+    List<GradleBuildModel> buildModels = getAllIncludedBuildModels();
+    FrozenBuildModel previous = myLastFrozenModel;
+    FrozenBuildModel frozen = ApplicationManager.getApplication().runReadAction(
+      (Computable<FrozenBuildModel>)() -> BuildModelFreezer.freeze(buildModels, previous));
+    myLastFrozenModel = frozen;
+    return frozen;
+  }
+
+  @Override
+  public void addChangeListener(@NotNull BuildModelChangeListener listener, @NotNull Disposable parentDisposable) {
+    if (myChangeFeed == null || myChangeFeed.isDisposed()) {
+      myChangeFeed = new BuildModelChangeFeed(myBuildModelContext);
+    }
+    myChangeFeed.addListener(listener, parentDisposable);
+  }
+
+  @NotNull
+  @Override
+  public Map<VirtualFile, ResolvedPropertyModel> getVariantProperty(@NotNull String variantName, @NotNull String property) {
+    Map<VirtualFile, ResolvedPropertyModel> result = new LinkedHashMap<>();
+    for (GradleBuildModel buildModel : getAllIncludedBuildModels()) {
+      AndroidModel android = ((GradleBuildModelImpl)buildModel).findAndroid();
+      BuildVariantModel variant = android == null ? null : android.variant(variantName);
+      ResolvedPropertyModel model = variant == null ? null : variant.property(property);
+      if (model != null) {
+        result.put(buildModel.getVirtualFile(), model);
+      }
+    }
+    return result;
+  }
+
   @NotNull
   @Override
   public List<GradleBuildModel> getAllIncludedBuildModels() {
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.model;
+
+import static me.scana.okgradle.util.AndroidPluginUtils.getBaseDirPath;
+import static me.scana.okgradle.util.AndroidPluginUtils.getGradleBuildFile;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.VirtualFile;
+import me.scana.okgradle.internal.dsl.api.GradleSettingsModel;
+import me.scana.okgradle.internal.dsl.api.ProjectBuildModel;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Builds a {@link ProjectBuildModel} from a background thread without holding read access for longer than it takes to parse one file.
+ *
+ * <p>{@link ProjectBuildModel#get(Project)} parses the main build file, and everything it pulls in, in a single read action and parses
+ * the module files as they are requested. On large projects that blocks write actions, and so typing, until the parse is done. Here the
+ * work is split into units, the main build file, the settings file and then each module's build file, and every unit runs in its own
+ * read action that gives way to write actions. A unit that is interrupted is started over once the write action has finished, files that
+ * were completely parsed by earlier units are kept. Blocks that are only parsed when first accessed also start over if they are
+ * interrupted, so the same applies to reading the model afterwards through {@link #runRead(ProgressIndicator, Computable)}.
+ */
+public final class ProjectBuildModelLoader {
+  /**
+   * Runs a unit of model building with read access and returns its result.
+   */
+  interface ReadRunner {
+    <T> T compute(@NotNull Computable<T> unit);
+  }
+
+  private ProjectBuildModelLoader() {
+  }
+
+  /**
+   * Builds the model for {@code project} and parses the build files of all the modules in its settings file. This must not be called
+   * from the UI thread or with read access.
+   *
+   * @param indicator receives the progress of the parse, cancelling it stops the parse with a
+   *                  {@link com.intellij.openapi.progress.ProcessCanceledException}.
+   */
+  @NotNull
+  public static ProjectBuildModel load(@NotNull Project project, @NotNull ProgressIndicator indicator) {
+    ReadRunner runner = readRunner(indicator);
+    indicator.setIndeterminate(false);
+    indicator.setFraction(0);
+    ProjectBuildModelImpl model = createModel(project, indicator, runner);
+
+    GradleSettingsModel settingsModel = runner.compute(model::getProjectSettingsModel);
+    if (settingsModel == null) {
+      indicator.setFraction(1);
+      return model;
+    }
+
+    List<String> modulePaths = runner.compute(settingsModel::modulePaths);
+    for (int i = 0; i < modulePaths.size(); i++) {
+      String modulePath = modulePaths.get(i);
+      indicator.setText2(modulePath);
+      indicator.setFraction((double)i / modulePaths.size());
+      // The root project was parsed above.
+      if (modulePath.equals(":")) {
+        continue;
+      }
+      runner.compute(() -> {
+        File moduleDir = settingsModel.moduleDirectory(modulePath);
+        VirtualFile file = moduleDir == null ? null : getGradleBuildFile(moduleDir);
+        return file == null ? null : model.getModuleBuildModel(file);
+      });
+    }
+    indicator.setFraction(1);
+    return model;
+  }
+
+  /**
+   * Builds the model for {@code project} but only parses the main build file, module files are parsed when they are requested. This is
+   * for callers that only need a few modules, which should then be requested through {@link #runRead(ProgressIndicator, Computable)}.
+   * This must not be called from the UI thread or with read access.
+   */
+  @NotNull
+  public static ProjectBuildModel create(@NotNull Project project, @NotNull ProgressIndicator indicator) {
+    return createModel(project, indicator, readRunner(indicator));
+  }
+
+  @NotNull
+  private static ProjectBuildModelImpl createModel(@NotNull Project project,
+                                                   @NotNull ProgressIndicator indicator,
+                                                   @NotNull ReadRunner runner) {
+    VirtualFile rootFile = getGradleBuildFile(getBaseDirPath(project));
+    if (rootFile != null) {
+      indicator.setText2(rootFile.getPath());
+    }
+    return new ProjectBuildModelImpl(project, rootFile, runner);
+  }
+
+  @NotNull
+  private static ReadRunner readRunner(@NotNull ProgressIndicator indicator) {
+    return new ReadRunner() {
+      @Override
+      public <T> T compute(@NotNull Computable<T> unit) {
+        return runRead(indicator, unit);
+      }
+    };
+  }
+
+  /**
+   * Runs {@code unit} with read access in a way that lets write actions interrupt it, in which case it is run again from the start after
+   * the write action has finished. {@code unit} must therefore be safe to run more than once. This must not be called from the UI thread
+   * or with read access.
+   */
+  public static <T> T runRead(@NotNull ProgressIndicator indicator, @NotNull Computable<T> unit) {
+    if (ApplicationManager.getApplication().isReadAccessAllowed()) {
+      throw new IllegalStateException("Build models can't be loaded with read access, it would block write actions");
+    }
+
+    Ref<T> result = Ref.create();
+    while (true) {
+      indicator.checkCanceled();
+      if (ProgressIndicatorUtils.runInReadActionWithWriteActionPriority(() -> result.set(unit.compute()), indicator)) {
+        return result.get();
+      }
+      // A write action is waiting or interrupted the unit, let it finish before starting over.
+      ProgressIndicatorUtils.yieldToPendingWriteActions();
+    }
+  }
+}
@@ -27,6 +27,7 @@ import me.scana.okgradle.internal.dsl.parser.elements.GradleNameElement;
 import com.google.common.collect.ImmutableList;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 
@@ -363,4 +364,16 @@ public final class AndroidModelImpl extends GradleDslBlockModel implements Andro
   public ResolvedPropertyModel resourcePrefix() {
     return getModelForProperty(RESOURCE_PREFIX);
   }
+
+  @Override
+  @NotNull
+  public List<BuildVariantModel> variants() {
+    return VariantMatrix.get((AndroidDslElement)myDslElement).getVariants();
+  }
+
+  @Override
+  @Nullable
+  public BuildVariantModel variant(@NotNull String name) {
+    return VariantMatrix.get((AndroidDslElement)myDslElement).getVariant(name);
+  }
 }
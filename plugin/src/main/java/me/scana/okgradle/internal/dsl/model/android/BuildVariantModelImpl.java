@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.model.android;
+
+import com.google.common.collect.ImmutableList;
+import me.scana.okgradle.internal.dsl.api.android.BuildTypeModel;
+import me.scana.okgradle.internal.dsl.api.android.BuildVariantModel;
+import me.scana.okgradle.internal.dsl.api.android.ProductFlavorModel;
+import me.scana.okgradle.internal.dsl.api.ext.ResolvedPropertyModel;
+import me.scana.okgradle.internal.dsl.model.ext.GradlePropertyModelBuilder;
+import me.scana.okgradle.internal.dsl.parser.android.BuildTypeDslElement;
+import me.scana.okgradle.internal.dsl.parser.android.ProductFlavorDslElement;
+import me.scana.okgradle.internal.dsl.parser.elements.GradlePropertiesDslElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A variant of a {@link VariantMatrix}. The variant is thrown away together with its matrix once the {@code android} block is modified,
+ * so the blocks that declare a property can be remembered for as long as it exists.
+ */
+final class BuildVariantModelImpl implements BuildVariantModel {
+  @NotNull private final String myName;
+  @NotNull private final String myBuildTypeName;
+  @Nullable private final BuildTypeDslElement myBuildType;
+  @NotNull private final List<ProductFlavorDslElement> myProductFlavors;
+  // The blocks of the variant, highest priority first.
+  @NotNull private final List<GradlePropertiesDslElement> myBlocks = new ArrayList<>();
+  @NotNull private final Map<String, List<GradlePropertiesDslElement>> myDeclaringBlocks = new HashMap<>();
+
+  BuildVariantModelImpl(@NotNull String name,
+                        @NotNull String buildTypeName,
+                        @Nullable BuildTypeDslElement buildType,
+                        @NotNull List<ProductFlavorDslElement> productFlavors,
+                        @Nullable ProductFlavorDslElement defaultConfig) {
+    myName = name;
+    myBuildTypeName = buildTypeName;
+    myBuildType = buildType;
+    myProductFlavors = productFlavors;
+    if (buildType != null) {
+      myBlocks.add(buildType);
+    }
+    myBlocks.addAll(productFlavors);
+    if (defaultConfig != null) {
+      myBlocks.add(defaultConfig);
+    }
+  }
+
+  @Override
+  @NotNull
+  public String name() {
+    return myName;
+  }
+
+  @Override
+  @NotNull
+  public String buildTypeName() {
+    return myBuildTypeName;
+  }
+
+  @Override
+  @Nullable
+  public BuildTypeModel buildType() {
+    return myBuildType == null ? null : new BuildTypeModelImpl(myBuildType);
+  }
+
+  @Override
+  @NotNull
+  public List<ProductFlavorModel> productFlavors() {
+    List<ProductFlavorModel> result = new ArrayList<>(myProductFlavors.size());
+    myProductFlavors.forEach(flavor -> result.add(new ProductFlavorModelImpl(flavor)));
+    return result;
+  }
+
+  @Override
+  @Nullable
+  public ResolvedPropertyModel property(@NotNull String property) {
+    List<GradlePropertiesDslElement> blocks = declaringBlocks(property);
+    return blocks.isEmpty() ? null : GradlePropertyModelBuilder.create(blocks.get(0), property).buildResolved();
+  }
+
+  @Override
+  @NotNull
+  public List<ResolvedPropertyModel> propertyChain(@NotNull String property) {
+    List<GradlePropertiesDslElement> blocks = declaringBlocks(property);
+    List<ResolvedPropertyModel> result = new ArrayList<>(blocks.size());
+    blocks.forEach(block -> result.add(GradlePropertyModelBuilder.create(block, property).buildResolved()));
+    return result;
+  }
+
+  @NotNull
+  private List<GradlePropertiesDslElement> declaringBlocks(@NotNull String property) {
+    return myDeclaringBlocks.computeIfAbsent(property, name -> {
+      ImmutableList.Builder<GradlePropertiesDslElement> blocks = ImmutableList.builder();
+      for (GradlePropertiesDslElement block : myBlocks) {
+        if (block.getPropertyElement(name) != null) {
+          blocks.add(block);
+        }
+      }
+      return blocks.build();
+    });
+  }
+
+  @Override
+  public String toString() {
+    return myName;
+  }
+}
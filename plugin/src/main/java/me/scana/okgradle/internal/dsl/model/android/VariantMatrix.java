@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.model.android;
+
+import static me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel.STRING_TYPE;
+import static me.scana.okgradle.internal.dsl.parser.android.BuildTypesDslElement.BUILD_TYPES_BLOCK_NAME;
+import static me.scana.okgradle.internal.dsl.parser.android.ProductFlavorsDslElement.PRODUCT_FLAVORS_BLOCK_NAME;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.intellij.openapi.util.text.StringUtil;
+import me.scana.okgradle.internal.dsl.api.android.BuildVariantModel;
+import me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel;
+import me.scana.okgradle.internal.dsl.model.ext.GradlePropertyModelBuilder;
+import me.scana.okgradle.internal.dsl.model.ext.GradlePropertyModelImpl;
+import me.scana.okgradle.internal.dsl.model.ext.PropertyUtil;
+import me.scana.okgradle.internal.dsl.parser.android.AndroidDslElement;
+import me.scana.okgradle.internal.dsl.parser.android.BuildTypeDslElement;
+import me.scana.okgradle.internal.dsl.parser.android.ProductFlavorDslElement;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElementImpl;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpressionList;
+import me.scana.okgradle.internal.dsl.parser.elements.GradlePropertiesDslElement;
+import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@link BuildVariantModel}s of an {@link AndroidDslElement}, computed the way the Android Gradle plugin combines build types and
+ * product flavors.
+ *
+ * <p>The matrix is kept on the {@code android} block and is valid while neither the block nor any element the flavor dimensions were
+ * read from has been modified. Each variant remembers which of its blocks declare a property once it has been asked for, the values
+ * themselves are resolved by the returned models whenever they are read.
+ */
+public final class VariantMatrix {
+  @NonNls private static final String DEBUG = "debug";
+  @NonNls private static final String RELEASE = "release";
+  @NonNls private static final String DIMENSION = "dimension";
+  @NonNls private static final String FLAVOR_DIMENSIONS = "flavorDimensions";
+
+  @NotNull private final List<BuildVariantModel> myVariants;
+  @NotNull private final Map<String, BuildVariantModel> myVariantsByName;
+  @NotNull private final GradleDslElement[] mySources;
+  @NotNull private final long[] mySourceModificationCounts;
+  private final long myBlockModificationCount;
+  // Build types and flavors can also come from scripts the file applies, edits to those modify the script instead of the block.
+  private final long myAppliedScriptsModificationCount;
+
+  private VariantMatrix(@NotNull List<BuildVariantModel> variants,
+                        @NotNull List<GradleDslElement> sources,
+                        long blockModificationCount,
+                        long appliedScriptsModificationCount) {
+    myVariants = ImmutableList.copyOf(variants);
+    Map<String, BuildVariantModel> variantsByName = new LinkedHashMap<>();
+    variants.forEach(variant -> variantsByName.putIfAbsent(variant.name(), variant));
+    myVariantsByName = ImmutableMap.copyOf(variantsByName);
+    mySources = sources.toArray(new GradleDslElement[0]);
+    mySourceModificationCounts = new long[mySources.length];
+    for (int i = 0; i < mySources.length; i++) {
+      mySourceModificationCounts[i] = modificationCount(mySources[i]);
+    }
+    myBlockModificationCount = blockModificationCount;
+    myAppliedScriptsModificationCount = appliedScriptsModificationCount;
+  }
+
+  /**
+   * @return the matrix of {@code android}, this is only computed again if the block has been modified since the last call.
+   */
+  @NotNull
+  public static VariantMatrix get(@NotNull AndroidDslElement android) {
+    VariantMatrix matrix = android.getVariantMatrix();
+    if (matrix == null || !matrix.isValid(android)) {
+      matrix = compute(android);
+      android.setVariantMatrix(matrix);
+    }
+    return matrix;
+  }
+
+  @NotNull
+  public List<BuildVariantModel> getVariants() {
+    return myVariants;
+  }
+
+  @Nullable
+  public BuildVariantModel getVariant(@NotNull String name) {
+    return myVariantsByName.get(name);
+  }
+
+  private boolean isValid(@NotNull AndroidDslElement android) {
+    if (myBlockModificationCount != android.getModificationCount() ||
+        myAppliedScriptsModificationCount != appliedScriptsModificationCount(android)) {
+      return false;
+    }
+    for (int i = 0; i < mySources.length; i++) {
+      if (mySourceModificationCounts[i] != modificationCount(mySources[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @NotNull
+  private static VariantMatrix compute(@NotNull AndroidDslElement android) {
+    List<GradleDslElement> sources = new ArrayList<>();
+    List<String> dimensions = readDimensions(android, sources);
+
+    ProductFlavorDslElement defaultConfig = android.getPropertyElement(AndroidModelImpl.DEFAULT_CONFIG, ProductFlavorDslElement.class);
+    List<List<ProductFlavorDslElement>> flavorGroups = groupFlavors(android, dimensions, sources);
+
+    // Combine the flavors of all the dimensions, the first dimension varies slowest.
+    List<List<ProductFlavorDslElement>> combinations = new ArrayList<>();
+    combinations.add(ImmutableList.of());
+    for (List<ProductFlavorDslElement> group : flavorGroups) {
+      List<List<ProductFlavorDslElement>> expanded = new ArrayList<>(combinations.size() * group.size());
+      for (List<ProductFlavorDslElement> combination : combinations) {
+        for (ProductFlavorDslElement flavor : group) {
+          expanded.add(ImmutableList.<ProductFlavorDslElement>builder().addAll(combination).add(flavor).build());
+        }
+      }
+      combinations = expanded;
+    }
+
+    Map<String, BuildTypeDslElement> buildTypes = readBuildTypes(android);
+    List<BuildVariantModel> variants = new ArrayList<>(combinations.size() * buildTypes.size());
+    for (List<ProductFlavorDslElement> combination : combinations) {
+      StringBuilder flavorName = new StringBuilder();
+      for (ProductFlavorDslElement flavor : combination) {
+        flavorName.append(flavorName.length() == 0 ? flavor.getName() : StringUtil.capitalize(flavor.getName()));
+      }
+      for (Map.Entry<String, BuildTypeDslElement> buildType : buildTypes.entrySet()) {
+        String name = flavorName.length() == 0 ? buildType.getKey() : flavorName + StringUtil.capitalize(buildType.getKey());
+        variants.add(new BuildVariantModelImpl(name, buildType.getKey(), buildType.getValue(), combination, defaultConfig));
+      }
+    }
+    return new VariantMatrix(variants, sources, android.getModificationCount(), appliedScriptsModificationCount(android));
+  }
+
+  private static long appliedScriptsModificationCount(@NotNull AndroidDslElement android) {
+    GradleDslFile file = android.getDslFile();
+    return file.getContext().getAppliedScriptGraph().getAppliedScriptsModificationCount(file);
+  }
+
+  @NotNull
+  private static List<String> readDimensions(@NotNull AndroidDslElement android, @NotNull List<GradleDslElement> sources) {
+    GradleDslElement element = android.getPropertyElement(FLAVOR_DIMENSIONS);
+    if (element == null) {
+      return ImmutableList.of();
+    }
+    sources.add(element);
+    if (element instanceof GradleDslExpressionList) {
+      sources.addAll(((GradleDslExpressionList)element).getExpressions());
+    }
+
+    GradlePropertyModel model = GradlePropertyModelBuilder.create(android, FLAVOR_DIMENSIONS).asMethod(true).build();
+    List<GradlePropertyModel> items = model.toList();
+    List<String> dimensions = new ArrayList<>();
+    for (GradlePropertyModel item : items == null ? ImmutableList.of(model) : items) {
+      String dimension = readString(item, sources);
+      if (dimension != null && !dimensions.contains(dimension)) {
+        dimensions.add(dimension);
+      }
+    }
+    return dimensions;
+  }
+
+  /**
+   * @return the product flavors of each dimension in {@code dimensions} that has any. If no dimensions are declared all the flavors make
+   * up a single group and if only one is declared it is also used by the flavors that don't name theirs. Flavors with a dimension that
+   * isn't declared are left out, Gradle refuses to configure such a project.
+   */
+  @NotNull
+  private static List<List<ProductFlavorDslElement>> groupFlavors(@NotNull AndroidDslElement android,
+                                                                  @NotNull List<String> dimensions,
+                                                                  @NotNull List<GradleDslElement> sources) {
+    GradlePropertiesDslElement productFlavors = android.getPropertyElement(PRODUCT_FLAVORS_BLOCK_NAME, GradlePropertiesDslElement.class);
+    List<ProductFlavorDslElement> flavors = new ArrayList<>();
+    if (productFlavors != null) {
+      for (GradleDslElement element : productFlavors.getPropertyElements().values()) {
+        if (element instanceof ProductFlavorDslElement) {
+          flavors.add((ProductFlavorDslElement)element);
+        }
+      }
+    }
+    if (flavors.isEmpty()) {
+      return ImmutableList.of();
+    }
+    if (dimensions.isEmpty()) {
+      return ImmutableList.of(flavors);
+    }
+
+    List<List<ProductFlavorDslElement>> groups = new ArrayList<>(dimensions.size());
+    dimensions.forEach(dimension -> groups.add(new ArrayList<>()));
+    for (ProductFlavorDslElement flavor : flavors) {
+      GradleDslElement dimensionElement = flavor.getPropertyElement(DIMENSION);
+      String dimension = null;
+      if (dimensionElement != null) {
+        sources.add(dimensionElement);
+        dimension = readString(GradlePropertyModelBuilder.create(flavor, DIMENSION).build(), sources);
+      }
+      int index = dimension == null && dimensions.size() == 1 ? 0 : dimensions.indexOf(dimension);
+      if (index >= 0) {
+        groups.get(index).add(flavor);
+      }
+    }
+    groups.removeIf(List::isEmpty);
+    return groups;
+  }
+
+  /**
+   * @return the declared build types by name, {@code debug} and {@code release} come first and are mapped to null if not declared.
+   */
+  @NotNull
+  private static Map<String, BuildTypeDslElement> readBuildTypes(@NotNull AndroidDslElement android) {
+    Map<String, BuildTypeDslElement> buildTypes = new LinkedHashMap<>();
+    buildTypes.put(DEBUG, null);
+    buildTypes.put(RELEASE, null);
+    GradlePropertiesDslElement buildTypesElement = android.getPropertyElement(BUILD_TYPES_BLOCK_NAME, GradlePropertiesDslElement.class);
+    if (buildTypesElement != null) {
+      for (GradleDslElement element : buildTypesElement.getPropertyElements().values()) {
+        if (element instanceof BuildTypeDslElement) {
+          buildTypes.put(element.getName(), (BuildTypeDslElement)element);
+        }
+      }
+    }
+    return buildTypes;
+  }
+
+  @Nullable
+  private static String readString(@NotNull GradlePropertyModel model, @NotNull List<GradleDslElement> sources) {
+    if (model instanceof GradlePropertyModelImpl) {
+      GradleDslElement definingElement = PropertyUtil.definingElement((GradlePropertyModelImpl)model);
+      if (definingElement != null) {
+        sources.add(definingElement);
+      }
+    }
+    return model.getValue(STRING_TYPE);
+  }
+
+  private static long modificationCount(@NotNull GradleDslElement element) {
+    return element instanceof GradleDslElementImpl ? ((GradleDslElementImpl)element).getModificationCount() : 0;
+  }
+}
@@ -16,6 +16,7 @@
 package me.scana.okgradle.internal.dsl.model.dependencies;
 
 import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyModel;
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactCoordinates;
 import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencySpec;
 import me.scana.okgradle.internal.dsl.api.dependencies.DependencyConfigurationModel;
 import me.scana.okgradle.internal.dsl.api.ext.ResolvedPropertyModel;
@@ -258,7 +259,7 @@ public abstract class ArtifactDependencyModelImpl extends DependencyModelImpl im
 
     @NotNull
     public ResolvedPropertyModel createModelFor(@NotNull String name,
-                                                @NotNull Function<ArtifactDependencySpec, String> getFunc,
+                                                @NotNull Function<ArtifactCoordinates, String> getFunc,
                                                 @NotNull BiConsumer<ArtifactDependencySpec, String> setFunc,
                                                 boolean canDelete) {
       GradleDslSimpleExpression element = mySetThrough ? resolveElement(myDslExpression) : myDslExpression;
@@ -270,31 +271,31 @@ public abstract class ArtifactDependencyModelImpl extends DependencyModelImpl im
     @Override
     @NotNull
     public ResolvedPropertyModel name() {
-      return createModelFor("name", ArtifactDependencySpec::getName, ArtifactDependencySpec::setName, false);
+      return createModelFor("name", ArtifactCoordinates::getName, ArtifactDependencySpec::setName, false);
     }
 
     @Override
     @NotNull
     public ResolvedPropertyModel group() {
-      return createModelFor("group", ArtifactDependencySpec::getGroup, ArtifactDependencySpec::setGroup, true);
+      return createModelFor("group", ArtifactCoordinates::getGroup, ArtifactDependencySpec::setGroup, true);
     }
 
     @Override
     @NotNull
     public ResolvedPropertyModel version() {
-      return createModelFor("version", ArtifactDependencySpec::getVersion, ArtifactDependencySpec::setVersion, true);
+      return createModelFor("version", ArtifactCoordinates::getVersion, ArtifactDependencySpec::setVersion, true);
     }
 
     @Override
     @NotNull
     public ResolvedPropertyModel classifier() {
-      return createModelFor("classifier", ArtifactDependencySpec::getClassifier, ArtifactDependencySpec::setClassifier, true);
+      return createModelFor("classifier", ArtifactCoordinates::getClassifier, ArtifactDependencySpec::setClassifier, true);
     }
 
     @Override
     @NotNull
     public ResolvedPropertyModel extension() {
-      return createModelFor("extension", ArtifactDependencySpec::getExtension, ArtifactDependencySpec::setExtension, true);
+      return createModelFor("extension", ArtifactCoordinates::getExtension, ArtifactDependencySpec::setExtension, true);
     }
 
     @NotNull
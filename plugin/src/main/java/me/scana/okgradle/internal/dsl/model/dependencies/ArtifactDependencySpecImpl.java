@@ -15,11 +15,16 @@
  */
 package me.scana.okgradle.internal.dsl.model.dependencies;
 
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactCoordinates;
 import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyModel;
 import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencySpec;
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Joiner;
 import com.google.common.base.Objects;
-import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Lists;
 import com.intellij.util.Function;
 import me.scana.okgradle.util.Constants;
@@ -53,56 +58,114 @@ public class ArtifactDependencySpecImpl implements ArtifactDependencySpec {
   @Nullable private String classifier;
   @Nullable private String extension;
 
+  // Specs parsed from compact notations, shared between all callers of parse. The same notations are read many times over while
+  // building and resolving dependency models, so this saves re-parsing them and keeps their group and name strings interned.
+  private static final Cache<String, ArtifactDependencySpecImpl> ourParsedNotations =
+    CacheBuilder.newBuilder().maximumSize(4096).build();
+  private static final Interner<String> ourSegments = Interners.newWeakInterner();
+  // Stands for notations that aren't a valid artifact in ourParsedNotations.
+  private static final ArtifactDependencySpecImpl NOT_AN_ARTIFACT = new ImmutableSpec("", null, null, null, null);
+
   @Nullable
   public static ArtifactDependencySpec create(@NotNull String notation) {
+    ArtifactDependencySpecImpl parsed = parseShared(notation);
+    return parsed == null ? null : new ArtifactDependencySpecImpl(parsed.name, parsed.group, parsed.version, parsed.classifier,
+                                                                  parsed.extension);
+  }
+
+  /**
+   * Like {@link #create(String)} but returns coordinates that are shared with other callers and so can't be changed.
+   */
+  @Nullable
+  public static ArtifactCoordinates parse(@NotNull String notation) {
+    return parseShared(notation);
+  }
+
+  @Nullable
+  private static ArtifactDependencySpecImpl parseShared(@NotNull String notation) {
+    ArtifactDependencySpecImpl parsed = ourParsedNotations.getIfPresent(notation);
+    if (parsed == null) {
+      parsed = parseNotation(notation);
+      ourParsedNotations.put(notation, parsed == null ? NOT_AN_ARTIFACT : parsed);
+    }
+    return parsed == NOT_AN_ARTIFACT ? null : parsed;
+  }
+
+  @Nullable
+  private static ArtifactDependencySpecImpl parseNotation(@NotNull String notation) {
     // Example: org.gradle.test.classifiers:service:1.0:jdk15@jar where
     //   group: org.gradle.test.classifiers
     //   name: service
     //   version: 1.0
     //   classifier: jdk15
     //   extension: jar
-    List<String> segments = Splitter.on(Constants.GRADLE_PATH_SEPARATOR).trimResults().omitEmptyStrings().splitToList(notation);
-    int segmentCount = segments.size();
-    if (segmentCount > 0) {
-      segments = Lists.newArrayList(segments);
-      String lastSegment = segments.remove(segmentCount - 1);
-      String extension = null;
-      int indexOfAt = lastSegment.indexOf('@');
-      if (indexOfAt != -1) {
-        extension = lastSegment.substring(indexOfAt + 1);
-        lastSegment = lastSegment.substring(0, indexOfAt);
+    // Segments are trimmed and empty ones are skipped, anything with more than four segments isn't an artifact.
+    int[] bounds = new int[8];
+    int segmentCount = 0;
+    int segmentStart = 0;
+    while (segmentStart <= notation.length()) {
+      int segmentEnd = notation.indexOf(Constants.GRADLE_PATH_SEPARATOR, segmentStart);
+      if (segmentEnd < 0) {
+        segmentEnd = notation.length();
       }
-      segments.add(lastSegment);
-      segmentCount = segments.size();
-
-      String group = null;
-      String name = null;
-      String version = null;
-      String classifier = null;
-
-      if (segmentCount == 2) {
-        if (!lastSegment.isEmpty() && Character.isDigit(lastSegment.charAt(0))) {
-          name = segments.get(0);
-          version = lastSegment;
-        }
-        else {
-          group = segments.get(0);
-          name = segments.get(1);
-        }
+      int start = segmentStart;
+      int end = segmentEnd;
+      while (start < end && CharMatcher.whitespace().matches(notation.charAt(start))) {
+        start++;
       }
-      else if (segmentCount == 3 || segmentCount == 4) {
-        group = segments.get(0);
-        name = segments.get(1);
-        version = segments.get(2);
+      while (end > start && CharMatcher.whitespace().matches(notation.charAt(end - 1))) {
+        end--;
+      }
+      if (start < end) {
         if (segmentCount == 4) {
-          classifier = segments.get(3);
+          return null;
         }
+        bounds[segmentCount * 2] = start;
+        bounds[segmentCount * 2 + 1] = end;
+        segmentCount++;
+      }
+      segmentStart = segmentEnd + 1;
+    }
+    if (segmentCount < 2) {
+      return null;
+    }
+
+    String extension = null;
+    int last = (segmentCount - 1) * 2;
+    int indexOfAt = notation.indexOf('@', bounds[last]);
+    if (indexOfAt != -1 && indexOfAt < bounds[last + 1]) {
+      extension = notation.substring(indexOfAt + 1, bounds[last + 1]);
+      bounds[last + 1] = indexOfAt;
+    }
+
+    String group = null;
+    String name;
+    String version = null;
+    String classifier = null;
+    if (segmentCount == 2) {
+      if (bounds[3] > bounds[2] && Character.isDigit(notation.charAt(bounds[2]))) {
+        name = segment(notation, bounds, 0);
+        version = segment(notation, bounds, 1);
+      }
+      else {
+        group = segment(notation, bounds, 0);
+        name = segment(notation, bounds, 1);
       }
-      if (isNotEmpty(name)) {
-        return new ArtifactDependencySpecImpl(name, group, version, classifier, extension);
+    }
+    else {
+      group = segment(notation, bounds, 0);
+      name = segment(notation, bounds, 1);
+      version = segment(notation, bounds, 2);
+      if (segmentCount == 4) {
+        classifier = segment(notation, bounds, 3);
       }
     }
-    return null;
+    return isNotEmpty(name) ? new ImmutableSpec(name, group, version, classifier, extension) : null;
+  }
+
+  @NotNull
+  private static String segment(@NotNull String notation, @NotNull int[] bounds, int index) {
+    return notation.substring(bounds[index * 2], bounds[index * 2 + 1]);
   }
 
   @Override
@@ -180,8 +243,8 @@ public class ArtifactDependencySpecImpl implements ArtifactDependencySpec {
                                     @Nullable String version,
                                     @Nullable String classifier,
                                     @Nullable String extension) {
-    this.name = name;
-    this.group = emptyToNull(group);
+    this.name = ourSegments.intern(name);
+    this.group = group == null || group.isEmpty() ? null : ourSegments.intern(group);
     this.version = emptyToNull(version);
     this.classifier = emptyToNull(classifier);
     this.extension = emptyToNull(extension);
@@ -192,10 +255,11 @@ public class ArtifactDependencySpecImpl implements ArtifactDependencySpec {
     if (this == o) {
       return true;
     }
-    if (o == null || getClass() != o.getClass()) {
+    if (!(o instanceof ArtifactDependencySpecImpl)) {
       return false;
     }
     ArtifactDependencySpecImpl that = (ArtifactDependencySpecImpl)o;
+    // Names and groups are interned, so these are usually decided by comparing references.
     return Objects.equal(name, that.name) &&
            Objects.equal(group, that.group) &&
            Objects.equal(classifier, that.classifier) &&
@@ -231,4 +295,42 @@ public class ArtifactDependencySpecImpl implements ArtifactDependencySpec {
     }
     return s;
   }
+
+  /**
+   * The specs handed out by {@link #parse(String)}. These are shared, so the setters throw in case one is cast back to a spec.
+   */
+  private static final class ImmutableSpec extends ArtifactDependencySpecImpl {
+    private ImmutableSpec(@NotNull String name,
+                          @Nullable String group,
+                          @Nullable String version,
+                          @Nullable String classifier,
+                          @Nullable String extension) {
+      super(name, group, version, classifier, extension);
+    }
+
+    @Override
+    public void setName(@NotNull String newName) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setGroup(@Nullable String newGroup) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setVersion(@Nullable String newVersion) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setClassifier(@Nullable String newClassifier) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setExtension(@Nullable String newExtension) {
+      throw new UnsupportedOperationException();
+    }
+  }
 }
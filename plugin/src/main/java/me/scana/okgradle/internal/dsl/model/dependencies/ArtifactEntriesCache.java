@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.model.dependencies;
+
+import static me.scana.okgradle.internal.dsl.model.ext.PropertyUtil.followElement;
+
+import com.google.common.collect.ImmutableList;
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactCoordinates;
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyEntry;
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyEntry.NotationKind;
+import me.scana.okgradle.internal.dsl.model.ext.PropertyUtil;
+import me.scana.okgradle.internal.dsl.parser.dependencies.DependenciesDslElement;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElementImpl;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpression;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpressionList;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpressionMap;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslLiteral;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslMethodCall;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link ArtifactDependencyEntry}s of a {@link DependenciesDslElement}, read the same way
+ * {@link DependenciesModelImpl#artifacts()} finds its dependencies.
+ *
+ * <p>The entries are kept on the block element and are valid while neither the block nor any element they were read from has been
+ * modified. Modifying a property that a dependency refers to also modifies the referring element, so a change to e.g an {@code ext}
+ * version invalidates the entries as well.
+ */
+public final class ArtifactEntriesCache {
+  @NotNull private final List<ArtifactDependencyEntry> myEntries;
+  @NotNull private final GradleDslElement[] mySources;
+  @NotNull private final long[] mySourceModificationCounts;
+  private final long myBlockModificationCount;
+
+  private ArtifactEntriesCache(@NotNull List<ArtifactDependencyEntry> entries,
+                               @NotNull List<GradleDslElement> sources,
+                               long blockModificationCount) {
+    myEntries = ImmutableList.copyOf(entries);
+    mySources = sources.toArray(new GradleDslElement[0]);
+    mySourceModificationCounts = new long[mySources.length];
+    for (int i = 0; i < mySources.length; i++) {
+      mySourceModificationCounts[i] = modificationCount(mySources[i]);
+    }
+    myBlockModificationCount = blockModificationCount;
+  }
+
+  /**
+   * @return the entries of {@code block}, these are only read again if the block has been modified since the last call.
+   */
+  @NotNull
+  public static List<ArtifactDependencyEntry> getEntries(@NotNull DependenciesDslElement block) {
+    ArtifactEntriesCache cache = block.getArtifactEntriesCache();
+    if (cache == null || !cache.isValid(block)) {
+      cache = read(block);
+      block.setArtifactEntriesCache(cache);
+    }
+    return cache.myEntries;
+  }
+
+  private boolean isValid(@NotNull DependenciesDslElement block) {
+    if (myBlockModificationCount != block.getModificationCount()) {
+      return false;
+    }
+    for (int i = 0; i < mySources.length; i++) {
+      if (mySourceModificationCounts[i] != modificationCount(mySources[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @NotNull
+  private static ArtifactEntriesCache read(@NotNull DependenciesDslElement block) {
+    List<ArtifactDependencyEntry> entries = new ArrayList<>();
+    List<GradleDslElement> sources = new ArrayList<>();
+    for (GradleDslElement element : block.getAllPropertyElements()) {
+      String configurationName = element.getName();
+      GradleDslElement resolved = resolve(element, sources);
+      if (resolved instanceof GradleDslExpressionList) {
+        for (GradleDslExpression expression : ((GradleDslExpressionList)resolved).getExpressions()) {
+          addEntry(configurationName, expression, resolve(expression, sources), entries);
+        }
+      }
+      else if (resolved instanceof GradleDslMethodCall && ((GradleDslMethodCall)resolved).getMethodName().equals(configurationName)) {
+        for (GradleDslElement argument : ((GradleDslMethodCall)resolved).getArguments()) {
+          addEntry(configurationName, argument, resolve(argument, sources), entries);
+        }
+      }
+      else {
+        addEntry(configurationName, element, resolved, entries);
+      }
+    }
+    return new ArtifactEntriesCache(entries, sources, block.getModificationCount());
+  }
+
+  @NotNull
+  private static GradleDslElement resolve(@NotNull GradleDslElement element, @NotNull List<GradleDslElement> sources) {
+    sources.add(element);
+    if (element instanceof GradleDslLiteral) {
+      GradleDslElement found = followElement((GradleDslLiteral)element);
+      if (found instanceof GradleDslExpression && found != element) {
+        sources.add(found);
+        return found;
+      }
+    }
+    return element;
+  }
+
+  private static void addEntry(@NotNull String configurationName,
+                               @NotNull GradleDslElement element,
+                               @NotNull GradleDslElement resolved,
+                               @NotNull List<ArtifactDependencyEntry> entries) {
+    if (!(element instanceof GradleDslExpression) || element instanceof GradleDslMethodCall) {
+      return;
+    }
+
+    ArtifactCoordinates spec = null;
+    NotationKind kind;
+    if (resolved instanceof GradleDslExpressionMap) {
+      GradleDslExpressionMap map = (GradleDslExpressionMap)resolved;
+      String name = map.getLiteral("name", String.class);
+      if (name != null) {
+        spec = new ArtifactDependencySpecImpl(name, map.getLiteral("group", String.class), map.getLiteral("version", String.class),
+                                              map.getLiteral("classifier", String.class), map.getLiteral("ext", String.class));
+      }
+      kind = NotationKind.MAP;
+    }
+    else if (element instanceof GradleDslSimpleExpression) {
+      String notation = PropertyUtil.resolveElement((GradleDslSimpleExpression)element).getValue(String.class);
+      if (notation != null && !notation.trim().isEmpty()) {
+        spec = ArtifactDependencySpecImpl.parse(notation);
+      }
+      kind = NotationKind.COMPACT;
+    }
+    else {
+      return;
+    }
+
+    if (spec != null) {
+      entries.add(new ArtifactDependencyEntry(configurationName, spec, kind));
+    }
+  }
+
+  private static long modificationCount(@NotNull GradleDslElement element) {
+    return element instanceof GradleDslElementImpl ? ((GradleDslElementImpl)element).getModificationCount() : 0;
+  }
+}
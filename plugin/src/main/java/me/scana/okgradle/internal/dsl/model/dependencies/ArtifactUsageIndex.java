@@ -0,0 +1,594 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.model.dependencies;
+
+import static me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel.STRING_TYPE;
+import static me.scana.okgradle.util.AndroidPluginUtils.getBaseDirPath;
+import static me.scana.okgradle.util.AndroidPluginUtils.getGradleBuildFile;
+
+import com.intellij.ProjectTopics;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.module.ModuleManager;
+import com.intellij.openapi.module.ModuleUtilCore;
+import com.intellij.openapi.progress.EmptyProgressIndicator;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.ModuleListener;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootEvent;
+import com.intellij.openapi.roots.ModuleRootListener;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.PsiTreeChangeAdapter;
+import com.intellij.psi.PsiTreeChangeEvent;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.util.Alarm;
+import com.intellij.util.messages.MessageBusConnection;
+import com.intellij.util.ui.update.MergingUpdateQueue;
+import com.intellij.util.ui.update.Update;
+import me.scana.okgradle.internal.dsl.api.GradleBuildModel;
+import me.scana.okgradle.internal.dsl.api.ProjectBuildModel;
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactCoordinates;
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyModel;
+import me.scana.okgradle.internal.dsl.api.dependencies.DependenciesModel;
+import me.scana.okgradle.internal.dsl.model.ProjectBuildModelLoader;
+import me.scana.okgradle.internal.dsl.parser.standalone.ScriptLanguage;
+import me.scana.okgradle.internal.dsl.parser.standalone.StandaloneBuildScript;
+import me.scana.okgradle.util.Constants;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A project wide index from {@code group:name} to every place the artifact is declared as a dependency in the project's build files.
+ *
+ * <p>The index is built on a pooled thread when the service is created, through {@link ProjectBuildModelLoader} so that parsing gives
+ * way to write actions, and is then kept up to date from PSI and VFS events: a build file that is edited is indexed again on its own,
+ * a build file that is created, deleted, moved or renamed or a change to the modules of the project rebuilds the whole index. Events
+ * are collected until none has arrived for {@link #UPDATE_DELAY_MS}, so typing in a build file leads to one update rather than one per
+ * keystroke. Queries never parse anything, they return the usages of the last completed update, see {@link #isReady()}.
+ *
+ * <p>Groovy files are indexed from the DSL model, which gives resolved versions and PSI locations, Kotlin files are indexed with
+ * {@link StandaloneBuildScript} as the DSL model doesn't parse them.
+ */
+public final class ArtifactUsageIndex implements Disposable {
+  private static final Logger LOG = Logger.getInstance(ArtifactUsageIndex.class);
+  private static final List<String> BUILD_FILE_NAMES = Arrays.asList(Constants.BUILD_GRADLE, Constants.BUILD_GRADLE_KTS);
+  private static final int UPDATE_DELAY_MS = 500;
+
+  @NotNull private final Project myProject;
+  // Replaced as a whole by each update, so queries can read it without locking.
+  @Nullable private volatile Snapshot mySnapshot;
+
+  // Pending work, only the thread running the updates takes it.
+  @NotNull private final Set<VirtualFile> myChangedFiles = ConcurrentHashMap.newKeySet();
+  @NotNull private final AtomicBoolean myRebuildNeeded = new AtomicBoolean(true);
+  @NotNull private final AtomicBoolean myUpdating = new AtomicBoolean();
+  @NotNull private final ProgressIndicator myIndicator = new EmptyProgressIndicator();
+  // Merges the events that arrive in quick succession into one update, run on a pooled thread.
+  @NotNull private final MergingUpdateQueue myUpdateQueue;
+
+  public ArtifactUsageIndex(@NotNull Project project) {
+    myProject = project;
+    myUpdateQueue = new MergingUpdateQueue("ArtifactUsageIndex", UPDATE_DELAY_MS, true, null, this, null, Alarm.ThreadToUse.POOLED_THREAD);
+
+    PsiManager.getInstance(project).addPsiTreeChangeListener(new PsiChangeListener(), this);
+
+    MessageBusConnection connection = project.getMessageBus().connect(this);
+    connection.subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+      @Override
+      public void after(@NotNull List<? extends VFileEvent> events) {
+        for (VFileEvent event : events) {
+          VirtualFile file = event.getFile();
+          if (event instanceof VFileContentChangeEvent) {
+            // Changes to files without a document don't go through the PSI.
+            if (file != null) {
+              fileChanged(file);
+            }
+          }
+          else if (BUILD_FILE_NAMES.stream().anyMatch(name -> event.getPath().endsWith("/" + name)) ||
+                   (file != null && isBuildFile(file))) {
+            rebuild();
+          }
+        }
+      }
+    });
+    connection.subscribe(ProjectTopics.MODULES, new ModuleListener() {
+      @Override
+      public void moduleAdded(@NotNull Project project, @NotNull Module module) {
+        rebuild();
+      }
+
+      @Override
+      public void moduleRemoved(@NotNull Project project, @NotNull Module module) {
+        rebuild();
+      }
+    });
+    connection.subscribe(ProjectTopics.PROJECT_ROOTS, new ModuleRootListener() {
+      @Override
+      public void rootsChanged(@NotNull ModuleRootEvent event) {
+        rebuild();
+      }
+    });
+
+    scheduleUpdate();
+  }
+
+  @NotNull
+  public static ArtifactUsageIndex getInstance(@NotNull Project project) {
+    return ServiceManager.getService(project, ArtifactUsageIndex.class);
+  }
+
+  /**
+   * @return whether the index has been built, until then every query returns nothing.
+   */
+  public boolean isReady() {
+    return mySnapshot != null;
+  }
+
+  /**
+   * @return the usages of the artifact with the given group and name across the project, in no particular order.
+   */
+  @NotNull
+  public List<ArtifactUsage> getUsages(@Nullable String group, @NotNull String name) {
+    Snapshot snapshot = mySnapshot;
+    List<ArtifactUsage> usages = snapshot == null ? null : snapshot.myUsagesByCoordinate.get(coordinate(group, name));
+    return usages == null ? Collections.emptyList() : usages;
+  }
+
+  /**
+   * @return the usages of the artifact with the given group and name in {@code buildFile}.
+   */
+  @NotNull
+  public List<ArtifactUsage> getUsages(@Nullable String group, @NotNull String name, @NotNull VirtualFile buildFile) {
+    List<ArtifactUsage> result = new ArrayList<>();
+    for (ArtifactUsage usage : getUsages(group, name)) {
+      if (usage.getFile().equals(buildFile)) {
+        result.add(usage);
+      }
+    }
+    return result;
+  }
+
+  public boolean isDeclared(@Nullable String group, @NotNull String name) {
+    return !getUsages(group, name).isEmpty();
+  }
+
+  /**
+   * @return every indexed usage grouped by {@code group:name}.
+   */
+  @NotNull
+  public Map<String, List<ArtifactUsage>> getAllUsages() {
+    Snapshot snapshot = mySnapshot;
+    return snapshot == null ? Collections.emptyMap() : snapshot.myUsagesByCoordinate;
+  }
+
+  /**
+   * @return the usages of the artifacts that are declared more than once for the same configuration of the same build file, grouped by
+   * {@code group:name}.
+   */
+  @NotNull
+  public Map<String, List<ArtifactUsage>> findDuplicates() {
+    Map<String, List<ArtifactUsage>> result = new LinkedHashMap<>();
+    getAllUsages().forEach((coordinate, usages) -> {
+      Map<String, List<ArtifactUsage>> byDeclaringScope = new HashMap<>();
+      for (ArtifactUsage usage : usages) {
+        byDeclaringScope.computeIfAbsent(usage.getFile().getUrl() + ' ' + usage.getConfigurationName(), k -> new ArrayList<>()).add(usage);
+      }
+      for (List<ArtifactUsage> sameScope : byDeclaringScope.values()) {
+        if (sameScope.size() > 1) {
+          result.computeIfAbsent(coordinate, k -> new ArrayList<>()).addAll(sameScope);
+        }
+      }
+    });
+    return result;
+  }
+
+  @Override
+  public void dispose() {
+    myIndicator.cancel();
+  }
+
+  private void psiChanged(@Nullable PsiFile psiFile) {
+    VirtualFile file = psiFile == null ? null : psiFile.getVirtualFile();
+    if (file != null) {
+      fileChanged(file);
+    }
+  }
+
+  private void fileChanged(@NotNull VirtualFile file) {
+    if (isBuildFile(file) && !file.equals(getGradleBuildFile(getBaseDirPath(myProject)))) {
+      myChangedFiles.add(file);
+      scheduleUpdate();
+    }
+    else if (isBuildFile(file) || file.getName().equals(Constants.GRADLE_PROPERTIES)) {
+      // Versions declared in the root build file or in properties files can be used by every module.
+      rebuild();
+    }
+  }
+
+  private void rebuild() {
+    myRebuildNeeded.set(true);
+    scheduleUpdate();
+  }
+
+  private void scheduleUpdate() {
+    if (!myIndicator.isCanceled()) {
+      myUpdateQueue.queue(Update.create(this, this::runUpdates));
+    }
+  }
+
+  private void runUpdates() {
+    if (!myUpdating.compareAndSet(false, true)) {
+      // The updates that are already running pick up the new work.
+      return;
+    }
+    try {
+      while (true) {
+        boolean rebuild = myRebuildNeeded.getAndSet(false);
+        Set<VirtualFile> changedFiles = new LinkedHashSet<>(myChangedFiles);
+        myChangedFiles.removeAll(changedFiles);
+        if (!rebuild && changedFiles.isEmpty()) {
+          break;
+        }
+        update(rebuild, changedFiles);
+      }
+    }
+    catch (ProcessCanceledException e) {
+      // The project is being closed.
+      return;
+    }
+    catch (RuntimeException e) {
+      // Keep the last snapshot, the next change schedules another update.
+      LOG.warn("Failed to update the artifact usage index of " + myProject.getName(), e);
+    }
+    finally {
+      myUpdating.set(false);
+    }
+    // Work that arrived after the last check but before the flag was cleared would otherwise wait for the next event.
+    if (myRebuildNeeded.get() || !myChangedFiles.isEmpty()) {
+      scheduleUpdate();
+    }
+  }
+
+  /**
+   * Indexes either every build file of the project or only the given ones, and publishes the result as a new snapshot.
+   */
+  private void update(boolean rebuild, @NotNull Set<VirtualFile> changedFiles) {
+    Snapshot previous = mySnapshot;
+    Map<VirtualFile, List<ArtifactUsage>> files = new LinkedHashMap<>();
+    Set<VirtualFile> toIndex;
+    ProjectBuildModel projectModel;
+    if (rebuild || previous == null) {
+      toIndex = ProjectBuildModelLoader.runRead(myIndicator, this::findBuildFiles);
+      projectModel = ProjectBuildModelLoader.load(myProject, myIndicator);
+    }
+    else {
+      files.putAll(previous.myFiles);
+      toIndex = new LinkedHashSet<>();
+      for (VirtualFile file : changedFiles) {
+        if (file.isValid() && files.containsKey(file)) {
+          toIndex.add(file);
+        }
+      }
+      if (toIndex.isEmpty()) {
+        return;
+      }
+      // Only the root build file is parsed up front, each changed file is then parsed on its own.
+      boolean hasGroovyFile = toIndex.stream().anyMatch(file -> !isKotlinScript(file));
+      projectModel = hasGroovyFile ? ProjectBuildModelLoader.create(myProject, myIndicator) : null;
+    }
+
+    for (VirtualFile file : toIndex) {
+      List<ArtifactUsage> usages;
+      try {
+        usages = ProjectBuildModelLoader.runRead(myIndicator, () -> {
+          if (!file.isValid()) {
+            return Collections.<ArtifactUsage>emptyList();
+          }
+          return isKotlinScript(file) || projectModel == null ? indexKotlinScript(file) : indexGroovyScript(projectModel, file);
+        });
+      }
+      catch (ProcessCanceledException e) {
+        throw e;
+      }
+      catch (RuntimeException e) {
+        LOG.warn("Failed to index dependencies of " + file.getPath(), e);
+        usages = Collections.emptyList();
+      }
+      files.put(file, usages);
+    }
+    mySnapshot = new Snapshot(files);
+  }
+
+  @NotNull
+  private Set<VirtualFile> findBuildFiles() {
+    Set<VirtualFile> result = new LinkedHashSet<>();
+    VirtualFile projectBuildFile = getGradleBuildFile(getBaseDirPath(myProject));
+    if (projectBuildFile != null) {
+      result.add(projectBuildFile);
+    }
+    for (Module module : ModuleManager.getInstance(myProject).getModules()) {
+      for (VirtualFile contentRoot : ModuleRootManager.getInstance(module).getContentRoots()) {
+        for (String buildFileName : BUILD_FILE_NAMES) {
+          VirtualFile buildFile = contentRoot.findChild(buildFileName);
+          if (buildFile != null && buildFile.isValid()) {
+            result.add(buildFile);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  private List<ArtifactUsage> indexGroovyScript(@NotNull ProjectBuildModel projectModel, @NotNull VirtualFile file) {
+    GradleBuildModel buildModel = projectModel.getModuleBuildModel(file);
+    String moduleName = moduleName(file);
+    List<ArtifactUsage> result = new ArrayList<>();
+    addUsages(file, moduleName, buildModel.buildscript().dependencies(), result);
+    addUsages(file, moduleName, buildModel.dependencies(), result);
+    return result;
+  }
+
+  private void addUsages(@NotNull VirtualFile file,
+                         @Nullable String moduleName,
+                         @NotNull DependenciesModel dependencies,
+                         @NotNull List<ArtifactUsage> result) {
+    SmartPointerManager pointerManager = SmartPointerManager.getInstance(myProject);
+    for (ArtifactDependencyModel artifact : dependencies.artifacts()) {
+      String name = artifact.name().toString();
+      if (name == null) {
+        continue;
+      }
+      PsiElement psiElement = artifact.getPsiElement();
+      SmartPsiElementPointer<PsiElement> pointer = psiElement == null ? null : pointerManager.createSmartPsiElementPointer(psiElement);
+      int line = psiElement == null ? -1 : lineOf(psiElement);
+      String versionText = artifact.version().getRawValue(STRING_TYPE);
+      result.add(new ArtifactUsage(file, moduleName, artifact.configurationName(), artifact.group().toString(), name, versionText,
+                                   artifact.version().toString(), line, pointer));
+    }
+  }
+
+  @NotNull
+  private List<ArtifactUsage> indexKotlinScript(@NotNull VirtualFile file) {
+    Document document = FileDocumentManager.getInstance().getDocument(file);
+    if (document == null) {
+      return Collections.emptyList();
+    }
+
+    String moduleName = moduleName(file);
+    List<ArtifactUsage> result = new ArrayList<>();
+    StandaloneBuildScript script = StandaloneBuildScript.parse(file.getPath(), document.getImmutableCharSequence(), ScriptLanguage.KOTLIN);
+    for (StandaloneBuildScript.Dependency dependency : script.getDependencies()) {
+      ArtifactCoordinates spec = ArtifactDependencySpecImpl.parse(dependency.getNotation());
+      if (spec == null) {
+        continue;
+      }
+      String version = spec.getVersion();
+      // Only literal versions can be resolved without evaluating the script.
+      String resolvedVersion = version != null && version.indexOf('$') < 0 ? version : null;
+      result.add(new ArtifactUsage(file, moduleName, dependency.getConfiguration(), spec.getGroup(), spec.getName(), version,
+                                   resolvedVersion, dependency.getLine(), null));
+    }
+    return result;
+  }
+
+  @Nullable
+  private String moduleName(@NotNull VirtualFile file) {
+    Module module = ModuleUtilCore.findModuleForFile(file, myProject);
+    return module == null ? null : module.getName();
+  }
+
+  private static int lineOf(@NotNull PsiElement element) {
+    PsiFile psiFile = element.getContainingFile();
+    Document document = psiFile == null ? null : PsiDocumentManager.getInstance(element.getProject()).getDocument(psiFile);
+    if (document == null) {
+      return -1;
+    }
+    return document.getLineNumber(element.getTextRange().getStartOffset()) + 1;
+  }
+
+  private static boolean isKotlinScript(@NotNull VirtualFile file) {
+    return file.getName().equals(Constants.BUILD_GRADLE_KTS);
+  }
+
+  private static boolean isBuildFile(@NotNull VirtualFile file) {
+    return BUILD_FILE_NAMES.contains(file.getName());
+  }
+
+  @NotNull
+  static String coordinate(@Nullable String group, @NotNull String name) {
+    return (group == null ? "" : group) + ':' + name;
+  }
+
+  private class PsiChangeListener extends PsiTreeChangeAdapter {
+    @Override
+    public void childAdded(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+
+    @Override
+    public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+
+    @Override
+    public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+
+    @Override
+    public void childMoved(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+
+    @Override
+    public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+      psiChanged(event.getFile());
+    }
+  }
+
+  /**
+   * The usages of every indexed build file as of one update, never modified once published.
+   */
+  private static final class Snapshot {
+    @NotNull private final Map<VirtualFile, List<ArtifactUsage>> myFiles;
+    @NotNull private final Map<String, List<ArtifactUsage>> myUsagesByCoordinate;
+
+    Snapshot(@NotNull Map<VirtualFile, List<ArtifactUsage>> files) {
+      myFiles = Collections.unmodifiableMap(files);
+      Map<String, List<ArtifactUsage>> usagesByCoordinate = new LinkedHashMap<>();
+      for (List<ArtifactUsage> usages : files.values()) {
+        for (ArtifactUsage usage : usages) {
+          usagesByCoordinate.computeIfAbsent(usage.getCoordinate(), k -> new ArrayList<>()).add(usage);
+        }
+      }
+      usagesByCoordinate.replaceAll((coordinate, usages) -> Collections.unmodifiableList(usages));
+      myUsagesByCoordinate = Collections.unmodifiableMap(usagesByCoordinate);
+    }
+  }
+
+  /**
+   * A single declaration of an artifact dependency found by {@link ArtifactUsageIndex}.
+   */
+  public static final class ArtifactUsage {
+    @NotNull private final VirtualFile myFile;
+    @Nullable private final String myModuleName;
+    @NotNull private final String myConfigurationName;
+    @Nullable private final String myGroup;
+    @NotNull private final String myName;
+    @Nullable private final String myVersionText;
+    @Nullable private final String myResolvedVersion;
+    private final int myLine;
+    @Nullable private final SmartPsiElementPointer<PsiElement> myPsiPointer;
+
+    ArtifactUsage(@NotNull VirtualFile file,
+                  @Nullable String moduleName,
+                  @NotNull String configurationName,
+                  @Nullable String group,
+                  @NotNull String name,
+                  @Nullable String versionText,
+                  @Nullable String resolvedVersion,
+                  int line,
+                  @Nullable SmartPsiElementPointer<PsiElement> psiPointer) {
+      myFile = file;
+      myModuleName = moduleName;
+      myConfigurationName = configurationName;
+      myGroup = group;
+      myName = name;
+      myVersionText = versionText;
+      myResolvedVersion = resolvedVersion;
+      myLine = line;
+      myPsiPointer = psiPointer;
+    }
+
+    @NotNull
+    public VirtualFile getFile() {
+      return myFile;
+    }
+
+    /**
+     * @return the name of the IDE module the build file belongs to or null if it isn't part of any module.
+     */
+    @Nullable
+    public String getModuleName() {
+      return myModuleName;
+    }
+
+    @NotNull
+    public String getConfigurationName() {
+      return myConfigurationName;
+    }
+
+    @Nullable
+    public String getGroup() {
+      return myGroup;
+    }
+
+    @NotNull
+    public String getName() {
+      return myName;
+    }
+
+    @NotNull
+    public String getCoordinate() {
+      return coordinate(myGroup, myName);
+    }
+
+    /**
+     * @return the version as written in the build file, e.g {@code 2.9.0} or {@code $retrofitVersion}.
+     */
+    @Nullable
+    public String getVersionText() {
+      return myVersionText;
+    }
+
+    /**
+     * @return the version with any references resolved or null if it couldn't be resolved.
+     */
+    @Nullable
+    public String getResolvedVersion() {
+      return myResolvedVersion;
+    }
+
+    /**
+     * @return the 1-based line of the declaration or -1 if it isn't known.
+     */
+    public int getLine() {
+      return myLine;
+    }
+
+    /**
+     * @return the element of the declaration if it is still valid, only available for Groovy build files.
+     */
+    @Nullable
+    public PsiElement getPsiElement() {
+      return myPsiPointer == null ? null : myPsiPointer.getElement();
+    }
+
+    @Override
+    public String toString() {
+      String version = myVersionText == null ? "" : ":" + myVersionText;
+      return myConfigurationName + " " + getCoordinate() + version + " (" + myFile.getPath() + ":" + myLine + ")";
+    }
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.model.dependencies;
+
+import static me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel.STRING_TYPE;
+
+import com.google.common.collect.ImmutableList;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import me.scana.okgradle.internal.dsl.api.CommitReport;
+import me.scana.okgradle.internal.dsl.api.GradleBuildModel;
+import me.scana.okgradle.internal.dsl.api.ProjectBuildModel;
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyModel;
+import me.scana.okgradle.internal.dsl.api.dependencies.DependenciesModel;
+import me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel;
+import me.scana.okgradle.internal.dsl.model.ProjectBuildModelLoader;
+import me.scana.okgradle.internal.dsl.model.ext.GradlePropertyModelImpl;
+import me.scana.okgradle.internal.dsl.model.ext.PropertyUtil;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
+import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
+import me.scana.okgradle.internal.dsl.parser.files.GradlePropertiesFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Updates the version of an artifact everywhere it is used in a project as a single undoable command.
+ *
+ * <p>Every {@link ArtifactDependencyModel} of the artifact in the build files of the project is followed to the element that defines its
+ * version, i.e through references such as {@code "a:b:$versions.b"} or {@code implementation libs.b} to the {@code ext} property or
+ * {@code gradle.properties} entry the value comes from. Usages that share a definition are only edited once and a version that is
+ * written literally is edited in place. All the edits are applied in one write command and every touched file is saved once, only the
+ * value is replaced in {@code gradle.properties} files.
+ */
+public final class ArtifactVersionBump {
+  @NotNull private final Project myProject;
+  @Nullable private final String myGroup;
+  @NotNull private final String myName;
+  @NotNull private final String myNewVersion;
+
+  @NotNull private final Map<GradleDslElement, GradlePropertyModel> myDefinitions = new IdentityHashMap<>();
+  private int myUsageCount;
+
+  /**
+   * @param coordinate the artifact to update in {@code group:name} form.
+   * @param newVersion the version to set.
+   */
+  public ArtifactVersionBump(@NotNull Project project, @NotNull String coordinate, @NotNull String newVersion) {
+    int separator = coordinate.indexOf(':');
+    if (separator < 0 || separator != coordinate.lastIndexOf(':') || separator == coordinate.length() - 1) {
+      String msg = String.format("'%1$s' is not a valid artifact coordinate, expected group:name", coordinate);
+      throw new IllegalArgumentException(msg);
+    }
+    myProject = project;
+    myGroup = separator == 0 ? null : coordinate.substring(0, separator);
+    myName = coordinate.substring(separator + 1);
+    myNewVersion = newVersion;
+  }
+
+  /**
+   * Finds the definitions of the artifact's version and updates them. This should only be called once per instance, from a background
+   * thread without read access: the build files are parsed through {@link ProjectBuildModelLoader} and the edits are made on the UI
+   * thread.
+   *
+   * @param indicator receives the progress of the parse, cancelling it stops the update before anything is written.
+   */
+  @NotNull
+  public Result run(@NotNull ProgressIndicator indicator) {
+    ProjectBuildModel projectModel = ProjectBuildModelLoader.load(myProject, indicator);
+    ProjectBuildModelLoader.runRead(indicator, () -> {
+      // Started over if a write action interrupts it.
+      myDefinitions.clear();
+      myUsageCount = 0;
+      for (GradleBuildModel buildModel : projectModel.getAllIncludedBuildModels()) {
+        collectDefinitions(buildModel.buildscript().dependencies());
+        collectDefinitions(buildModel.dependencies());
+      }
+      return null;
+    });
+
+    List<VirtualFile> writtenFiles = new ArrayList<>();
+    if (myDefinitions.isEmpty()) {
+      return new Result(myUsageCount, 0, writtenFiles);
+    }
+
+    indicator.checkCanceled();
+    String commandName = "Update " + (myGroup == null ? "" : myGroup) + ":" + myName + " to " + myNewVersion;
+    ApplicationManager.getApplication().invokeAndWait(() -> WriteCommandAction.runWriteCommandAction(myProject, commandName, null, () -> {
+      for (GradlePropertyModel definition : myDefinitions.values()) {
+        definition.setValue(myNewVersion);
+      }
+      CommitReport report = projectModel.applyChangesWithReport();
+      writtenFiles.addAll(report.getWrittenFiles());
+    }));
+    return new Result(myUsageCount, myDefinitions.size(), writtenFiles);
+  }
+
+  private void collectDefinitions(@NotNull DependenciesModel dependencies) {
+    for (ArtifactDependencyModel artifact : dependencies.artifacts()) {
+      if (!myName.equals(artifact.name().toString()) || !sameGroup(artifact.group().toString())) {
+        continue;
+      }
+      myUsageCount++;
+
+      // Edits to the version of a dependency written as a single reference, e.g "implementation libs.b", are made to what it refers to.
+      artifact.enableSetThrough();
+      GradlePropertyModel version = artifact.version().getUnresolvedModel();
+      if (!(version instanceof GradlePropertyModelImpl)) {
+        continue;
+      }
+
+      GradlePropertyModelImpl definition = PropertyUtil.resolveModel((GradlePropertyModelImpl)version);
+      if (myNewVersion.equals(definition.getValue(STRING_TYPE))) {
+        continue;
+      }
+      GradleDslElement definingElement = PropertyUtil.definingElement((GradlePropertyModelImpl)version);
+      // E.g a version that comes from the gradle.properties file in the Gradle user home, which is shared with other projects.
+      if (definingElement != null && isReadOnly(definingElement)) {
+        continue;
+      }
+      if (definingElement != null) {
+        myDefinitions.putIfAbsent(definingElement, definition);
+      }
+    }
+  }
+
+  private static boolean isReadOnly(@NotNull GradleDslElement element) {
+    GradleDslFile file = element.getDslFile();
+    return file instanceof GradlePropertiesFile && ((GradlePropertiesFile)file).isReadOnly();
+  }
+
+  private boolean sameGroup(@Nullable String group) {
+    return myGroup == null ? group == null || group.isEmpty() : myGroup.equals(group);
+  }
+
+  /**
+   * The outcome of {@link #run(ProgressIndicator)}.
+   */
+  public static final class Result {
+    private final int myUsageCount;
+    private final int myDefinitionCount;
+    @NotNull private final List<VirtualFile> myWrittenFiles;
+
+    Result(int usageCount, int definitionCount, @NotNull List<VirtualFile> writtenFiles) {
+      myUsageCount = usageCount;
+      myDefinitionCount = definitionCount;
+      myWrittenFiles = ImmutableList.copyOf(writtenFiles);
+    }
+
+    /**
+     * @return the number of dependencies on the artifact that were found.
+     */
+    public int getUsageCount() {
+      return myUsageCount;
+    }
+
+    /**
+     * @return the number of distinct version definitions that were updated.
+     */
+    public int getDefinitionCount() {
+      return myDefinitionCount;
+    }
+
+    @NotNull
+    public List<VirtualFile> getWrittenFiles() {
+      return myWrittenFiles;
+    }
+  }
+}
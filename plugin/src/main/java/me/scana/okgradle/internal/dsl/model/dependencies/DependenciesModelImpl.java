@@ -18,8 +18,10 @@ package me.scana.okgradle.internal.dsl.model.dependencies;
 import static me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel.ValueType.NONE;
 import static me.scana.okgradle.internal.dsl.model.ext.PropertyUtil.followElement;
 
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyEntry;
 import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyModel;
 import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencySpec;
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencyVisitor;
 import me.scana.okgradle.internal.dsl.api.dependencies.DependenciesModel;
 import me.scana.okgradle.internal.dsl.api.dependencies.DependencyModel;
 import me.scana.okgradle.internal.dsl.api.dependencies.FileDependencyModel;
@@ -454,10 +456,30 @@ public class DependenciesModelImpl extends GradleDslBlockModel implements Depend
     return all(null, ourArtifactFetcher);
   }
 
+  @NotNull
+  @Override
+  public List<ArtifactDependencyEntry> artifactEntries() {
+    return ArtifactEntriesCache.getEntries((DependenciesDslElement)myDslElement);
+  }
+
+  @Override
+  public void visitArtifacts(@NotNull ArtifactDependencyVisitor visitor) {
+    List<ArtifactDependencyEntry> entries = artifactEntries();
+    for (int i = 0; i < entries.size(); i++) {
+      ArtifactDependencyEntry entry = entries.get(i);
+      if (!visitor.visitArtifact(entry.getConfigurationName(), entry.getGroup(), entry.getName(), entry.getVersion(),
+                                 entry.getNotationKind())) {
+        return;
+      }
+    }
+  }
+
   @Override
   public boolean containsArtifact(@NotNull String configurationName, @NotNull ArtifactDependencySpec dependency) {
-    for (ArtifactDependencyModel artifactDependencyModel : artifacts(configurationName)) {
-      if (ArtifactDependencySpecImpl.create(artifactDependencyModel).equals(dependency)) {
+    List<ArtifactDependencyEntry> entries = artifactEntries();
+    for (int i = 0; i < entries.size(); i++) {
+      ArtifactDependencyEntry entry = entries.get(i);
+      if (entry.getConfigurationName().equals(configurationName) && entry.getCoordinates().equals(dependency)) {
         return true;
       }
     }
@@ -16,6 +16,7 @@
 package me.scana.okgradle.internal.dsl.model.ext;
 
 import me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel;
+import me.scana.okgradle.internal.dsl.api.ext.PropertyType;
 import me.scana.okgradle.internal.dsl.model.ext.GradlePropertyModelImpl;
 import me.scana.okgradle.internal.dsl.model.ext.transforms.DefaultTransform;
 import me.scana.okgradle.internal.dsl.model.ext.transforms.FileTransform;
@@ -45,8 +46,9 @@ public class PropertyUtil {
                                                                          @Nullable GradleDslElement oldElement,
                                                                          @NotNull Object value,
                                                                          @NotNull GradleNameElement name) {
-    // Check if we can reuse the element.
-    if (oldElement instanceof GradleDslLiteral) {
+    // Check if we can reuse the element, values from properties files are always set in place.
+    if (oldElement instanceof GradleDslLiteral ||
+        (oldElement instanceof GradleDslSimpleExpression && oldElement.getElementType() == PropertyType.PROPERTIES_FILE)) {
       GradleDslSimpleExpression expression = (GradleDslSimpleExpression)oldElement;
       expression.setValue(value);
       return expression;
@@ -134,6 +136,17 @@ public class PropertyUtil {
     return model;
   }
 
+  /**
+   * @return the element that defines the value of {@code model} once its references have been followed by
+   * {@link #resolveModel(GradlePropertyModelImpl)}. For fake elements this is the real element their value is derived from, so models
+   * that end up at the same definition return the same element.
+   */
+  @Nullable
+  public static GradleDslElement definingElement(@NotNull GradlePropertyModelImpl model) {
+    GradleDslElement element = resolveModel(model).getElement();
+    return element instanceof FakeElement ? ((FakeElement)element).getRealExpression() : element;
+  }
+
   /**
    * Follows references as the DslElement level to obtain the resulting element. Note: This only works
    * on GradleDslSimpleExpressions, for any expressions please use {@link #followElement(GradleDslSimpleExpression)}
@@ -15,12 +15,19 @@
  */
 package me.scana.okgradle.internal.dsl.parser;
 
+import static com.intellij.openapi.vfs.VfsUtilCore.virtualToIoFile;
+import static me.scana.okgradle.util.AndroidPluginUtils.getGradleSettingsFile;
+import static me.scana.okgradle.util.Constants.GRADLE_PROPERTIES;
+import static me.scana.okgradle.util.Constants.SETTINGS_GRADLE;
+
 import me.scana.okgradle.internal.dsl.api.BuildModelNotification;
 import me.scana.okgradle.internal.dsl.api.GradleBuildModel;
 import me.scana.okgradle.internal.dsl.api.ProjectBuildModel;
 import me.scana.okgradle.internal.dsl.model.GradlePropertiesModel;
 import me.scana.okgradle.internal.dsl.model.notifications.NotificationTypeReference;
 import me.scana.okgradle.internal.dsl.parser.DependencyManager;
+import me.scana.okgradle.internal.dsl.parser.apply.AppliedScriptGraph;
+import me.scana.okgradle.internal.dsl.parser.elements.GradlePropertiesDslElement;
 import me.scana.okgradle.internal.dsl.parser.files.GradleBuildFile;
 import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
 import me.scana.okgradle.internal.dsl.parser.files.GradleDslFileCache;
@@ -30,11 +37,29 @@ import com.google.common.collect.ClassToInstanceMap;
 import com.google.common.collect.MutableClassToInstanceMap;
 import com.intellij.openapi.module.Module;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.SimpleModificationTracker;
+import com.intellij.openapi.util.UserDataHolderEx;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import java.io.File;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.gradle.settings.GradleSettings;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -46,6 +71,16 @@ import java.util.List;
  * and {@link ProjectBuildModel#get(Project)}. This can be accessed from each of the {@link GradleDslFile}s.
  */
 public final class BuildModelContext {
+  @NonNls private static final String GRADLE_USER_HOME_MODULE_NAME = "gradleUserHome";
+  // Directories of a project that have been added as watch roots, shared between all the contexts of the project. The watches are
+  // removed when the project is disposed.
+  @NotNull
+  private static final Key<Set<String>> WATCHED_USER_HOMES = Key.create("okgradle.watched.user.homes");
+  // Incremented whenever a settings file, or a directory that may hold one, is created, deleted, moved or renamed in the VFS. Shared
+  // between all the contexts of the project.
+  @NotNull
+  private static final Key<SimpleModificationTracker> SETTINGS_FILES_TRACKER = Key.create("okgradle.settings.files.tracker");
+
   @NotNull
   private final Project myProject;
   @NotNull
@@ -54,8 +89,26 @@ public final class BuildModelContext {
   private final Map<GradleDslFile, ClassToInstanceMap<BuildModelNotification>> myNotifications = new HashMap<>();
   @NotNull
   private final DependencyManager myDependencyManager;
+  @NotNull
+  private final AppliedScriptGraph myAppliedScriptGraph;
   @Nullable
   private GradleDslFile myRootProjectFile;
+  // Files that have had elements modified since they were last applied or reset, in the order they were first modified.
+  @NotNull
+  private final Set<GradleDslFile> myModifiedFiles = new LinkedHashSet<>();
+  // Maps a directory url to the settings file that governs it. Directories without any settings file above them are not recorded, so a
+  // settings file that is created later is still found. Cleared when the settings files tracker changes.
+  @NotNull
+  private final Map<String, VirtualFile> mySettingsFilesByDirectory = new HashMap<>();
+  private long mySettingsFilesModificationCount = -1;
+  // Whether the parsers should defer converting block closures into elements until they are first accessed.
+  private boolean myLazyBlockParsing = true;
+  // The gradle.properties file in the Gradle user home, only valid once myUserHomePropertiesFileFound is set.
+  @Nullable
+  private GradlePropertiesFile myUserHomePropertiesFile;
+  private boolean myUserHomePropertiesFileFound;
+  // Incremented whenever a file's parent module or sibling file changes.
+  private long myModuleHierarchyVersion;
 
   public void setRootProjectFile(@NotNull GradleDslFile rootProjectFile) {
     myRootProjectFile = rootProjectFile;
@@ -75,6 +128,7 @@ public final class BuildModelContext {
     myProject = project;
     myFileCache = new GradleDslFileCache(project);
     myDependencyManager = DependencyManager.create();
+    myAppliedScriptGraph = new AppliedScriptGraph(this);
     myRootProjectFile = null;
   }
 
@@ -83,6 +137,11 @@ public final class BuildModelContext {
     return myDependencyManager;
   }
 
+  @NotNull
+  public AppliedScriptGraph getAppliedScriptGraph() {
+    return myAppliedScriptGraph;
+  }
+
   @NotNull
   public Project getProject() {
     return myProject;
@@ -108,11 +167,91 @@ public final class BuildModelContext {
     }
   }
 
+  public boolean isLazyBlockParsing() {
+    return myLazyBlockParsing;
+  }
+
+  /**
+   * Sets whether block closures (e.g. {@code android { ... }}) are only parsed into elements the first time they are accessed, see
+   * {@link GradlePropertiesDslElement#deferParse(Runnable)}. This only affects files that are parsed after it is called.
+   */
+  public void setLazyBlockParsing(boolean lazyBlockParsing) {
+    myLazyBlockParsing = lazyBlockParsing;
+  }
+
   /**
    * Resets the state of the build context.
    */
   public void reset() {
     myFileCache.clearAllFiles();
+    myAppliedScriptGraph.clear();
+    myDependencyManager.clear();
+    myUserHomePropertiesFile = null;
+    myUserHomePropertiesFileFound = false;
+    myModuleHierarchyVersion++;
+    mySettingsFilesByDirectory.clear();
+    myModifiedFiles.clear();
+  }
+
+  /**
+   * Records that the given file has pending element changes, this is called whenever any element within the file is modified.
+   */
+  public void markModified(@NotNull GradleDslFile file) {
+    myModifiedFiles.add(file);
+  }
+
+  /**
+   * @return the files that currently have pending changes, i.e files which had an element modified since they were last applied or
+   * reset. Files that are no longer modified are dropped from the tracked set.
+   */
+  @NotNull
+  public List<GradleDslFile> getModifiedFiles() {
+    myModifiedFiles.removeIf(file -> !file.isModified());
+    return new ArrayList<>(myModifiedFiles);
+  }
+
+  /**
+   * Finds the closest settings file in the given directory or any of its parents. Results are memoised per directory, including
+   * the directories walked through on the way up, so sibling modules only pay for the directories they don't share. Misses are not
+   * memoised, and the memo is dropped when a settings file is created, deleted, moved or renamed.
+   */
+  @Nullable
+  public VirtualFile findSettingsFile(@NotNull VirtualFile directory) {
+    long modificationCount = getSettingsFilesTracker().getModificationCount();
+    if (modificationCount != mySettingsFilesModificationCount) {
+      mySettingsFilesByDirectory.clear();
+      mySettingsFilesModificationCount = modificationCount;
+    }
+
+    List<VirtualFile> visited = new ArrayList<>();
+    VirtualFile result = null;
+    VirtualFile current = directory;
+    while (current != null) {
+      String url = current.getUrl();
+      VirtualFile cached = mySettingsFilesByDirectory.get(url);
+      if (cached != null) {
+        if (cached.isValid()) {
+          result = cached;
+          break;
+        }
+        mySettingsFilesByDirectory.remove(url);
+      }
+
+      visited.add(current);
+      VirtualFile maybeSettingsFile = getGradleSettingsFile(virtualToIoFile(current));
+      if (maybeSettingsFile != null) {
+        result = maybeSettingsFile;
+        break;
+      }
+      current = current.getParent();
+    }
+
+    if (result != null) {
+      for (VirtualFile visitedDirectory : visited) {
+        mySettingsFilesByDirectory.put(visitedDirectory.getUrl(), result);
+      }
+    }
+    return result;
   }
 
   /* The following methods are just wrappers around the same methods in GradleDslFileCache but pass this build
@@ -142,6 +281,108 @@ public final class BuildModelContext {
     return myFileCache.getOrCreatePropertiesFile(file, moduleName, this);
   }
 
+  public long getModuleHierarchyVersion() {
+    return myModuleHierarchyVersion;
+  }
+
+  /**
+   * Records that files have been connected or disconnected as parent and child modules or as siblings, see
+   * {@link me.scana.okgradle.internal.dsl.parser.files.ModuleResolutionTable}.
+   */
+  public void moduleHierarchyChanged() {
+    myModuleHierarchyVersion++;
+  }
+
+  /**
+   * @return the {@code gradle.properties} file in the Gradle user home, which is used to resolve properties before the properties files
+   * of the project. Null if there is no such file. The file is shared by every project on the machine, so its values can't be changed.
+   */
+  @Nullable
+  public GradlePropertiesFile getUserHomePropertiesFile() {
+    if (!myUserHomePropertiesFileFound) {
+      myUserHomePropertiesFileFound = true;
+      File ioFile = new File(getGradleUserHome(), GRADLE_PROPERTIES);
+      watchUserHome(ioFile.getParent());
+      VirtualFile file = LocalFileSystem.getInstance().findFileByIoFile(ioFile);
+      myUserHomePropertiesFile = file == null ? null : getOrCreatePropertiesFile(file, GRADLE_USER_HOME_MODULE_NAME);
+      if (myUserHomePropertiesFile != null) {
+        myUserHomePropertiesFile.setReadOnly();
+      }
+    }
+    return myUserHomePropertiesFile;
+  }
+
+  /**
+   * The user home is outside of the project, this asks for it to be watched so that the modification stamp of its properties file follows
+   * changes made to it.
+   */
+  @NotNull
+  private SimpleModificationTracker getSettingsFilesTracker() {
+    SimpleModificationTracker tracker = myProject.getUserData(SETTINGS_FILES_TRACKER);
+    if (tracker != null) {
+      return tracker;
+    }
+    SimpleModificationTracker newTracker = new SimpleModificationTracker();
+    tracker = ((UserDataHolderEx)myProject).putUserDataIfAbsent(SETTINGS_FILES_TRACKER, newTracker);
+    if (tracker == newTracker) {
+      myProject.getMessageBus().connect(myProject).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+        @Override
+        public void after(@NotNull List<? extends VFileEvent> events) {
+          if (events.stream().anyMatch(BuildModelContext::mayChangeSettingsFiles)) {
+            newTracker.incModificationCount();
+          }
+        }
+      });
+    }
+    return tracker;
+  }
+
+  private static boolean mayChangeSettingsFiles(@NotNull VFileEvent event) {
+    if (event instanceof VFileCreateEvent) {
+      VFileCreateEvent createEvent = (VFileCreateEvent)event;
+      // The files within a new directory don't get events of their own.
+      return createEvent.isDirectory() || SETTINGS_GRADLE.equals(createEvent.getChildName());
+    }
+    if (event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent) {
+      VirtualFile file = event.getFile();
+      return file != null && (file.isDirectory() || SETTINGS_GRADLE.equals(file.getName()));
+    }
+    if (event instanceof VFilePropertyChangeEvent) {
+      VFilePropertyChangeEvent propertyEvent = (VFilePropertyChangeEvent)event;
+      return VirtualFile.PROP_NAME.equals(propertyEvent.getPropertyName()) &&
+             (propertyEvent.getFile().isDirectory() ||
+              SETTINGS_GRADLE.equals(propertyEvent.getOldValue()) ||
+              SETTINGS_GRADLE.equals(propertyEvent.getNewValue()));
+    }
+    return false;
+  }
+
+  private void watchUserHome(@NotNull String directory) {
+    Set<String> watched = ((UserDataHolderEx)myProject).putUserDataIfAbsent(WATCHED_USER_HOMES, ConcurrentHashMap.newKeySet());
+    if (watched.add(directory)) {
+      LocalFileSystem.WatchRequest request = LocalFileSystem.getInstance().addRootToWatch(directory, false);
+      if (request != null) {
+        Disposer.register(myProject, () -> LocalFileSystem.getInstance().removeWatchedRoot(request));
+      }
+    }
+  }
+
+  /**
+   * @return the Gradle user home as Gradle would pick it, unless the IDE is set to use another one.
+   */
+  @NotNull
+  private File getGradleUserHome() {
+    String serviceDirectory = GradleSettings.getInstance(myProject).getServiceDirectoryPath();
+    if (serviceDirectory != null && !serviceDirectory.isEmpty()) {
+      return new File(serviceDirectory);
+    }
+    String path = System.getenv("GRADLE_USER_HOME");
+    if (path == null || path.isEmpty()) {
+      path = System.getProperty("gradle.user.home");
+    }
+    return path == null || path.isEmpty() ? new File(System.getProperty("user.home"), ".gradle") : new File(path);
+  }
+
   // This should normally not be used. Please use getOrCreateBuildFile
   public void putBuildFile(@NotNull String name, @NotNull GradleDslFile buildFile) {
     myFileCache.putBuildFile(name, buildFile);
@@ -151,4 +392,12 @@ public final class BuildModelContext {
   public List<GradleDslFile> getAllRequestedFiles() {
     return myFileCache.getAllFiles();
   }
+
+  /**
+   * @return the parsed contents of {@code file} if it has been requested since the context was last reset, null otherwise.
+   */
+  @Nullable
+  public GradleDslFile getRequestedFile(@NotNull VirtualFile file) {
+    return myFileCache.getFile(file);
+  }
 }
@@ -15,19 +15,34 @@
  */
 package me.scana.okgradle.internal.dsl.parser;
 
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
 import me.scana.okgradle.internal.dsl.parser.GradleReferenceInjection;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
- * Class to manage unresolved dependencies.
+ * Class to manage unresolved dependencies and to track cycles between resolved ones.
  */
 public final class DependencyManager {
-  @NotNull private final List<GradleReferenceInjection> myUnresolvedReferences = new ArrayList<>();
+  // Splits reference names such as "rootProject.ext.versions['kotlin']" into the names of the elements they go through.
+  private static final Splitter NAME_PARTS = Splitter.on(CharMatcher.anyOf(".[]'\"():,").or(CharMatcher.whitespace())).omitEmptyStrings();
+
+  // Kept in registration order, the set makes registering, unregistering and membership checks constant time.
+  @NotNull private final Set<GradleReferenceInjection> myUnresolvedReferences = new LinkedHashSet<>();
+  // The unresolved references by each of the parts of their name, only these can resolve to a newly added element with that name.
+  @NotNull private final SetMultimap<String, GradleReferenceInjection> myUnresolvedReferencesByName = LinkedHashMultimap.create();
+  @NotNull private final ReferenceCycleIndex myCycleIndex = new ReferenceCycleIndex();
 
   public static DependencyManager create() {
     return new DependencyManager();
@@ -42,7 +57,9 @@ public final class DependencyManager {
   public void registerUnresolvedReference(@NotNull GradleReferenceInjection injection) {
     // Make sure the reference is not resolved.
     assert !injection.isResolved();
-    myUnresolvedReferences.add(injection);
+    if (myUnresolvedReferences.add(injection)) {
+      NAME_PARTS.split(injection.getName()).forEach(part -> myUnresolvedReferencesByName.put(part, injection));
+    }
   }
 
   /**
@@ -51,32 +68,152 @@ public final class DependencyManager {
   public void unregisterUnresolvedReference(@NotNull GradleReferenceInjection injection) {
     // Make sure the reference is not resolved.
     assert !injection.isResolved();
-    myUnresolvedReferences.remove(injection);
+    removeUnresolvedReference(injection);
+  }
+
+  private void removeUnresolvedReference(@NotNull GradleReferenceInjection injection) {
+    if (myUnresolvedReferences.remove(injection)) {
+      NAME_PARTS.split(injection.getName()).forEach(part -> myUnresolvedReferencesByName.remove(part, injection));
+    }
+  }
+
+  /**
+   * @return the dependencies that are currently unresolved.
+   */
+  @NotNull
+  public Collection<GradleReferenceInjection> getUnresolvedReferences() {
+    return Collections.unmodifiableSet(myUnresolvedReferences);
+  }
+
+  /**
+   * @return the unresolved references that may refer to an element called {@code name}, a superset of those whose name contains it as one
+   * of its parts.
+   */
+  @NotNull
+  public Collection<GradleReferenceInjection> getUnresolvedReferences(@NotNull String name) {
+    List<String> parts = NAME_PARTS.splitToList(name);
+    if (parts.isEmpty()) {
+      return getUnresolvedReferences();
+    }
+    if (parts.size() == 1) {
+      return Collections.unmodifiableSet(myUnresolvedReferencesByName.get(parts.get(0)));
+    }
+    Set<GradleReferenceInjection> result = new LinkedHashSet<>();
+    parts.forEach(part -> result.addAll(myUnresolvedReferencesByName.get(part)));
+    return result;
   }
 
   /**
-   * Attempt to resolve dependencies related to a change in a given element.
-   * This currently just delegates to {@link #resolveAll()}
+   * Attempt to resolve the dependencies that can refer to a newly added element, or to one of the elements within it.
    *
-   * @param element the element that has triggered the attempted resolve. This is currently unused.
+   * @param element the element that has been added.
    */
   public void resolveWith(@NotNull GradleDslElement element) {
-    resolveAll();
+    Set<GradleReferenceInjection> candidates = new LinkedHashSet<>();
+    gatherCandidates(element, candidates);
+    resolve(candidates);
+  }
+
+  private void gatherCandidates(@NotNull GradleDslElement element, @NotNull Set<GradleReferenceInjection> candidates) {
+    candidates.addAll(getUnresolvedReferences(element.getName()));
+    for (GradleDslElement child : element.getChildren()) {
+      gatherCandidates(child, candidates);
+    }
   }
 
   /**
    * Attempt to resolve all of the current unresolved dependencies.
    */
   public void resolveAll() {
-    for (Iterator<GradleReferenceInjection> it = myUnresolvedReferences.iterator(); it.hasNext();) {
-      GradleReferenceInjection injection = it.next();
+    resolve(myUnresolvedReferences);
+  }
+
+  private void resolve(@NotNull Collection<GradleReferenceInjection> injections) {
+    // Resolving a reference can materialise a deferred block, which registers new references and may call back into this method,
+    // so we work on a copy and skip any injection that has been resolved in the meantime.
+    for (GradleReferenceInjection injection : new ArrayList<>(injections)) {
+      if (injection.isResolved() || !myUnresolvedReferences.contains(injection)) {
+        continue;
+      }
       // Attempt to re-resolve any references.
       GradleDslElement newElement = injection.getOriginElement().resolveReference(injection.getName(), true);
       if (newElement != null) {
         injection.resolveWith(newElement);
         newElement.registerDependent(injection);
-        it.remove();
+        removeUnresolvedReference(injection);
+      }
+    }
+  }
+
+  /**
+   * Must be called whenever a resolved injection is registered with the element it injects.
+   */
+  public void registerResolvedReference(@NotNull GradleReferenceInjection injection) {
+    GradleDslSimpleExpression target = injection.getToBeInjectedExpression();
+    if (target != null) {
+      myCycleIndex.referenceAdded(injection.getOriginElement(), target);
+    }
+  }
+
+  /**
+   * Must be called whenever a resolved injection is unregistered from the element it injects.
+   */
+  public void unregisterResolvedReference(@NotNull GradleReferenceInjection injection) {
+    myCycleIndex.referenceRemoved(injection.getOriginElement());
+  }
+
+  /**
+   * Must be called when the expression of an element changes in a way that can change its references.
+   */
+  public void expressionChanged(@NotNull GradleDslSimpleExpression element) {
+    myCycleIndex.expressionChanged(element);
+  }
+
+  /**
+   * Must be called when an element is removed from its file, or its file is parsed again, so that neither the unresolved references
+   * made from within it nor the elements it contains are kept around.
+   */
+  public void elementRemoved(@NotNull GradleDslElement element) {
+    List<GradleReferenceInjection> removed = new ArrayList<>();
+    for (GradleReferenceInjection injection : myUnresolvedReferences) {
+      if (isWithin(injection.getOriginElement(), element)) {
+        removed.add(injection);
+      }
+    }
+    removed.forEach(this::removeUnresolvedReference);
+    myCycleIndex.elementsRemoved(e -> isWithin(e, element));
+  }
+
+  /**
+   * Forgets every reference, this must be called when all the files of the context are discarded.
+   */
+  public void clear() {
+    myUnresolvedReferences.clear();
+    myUnresolvedReferencesByName.clear();
+    myCycleIndex.clear();
+  }
+
+  private static boolean isWithin(@NotNull GradleDslElement element, @NotNull GradleDslElement ancestor) {
+    for (GradleDslElement current = element; current != null; current = current.getParent()) {
+      if (current == ancestor) {
+        return true;
       }
     }
+    return false;
+  }
+
+  /**
+   * @return whether the given element is part of a cycle of references, or references an element that is.
+   */
+  public boolean hasCycle(@NotNull GradleDslSimpleExpression element) {
+    return myCycleIndex.hasCycle(element);
+  }
+
+  /**
+   * @return every cycle of references between the elements of this context, each cycle is given as the list of its elements.
+   */
+  @NotNull
+  public List<List<GradleDslSimpleExpression>> getAllCycles() {
+    return myCycleIndex.getAllCycles();
   }
 }
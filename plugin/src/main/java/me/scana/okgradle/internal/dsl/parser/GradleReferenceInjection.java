@@ -18,13 +18,11 @@ import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpressionList;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslExpressionMap;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
-import java.util.Optional;
 
 /**
  * Represents an injection of one value into another. This class links the {@link GradleDslSimpleExpression} that needs to be
@@ -93,33 +91,11 @@ public class GradleReferenceInjection {
 
   /**
    * Injects all given {@code injections} into a given {@link PsiElement}. These {@link GradleReferenceInjection}s should have been
-   * obtained using {@link GradleDslParser#getResolvedInjections(GradleDslSimpleExpression, PsiElement)}.
+   * obtained using {@link GradleDslParser#getResolvedInjections(GradleDslSimpleExpression, PsiElement)}. Callers that need the value
+   * repeatedly should keep the {@link InterpolationTemplate} instead, see {@link GradleDslSimpleExpression#getInterpolationTemplate()}.
    */
   @NotNull
   public static String injectAll(@NotNull PsiElement psiElement, @NotNull Collection<GradleReferenceInjection> injections) {
-    StringBuilder builder = new StringBuilder();
-    ApplicationManager.getApplication().runReadAction(() -> {
-      for (PsiElement element : psiElement.getChildren()) {
-        // Reference equality intended
-        Optional<GradleReferenceInjection> filteredInjection =
-          injections.stream().filter(injection -> element == injection.getPsiInjection()).findFirst();
-        if (filteredInjection.isPresent()) {
-          GradleDslSimpleExpression expression = filteredInjection.get().getToBeInjectedExpression();
-          if (expression == null) {
-            // If this injection has no expression then we are trying to inject a string or map,
-            // in this case just use the raw text from the PsiElement instead.
-            builder.append(element.getText());
-            continue;
-          }
-
-          Object value = expression.getValue();
-          builder.append(value == null ? "" : value);
-        }
-        else {
-          builder.append(element.getText());
-        }
-      }
-    });
-    return builder.toString();
+    return InterpolationTemplate.compile(psiElement, injections).render();
   }
 }
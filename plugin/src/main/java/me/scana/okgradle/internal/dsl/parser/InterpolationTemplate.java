@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.psi.PsiElement;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A compiled form of an interpolated string such as {@code "com.android.support:appcompat-v7:${supportVersion}"}. The children of the
+ * string's {@link PsiElement} are split once into literal chunks and injection slots, each slot is bound to the
+ * {@link GradleReferenceInjection} that supplies its value. Rendering the template then only needs the values of the injected
+ * elements, not the PSI, and the rendered string is reused until one of those elements is modified or re-resolved.
+ */
+public final class InterpolationTemplate {
+  @NotNull private final PsiElement mySource;
+  @NotNull private final List<GradleReferenceInjection> myInjections;
+  // Literal chunks, there is always one more chunk than there are slots: chunk 0, slot 0, chunk 1, slot 1, ..., chunk n.
+  @NotNull private final String[] myChunks;
+  @NotNull private final GradleReferenceInjection[] mySlots;
+  // Text of each slot as written in the file, used when the injection does not refer to a simple expression.
+  @NotNull private final String[] mySlotTexts;
+
+  @Nullable private String myRenderedValue;
+  @NotNull private final GradleDslSimpleExpression[] myRenderedTargets;
+  @NotNull private final long[] myRenderedModificationCounts;
+
+  private InterpolationTemplate(@NotNull PsiElement source,
+                                @NotNull List<GradleReferenceInjection> injections,
+                                @NotNull List<String> chunks,
+                                @NotNull List<GradleReferenceInjection> slots,
+                                @NotNull List<String> slotTexts) {
+    mySource = source;
+    myInjections = injections;
+    myChunks = chunks.toArray(new String[0]);
+    mySlots = slots.toArray(new GradleReferenceInjection[0]);
+    mySlotTexts = slotTexts.toArray(new String[0]);
+    myRenderedTargets = new GradleDslSimpleExpression[mySlots.length];
+    myRenderedModificationCounts = new long[mySlots.length];
+  }
+
+  /**
+   * Compiles the children of the given {@code psiElement} into a template, children that are the PSI of one of the given
+   * {@code injections} become slots and all other children are kept as literal text.
+   */
+  @NotNull
+  public static InterpolationTemplate compile(@NotNull PsiElement psiElement, @NotNull Collection<GradleReferenceInjection> injections) {
+    List<GradleReferenceInjection> injectionList = new ArrayList<>(injections);
+    List<String> chunks = new ArrayList<>();
+    List<GradleReferenceInjection> slots = new ArrayList<>();
+    List<String> slotTexts = new ArrayList<>();
+    ApplicationManager.getApplication().runReadAction(() -> {
+      StringBuilder chunk = new StringBuilder();
+      for (PsiElement element : psiElement.getChildren()) {
+        GradleReferenceInjection injection = findInjection(injectionList, element);
+        if (injection == null) {
+          chunk.append(element.getText());
+          continue;
+        }
+        chunks.add(chunk.toString());
+        chunk.setLength(0);
+        slots.add(injection);
+        slotTexts.add(element.getText());
+      }
+      chunks.add(chunk.toString());
+    });
+    return new InterpolationTemplate(psiElement, injectionList, chunks, slots, slotTexts);
+  }
+
+  /**
+   * @return whether this template was compiled from the given {@code psiElement} and exactly the given {@code injections}, if not it
+   * needs to be compiled again.
+   */
+  public boolean isCompiledFrom(@NotNull PsiElement psiElement, @NotNull List<GradleReferenceInjection> injections) {
+    if (mySource != psiElement || myInjections.size() != injections.size()) {
+      return false;
+    }
+    for (int i = 0; i < injections.size(); i++) {
+      // Reference equality intended
+      if (myInjections.get(i) != injections.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the string with the current value of each injected element substituted into its slot.
+   */
+  @NotNull
+  public String render() {
+    if (myRenderedValue != null && !slotsChanged()) {
+      return myRenderedValue;
+    }
+
+    StringBuilder builder = new StringBuilder(myChunks[0]);
+    for (int i = 0; i < mySlots.length; i++) {
+      GradleDslSimpleExpression expression = mySlots[i].getToBeInjectedExpression();
+      myRenderedTargets[i] = expression;
+      if (expression == null) {
+        // If this injection has no expression then we are trying to inject a string or map,
+        // in this case just use the raw text from the PsiElement instead.
+        builder.append(mySlotTexts[i]);
+      }
+      else {
+        myRenderedModificationCounts[i] = expression.getModificationCount();
+        Object value = expression.getValue();
+        builder.append(value == null ? "" : value);
+      }
+      builder.append(myChunks[i + 1]);
+    }
+    myRenderedValue = builder.toString();
+    return myRenderedValue;
+  }
+
+  private boolean slotsChanged() {
+    for (int i = 0; i < mySlots.length; i++) {
+      GradleDslSimpleExpression expression = mySlots[i].getToBeInjectedExpression();
+      // Reference equality intended
+      if (expression != myRenderedTargets[i]) {
+        return true;
+      }
+      if (expression != null && expression.getModificationCount() != myRenderedModificationCounts[i]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  private static GradleReferenceInjection findInjection(@NotNull List<GradleReferenceInjection> injections, @NotNull PsiElement element) {
+    for (GradleReferenceInjection injection : injections) {
+      // Reference equality intended
+      if (element == injection.getPsiInjection()) {
+        return injection;
+      }
+    }
+    return null;
+  }
+}
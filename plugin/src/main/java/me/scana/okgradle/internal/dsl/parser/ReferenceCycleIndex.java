@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser;
+
+import com.google.common.collect.ImmutableList;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Works out which {@link GradleDslSimpleExpression}s are part of, or depend on, a cycle of {@link GradleReferenceInjection}s.
+ *
+ * <p>The reference graph has an edge from the origin element of each resolved injection to the expression it injects. Strongly
+ * connected components of this graph are computed with Tarjan's algorithm, an element then has a cycle if it can reach a component
+ * that contains a cycle. Results are stored per element so queries are constant time once computed. Elements without an expression
+ * are treated as having no outgoing references, this matches the behaviour of the per-element search that this replaces.
+ *
+ * <p>The index is kept up to date incrementally by {@link DependencyManager} as injections are registered and unregistered. Changes that
+ * can't affect any computed result are ignored, everything else discards the computed results which are then recomputed on demand.
+ */
+final class ReferenceCycleIndex {
+  // Whether each analysed element reaches a cycle. Elements that are not present have not been analysed yet.
+  @NotNull private final Map<GradleDslSimpleExpression, Boolean> myReachesCycle = new HashMap<>();
+  // All components that contain a cycle found so far.
+  @NotNull private final List<List<GradleDslSimpleExpression>> myCycles = new ArrayList<>();
+  // All elements that have taken part in a reference, used to analyse the whole graph.
+  @NotNull private final Set<GradleDslSimpleExpression> myKnownElements = new LinkedHashSet<>();
+
+  boolean hasCycle(@NotNull GradleDslSimpleExpression element) {
+    Boolean result = myReachesCycle.get(element);
+    if (result == null) {
+      analyseFrom(element);
+      result = myReachesCycle.get(element);
+    }
+    return result;
+  }
+
+  @NotNull
+  List<List<GradleDslSimpleExpression>> getAllCycles() {
+    for (GradleDslSimpleExpression element : new ArrayList<>(myKnownElements)) {
+      if (!myReachesCycle.containsKey(element)) {
+        analyseFrom(element);
+      }
+    }
+    return ImmutableList.copyOf(myCycles);
+  }
+
+  void referenceAdded(@NotNull GradleDslSimpleExpression origin, @NotNull GradleDslSimpleExpression target) {
+    myKnownElements.add(origin);
+    myKnownElements.add(target);
+
+    // If the origin has not been analysed then neither has anything that can reach it.
+    Boolean originResult = myReachesCycle.get(origin);
+    if (originResult == null) {
+      return;
+    }
+
+    Boolean targetResult = myReachesCycle.get(target);
+    if (!originResult && targetResult != null && !targetResult && !reaches(target, origin)) {
+      // The new edge points at an acyclic part of the graph which can't lead back to the origin, so no new cycle can be formed.
+      return;
+    }
+    invalidate();
+  }
+
+  void referenceRemoved(@NotNull GradleDslSimpleExpression origin) {
+    // Removing an edge can only break cycles, elements that did not reach a cycle are not affected.
+    Boolean originResult = myReachesCycle.get(origin);
+    if (originResult != null && originResult) {
+      invalidate();
+    }
+  }
+
+  void expressionChanged(@NotNull GradleDslSimpleExpression element) {
+    if (myReachesCycle.containsKey(element)) {
+      invalidate();
+    }
+  }
+
+  /**
+   * Forgets the given elements, which have been removed from their files. The computed results are discarded if any of them had been
+   * analysed since cycles through them no longer exist.
+   */
+  void elementsRemoved(@NotNull Predicate<GradleDslSimpleExpression> removed) {
+    boolean analysed = false;
+    for (Iterator<GradleDslSimpleExpression> it = myKnownElements.iterator(); it.hasNext(); ) {
+      GradleDslSimpleExpression element = it.next();
+      if (removed.test(element)) {
+        it.remove();
+        analysed |= myReachesCycle.containsKey(element);
+      }
+    }
+    if (analysed) {
+      invalidate();
+    }
+  }
+
+  void clear() {
+    myKnownElements.clear();
+    invalidate();
+  }
+
+  void invalidate() {
+    myReachesCycle.clear();
+    myCycles.clear();
+  }
+
+  /**
+   * @return whether {@code to} can be reached from {@code from}. This is only called when {@code from} does not reach a cycle, so the
+   * search is over an acyclic part of the graph.
+   */
+  private static boolean reaches(@NotNull GradleDslSimpleExpression from, @NotNull GradleDslSimpleExpression to) {
+    Set<GradleDslSimpleExpression> seen = new HashSet<>();
+    Deque<GradleDslSimpleExpression> toVisit = new ArrayDeque<>();
+    toVisit.push(from);
+    while (!toVisit.isEmpty()) {
+      GradleDslSimpleExpression current = toVisit.pop();
+      if (current == to) {
+        return true;
+      }
+      if (seen.add(current)) {
+        successors(current).forEach(toVisit::push);
+      }
+    }
+    return false;
+  }
+
+  @NotNull
+  private static List<GradleDslSimpleExpression> successors(@NotNull GradleDslSimpleExpression element) {
+    if (element.getExpression() == null) {
+      return ImmutableList.of();
+    }
+    List<GradleDslSimpleExpression> result = new ArrayList<>();
+    for (GradleReferenceInjection injection : element.getResolvedVariables()) {
+      GradleDslSimpleExpression expression = injection.getToBeInjectedExpression();
+      if (expression != null) {
+        result.add(expression);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Runs Tarjan's algorithm from the given root over every element that has not been analysed yet. Analysed elements are treated as
+   * finished components since no edges leave them into unanalysed parts of the graph.
+   */
+  private void analyseFrom(@NotNull GradleDslSimpleExpression root) {
+    Map<GradleDslSimpleExpression, Integer> indices = new HashMap<>();
+    Map<GradleDslSimpleExpression, Integer> lowLinks = new HashMap<>();
+    Deque<GradleDslSimpleExpression> componentStack = new ArrayDeque<>();
+    Set<GradleDslSimpleExpression> onComponentStack = new HashSet<>();
+    Deque<Frame> callStack = new ArrayDeque<>();
+
+    int nextIndex = 0;
+    indices.put(root, nextIndex);
+    lowLinks.put(root, nextIndex++);
+    componentStack.push(root);
+    onComponentStack.add(root);
+    callStack.push(new Frame(root));
+
+    while (!callStack.isEmpty()) {
+      Frame frame = callStack.peek();
+      if (frame.mySuccessors.hasNext()) {
+        GradleDslSimpleExpression successor = frame.mySuccessors.next();
+        if (myReachesCycle.containsKey(successor)) {
+          continue;
+        }
+        if (!indices.containsKey(successor)) {
+          indices.put(successor, nextIndex);
+          lowLinks.put(successor, nextIndex++);
+          componentStack.push(successor);
+          onComponentStack.add(successor);
+          callStack.push(new Frame(successor));
+        }
+        else if (onComponentStack.contains(successor)) {
+          lowLinks.put(frame.myElement, Math.min(lowLinks.get(frame.myElement), indices.get(successor)));
+        }
+        continue;
+      }
+
+      callStack.pop();
+      Frame parent = callStack.peek();
+      if (parent != null) {
+        lowLinks.put(parent.myElement, Math.min(lowLinks.get(parent.myElement), lowLinks.get(frame.myElement)));
+      }
+
+      if (lowLinks.get(frame.myElement).equals(indices.get(frame.myElement))) {
+        List<GradleDslSimpleExpression> component = new ArrayList<>();
+        GradleDslSimpleExpression member;
+        do {
+          member = componentStack.pop();
+          onComponentStack.remove(member);
+          component.add(member);
+        }
+        while (member != frame.myElement);
+        completeComponent(component);
+      }
+    }
+  }
+
+  private void completeComponent(@NotNull List<GradleDslSimpleExpression> component) {
+    Set<GradleDslSimpleExpression> members = new HashSet<>(component);
+    boolean isCycle = false;
+    boolean reachesCycle = false;
+    for (GradleDslSimpleExpression member : component) {
+      for (GradleDslSimpleExpression successor : successors(member)) {
+        if (members.contains(successor)) {
+          // Any edge inside the component means its members form a cycle, this includes an element referencing itself.
+          isCycle = true;
+        }
+        else if (myReachesCycle.getOrDefault(successor, false)) {
+          reachesCycle = true;
+        }
+      }
+    }
+
+    if (isCycle) {
+      myCycles.add(ImmutableList.copyOf(component));
+    }
+    for (GradleDslSimpleExpression member : component) {
+      myReachesCycle.put(member, isCycle || reachesCycle);
+    }
+  }
+
+  private static final class Frame {
+    @NotNull private final GradleDslSimpleExpression myElement;
+    @NotNull private final Iterator<GradleDslSimpleExpression> mySuccessors;
+
+    private Frame(@NotNull GradleDslSimpleExpression element) {
+      myElement = element;
+      mySuccessors = successors(element).iterator();
+    }
+  }
+}
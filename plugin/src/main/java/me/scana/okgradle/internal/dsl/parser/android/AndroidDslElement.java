@@ -15,16 +15,20 @@
  */
 package me.scana.okgradle.internal.dsl.parser.android;
 
+import me.scana.okgradle.internal.dsl.model.android.VariantMatrix;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslBlockElement;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleNameElement;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public final class AndroidDslElement extends GradleDslBlockElement {
   @NonNls public static final String ANDROID_BLOCK_NAME = "android";
 
+  @Nullable private VariantMatrix myVariantMatrix;
+
   public AndroidDslElement(@NotNull GradleDslElement parent) {
     super(parent, GradleNameElement.create(ANDROID_BLOCK_NAME));
   }
@@ -37,4 +41,13 @@ public final class AndroidDslElement extends GradleDslBlockElement {
     }
     super.addParsedElement(element);
   }
+
+  @Nullable
+  public VariantMatrix getVariantMatrix() {
+    return myVariantMatrix;
+  }
+
+  public void setVariantMatrix(@Nullable VariantMatrix variantMatrix) {
+    myVariantMatrix = variantMatrix;
+  }
 }
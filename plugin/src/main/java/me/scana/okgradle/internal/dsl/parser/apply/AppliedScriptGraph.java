@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.apply;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.vfs.VirtualFile;
+import me.scana.okgradle.internal.dsl.parser.BuildModelContext;
+import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Which files of a {@link BuildModelContext} apply which scripts with {@code apply from:}.
+ *
+ * <p>Every script is parsed once per context, however many modules apply it, and its elements are then merged into each of them. An
+ * edit to one of those elements modifies the script rather than the modules that applied it, caches that depend on what a module can
+ * see use {@link #getAppliedScriptsModificationCount(GradleDslFile)} to notice that. The graph also stops a script that ends up applying
+ * itself, or the file that applied it, from being parsed over and over.
+ */
+public final class AppliedScriptGraph {
+  private static final Logger LOG = Logger.getInstance(AppliedScriptGraph.class);
+
+  @NotNull private final BuildModelContext myContext;
+  // The scripts each file applies directly, and the files that apply each script.
+  @NotNull private final Map<GradleDslFile, Set<GradleDslFile>> myAppliedScripts = new HashMap<>();
+  @NotNull private final Map<GradleDslFile, Set<GradleDslFile>> myApplyingFiles = new HashMap<>();
+  // The urls of the files whose apply statements are being parsed.
+  @NotNull private final Set<String> myParsing = new HashSet<>();
+
+  public AppliedScriptGraph(@NotNull BuildModelContext context) {
+    myContext = context;
+  }
+
+  /**
+   * Parses {@code script}, unless it has already been parsed in this context, and records that {@code applier} applies it.
+   *
+   * @return the parsed script, null if applying it would start a cycle.
+   */
+  @Nullable
+  public GradleDslFile apply(@NotNull GradleDslFile applier, @NotNull VirtualFile script) {
+    String applierUrl = applier.getFile().getUrl();
+    String scriptUrl = script.getUrl();
+    if (applierUrl.equals(scriptUrl) || myParsing.contains(scriptUrl)) {
+      LOG.warn("Ignoring cyclic 'apply from' of " + script.getPath() + " in " + applier.getFile().getPath());
+      return null;
+    }
+
+    boolean addedApplier = myParsing.add(applierUrl);
+    myParsing.add(scriptUrl);
+    GradleDslFile dslFile;
+    try {
+      dslFile = myContext.getOrCreateBuildFile(script, true);
+    }
+    finally {
+      myParsing.remove(scriptUrl);
+      if (addedApplier) {
+        myParsing.remove(applierUrl);
+      }
+    }
+
+    myAppliedScripts.computeIfAbsent(applier, file -> new LinkedHashSet<>()).add(dslFile);
+    myApplyingFiles.computeIfAbsent(dslFile, file -> new LinkedHashSet<>()).add(applier);
+    return dslFile;
+  }
+
+  /**
+   * Forgets the scripts {@code applier} applies, this is called before the file is parsed again.
+   */
+  public void removeApplier(@NotNull GradleDslFile applier) {
+    Set<GradleDslFile> scripts = myAppliedScripts.remove(applier);
+    if (scripts != null) {
+      scripts.forEach(script -> {
+        Set<GradleDslFile> applyingFiles = myApplyingFiles.get(script);
+        if (applyingFiles != null) {
+          applyingFiles.remove(applier);
+        }
+      });
+    }
+  }
+
+  /**
+   * @return the files that apply {@code script} directly.
+   */
+  @NotNull
+  public Set<GradleDslFile> getApplyingFiles(@NotNull GradleDslFile script) {
+    return Collections.unmodifiableSet(myApplyingFiles.getOrDefault(script, Collections.emptySet()));
+  }
+
+  /**
+   * @return the scripts {@code file} applies, including the ones applied by those scripts.
+   */
+  @NotNull
+  public Set<GradleDslFile> getAppliedScripts(@NotNull GradleDslFile file) {
+    Set<GradleDslFile> result = new LinkedHashSet<>();
+    Deque<GradleDslFile> toVisit = new ArrayDeque<>();
+    toVisit.add(file);
+    while (!toVisit.isEmpty()) {
+      for (GradleDslFile script : myAppliedScripts.getOrDefault(toVisit.poll(), Collections.emptySet())) {
+        if (script != file && result.add(script)) {
+          toVisit.add(script);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return a count that changes whenever any script {@code file} applies, directly or not, is modified. Modification counts only ever
+   * increase so their sum does as well.
+   */
+  public long getAppliedScriptsModificationCount(@NotNull GradleDslFile file) {
+    if (!myAppliedScripts.containsKey(file)) {
+      return 0;
+    }
+    long count = 0;
+    for (GradleDslFile script : getAppliedScripts(file)) {
+      count += script.getModificationCount();
+    }
+    return count;
+  }
+
+  public void clear() {
+    myAppliedScripts.clear();
+    myApplyingFiles.clear();
+    myParsing.clear();
+  }
+}
@@ -55,9 +55,9 @@ public class ApplyDslElement extends GradlePropertiesDslElement {
         } else {
           file = VirtualFileManager.getInstance().findFileByUrl(getDslFile().getFile().getParent() + "/" + fileName);
         }
-        if (file != null) {
-          // Parse the file
-          GradleDslFile dslFile = getDslFile().getContext().getOrCreateBuildFile(file, true);
+        // Parse the file, this is only done once per context however many files apply it.
+        GradleDslFile dslFile = file == null ? null : getDslFile().getContext().getAppliedScriptGraph().apply(getDslFile(), file);
+        if (dslFile != null) {
           myAppliedDslFiles.add(dslFile);
 
           if (myParent instanceof GradlePropertiesDslElement) {
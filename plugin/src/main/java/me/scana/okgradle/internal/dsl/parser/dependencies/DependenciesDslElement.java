@@ -15,13 +15,17 @@
  */
 package me.scana.okgradle.internal.dsl.parser.dependencies;
 
+import me.scana.okgradle.internal.dsl.model.dependencies.ArtifactEntriesCache;
 import me.scana.okgradle.internal.dsl.parser.elements.*;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class DependenciesDslElement extends GradleDslBlockElement {
   @NonNls public static final String DEPENDENCIES_BLOCK_NAME = "dependencies";
 
+  @Nullable private ArtifactEntriesCache myArtifactEntriesCache;
+
   public DependenciesDslElement(@NotNull GradleDslElement parent) {
     super(parent, GradleNameElement.create(DEPENDENCIES_BLOCK_NAME));
   }
@@ -35,4 +39,13 @@ public class DependenciesDslElement extends GradleDslBlockElement {
       super.addParsedElement(dependency);
     }
   }
+
+  @Nullable
+  public ArtifactEntriesCache getArtifactEntriesCache() {
+    return myArtifactEntriesCache;
+  }
+
+  public void setArtifactEntriesCache(@Nullable ArtifactEntriesCache cache) {
+    myArtifactEntriesCache = cache;
+  }
 }
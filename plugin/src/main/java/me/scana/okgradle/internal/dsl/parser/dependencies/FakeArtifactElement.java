@@ -15,9 +15,11 @@
  */
 package me.scana.okgradle.internal.dsl.parser.dependencies;
 
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactCoordinates;
 import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactDependencySpec;
 import me.scana.okgradle.internal.dsl.api.ext.RawText;
 import me.scana.okgradle.internal.dsl.api.ext.ReferenceTo;
+import me.scana.okgradle.internal.dsl.model.dependencies.ArtifactDependencySpecImpl;
 import me.scana.okgradle.internal.dsl.model.ext.PropertyUtil;
 import me.scana.okgradle.internal.dsl.parser.GradleReferenceInjection;
 import me.scana.okgradle.internal.dsl.parser.elements.*;
@@ -43,7 +45,7 @@ import static com.intellij.openapi.util.text.StringUtil.unquoteString;
  * its own property to provide a consistency with the map based form.
  */
 public class FakeArtifactElement extends FakeElement {
-  @NotNull private final Function<ArtifactDependencySpec, String> myGetter;
+  @NotNull private final Function<ArtifactCoordinates, String> myGetter;
   @NotNull private final BiConsumer<ArtifactDependencySpec, String> mySetter;
 
   @NotNull private static final Pattern WRAPPED_VARIABLE_FORM = Pattern.compile("\\$\\{(.*)}");
@@ -56,7 +58,7 @@ public class FakeArtifactElement extends FakeElement {
   public FakeArtifactElement(@Nullable GradleDslElement parent,
                              @NotNull GradleNameElement name,
                              @NotNull GradleDslSimpleExpression originExpression,
-                             @NotNull Function<ArtifactDependencySpec, String> getFunc,
+                             @NotNull Function<ArtifactCoordinates, String> getFunc,
                              @NotNull BiConsumer<ArtifactDependencySpec, String> setFunc,
                              boolean canDelete) {
     super(parent, name, originExpression, canDelete);
@@ -68,7 +70,7 @@ public class FakeArtifactElement extends FakeElement {
   @Nullable
   public Object extractValue() {
     GradleDslSimpleExpression resolved = PropertyUtil.resolveElement(myRealExpression);
-    ArtifactDependencySpec spec = getSpec(resolved);
+    ArtifactCoordinates spec = getSpec(resolved);
     if (spec == null) {
       return null;
     }
@@ -86,8 +88,8 @@ public class FakeArtifactElement extends FakeElement {
   protected void consumeValue(@Nullable Object value) {
     assert myCanDelete || value != null;
     GradleDslSimpleExpression resolved = PropertyUtil.resolveElement(myRealExpression);
-    ArtifactDependencySpec spec = getSpec(resolved);
-    if (spec == null) {
+    ArtifactCoordinates coordinates = getSpec(resolved);
+    if (coordinates == null) {
       throw new IllegalArgumentException("Could not create ArtifactDependencySpec from: " + value);
     }
     assert value instanceof String || value instanceof RawText || value == null;
@@ -107,6 +109,9 @@ public class FakeArtifactElement extends FakeElement {
         strValue = unquoteString((String)value);
       }
     }
+    // Parsed coordinates are shared, so the change is made to a copy.
+    ArtifactDependencySpec spec = ArtifactDependencySpec.create(coordinates.getName(), coordinates.getGroup(), coordinates.getVersion(),
+                                                                coordinates.getClassifier(), coordinates.getExtension());
     mySetter.accept(spec, strValue);
     if (shouldQuote ||
         resolved.getDslFile().getParser().shouldInterpolate(resolved)) {
@@ -167,7 +172,7 @@ public class FakeArtifactElement extends FakeElement {
   @Override
   public boolean isReference() {
     GradleDslSimpleExpression resolved = PropertyUtil.resolveElement(myRealExpression);
-    ArtifactDependencySpec spec = getSpec(resolved, false);
+    ArtifactCoordinates spec = getSpec(resolved, false);
     if (spec == null) {
       return false;
     }
@@ -183,7 +188,7 @@ public class FakeArtifactElement extends FakeElement {
   @Override
   public String getReferenceText() {
     GradleDslSimpleExpression resolved = PropertyUtil.resolveElement(myRealExpression);
-    ArtifactDependencySpec spec = getSpec(resolved, false);
+    ArtifactCoordinates spec = getSpec(resolved, false);
     if (spec == null) {
       return null;
     }
@@ -208,15 +213,15 @@ public class FakeArtifactElement extends FakeElement {
   }
 
   @Nullable
-  private static ArtifactDependencySpec getSpec(@NotNull GradleDslSimpleExpression element) {
+  private static ArtifactCoordinates getSpec(@NotNull GradleDslSimpleExpression element) {
     return getSpec(element, true);
   }
 
   @Nullable
-  private static ArtifactDependencySpec getSpec(@NotNull GradleDslSimpleExpression element, boolean useResolvedValue) {
+  private static ArtifactCoordinates getSpec(@NotNull GradleDslSimpleExpression element, boolean useResolvedValue) {
     Object val = (useResolvedValue) ? element.getValue() : element.getUnresolvedValue();
     assert val instanceof String;
     String stringValue = (String)val;
-    return ArtifactDependencySpec.create(stringValue);
+    return ArtifactDependencySpecImpl.parse(stringValue);
   }
 }
@@ -42,7 +42,9 @@ public abstract class GradleDslElementImpl implements me.scana.okgradle.internal
 
   @Nullable protected me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement myParent;
 
-  @NotNull protected List<GradlePropertiesDslElement> myHolders = new ArrayList<>();
+  // Most elements are only held by their parent, the collections below start out as shared empty lists and are only allocated once
+  // something is added to them.
+  @NotNull protected List<GradlePropertiesDslElement> myHolders = Collections.emptyList();
 
   @NotNull private final GradleDslFile myDslFile;
 
@@ -61,8 +63,8 @@ public abstract class GradleDslElementImpl implements me.scana.okgradle.internal
 
   @NotNull private PropertyType myElementType;
 
-  @NotNull protected final List<GradleReferenceInjection> myDependencies = new ArrayList<>();
-  @NotNull protected final List<GradleReferenceInjection> myDependents = new ArrayList<>();
+  @NotNull protected List<GradleReferenceInjection> myDependencies = Collections.emptyList();
+  @NotNull protected List<GradleReferenceInjection> myDependents = Collections.emptyList();
 
   /**
    * Creates an in stance of a {@link me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement}
@@ -186,6 +188,9 @@ public abstract class GradleDslElementImpl implements me.scana.okgradle.internal
 
   @Override
   public void addHolder(@NotNull GradlePropertiesDslElement holder) {
+    if (myHolders.isEmpty()) {
+      myHolders = new ArrayList<>(2);
+    }
     myHolders.add(holder);
   }
 
@@ -373,7 +378,11 @@ public abstract class GradleDslElementImpl implements me.scana.okgradle.internal
   @Override
   public void registerDependent(@NotNull GradleReferenceInjection injection) {
     assert injection.isResolved() && injection.getToBeInjected() == this;
+    if (myDependents.isEmpty()) {
+      myDependents = new ArrayList<>(2);
+    }
     myDependents.add(injection);
+    getDslFile().getContext().getDependencyManager().registerResolvedReference(injection);
   }
 
   @Override
@@ -381,18 +390,20 @@ public abstract class GradleDslElementImpl implements me.scana.okgradle.internal
     assert injection.isResolved() && injection.getToBeInjected() == this;
     assert myDependents.contains(injection);
     myDependents.remove(injection);
+    getDslFile().getContext().getDependencyManager().unregisterResolvedReference(injection);
   }
 
   @Override
   public void unregisterAllDependants() {
     // We need to create a new array to avoid concurrent modification exceptions.
     myDependents.forEach(e -> {
+      getDslFile().getContext().getDependencyManager().unregisterResolvedReference(e);
       // Break the dependency.
       e.resolveWith(null);
       // Register with DependencyManager
       getDslFile().getContext().getDependencyManager().registerUnresolvedReference(e);
     });
-    myDependents.clear();
+    myDependents = Collections.emptyList();
   }
 
   @Override
@@ -446,6 +457,7 @@ public abstract class GradleDslElementImpl implements me.scana.okgradle.internal
         toBeInjected.unregisterDependent(e);
       }
     });
+    oldElement.getDslFile().getContext().getDependencyManager().elementRemoved(oldElement);
   }
 
   @Override
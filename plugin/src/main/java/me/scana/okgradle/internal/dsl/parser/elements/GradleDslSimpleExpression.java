@@ -21,10 +21,13 @@ import me.scana.okgradle.internal.dsl.api.ext.GradlePropertyModel;
 import me.scana.okgradle.internal.dsl.api.ext.ReferenceTo;
 import me.scana.okgradle.internal.dsl.model.CachedValue;
 import me.scana.okgradle.internal.dsl.model.GradleSettingsModelImpl;
+import me.scana.okgradle.internal.dsl.parser.DependencyManager;
 import me.scana.okgradle.internal.dsl.parser.GradleReferenceInjection;
+import me.scana.okgradle.internal.dsl.parser.InterpolationTemplate;
 import me.scana.okgradle.internal.dsl.parser.buildscript.BuildScriptDslElement;
 import me.scana.okgradle.internal.dsl.parser.ext.ExtDslElement;
 import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
+import me.scana.okgradle.internal.dsl.parser.files.GradlePropertiesFile;
 import me.scana.okgradle.internal.dsl.parser.files.GradleSettingsFile;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Splitter;
@@ -33,7 +36,6 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
-import com.intellij.util.ThreeState;
 import me.scana.okgradle.util.AndroidPluginUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -61,8 +63,8 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
   @Nullable private PsiElement myUnsavedConfigBlock;
 
   @Nullable protected PsiElement myExpression;
-  // Whether or not this value is part of a cycle. If UNSURE, needs to be computed.
-  @Nullable protected ThreeState myHasCycle;
+  // Compiled form of an interpolated string expression, created by the parser when the resolved value is first needed.
+  @Nullable private InterpolationTemplate myInterpolationTemplate;
 
   @NotNull private final CachedValue<GradleDslSimpleExpression> myResolvedCachedValue;
   @NotNull private final CachedValue<GradleDslSimpleExpression> myUnresolvedCachedValue;
@@ -74,7 +76,6 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
                                       @Nullable PsiElement expression) {
     super(parent, psiElement, name);
     myExpression = expression;
-    myHasCycle = ThreeState.UNSURE;
     resolve();
     // Resolved values must be created after resolve() is called. If the debugger calls toString to trigger
     // any of the producers they will be stuck with the wrong value as dependencies have not been computed.
@@ -113,6 +114,15 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     myExpression = expression;
   }
 
+  @Nullable
+  public InterpolationTemplate getInterpolationTemplate() {
+    return myInterpolationTemplate;
+  }
+
+  public void setInterpolationTemplate(@Nullable InterpolationTemplate interpolationTemplate) {
+    myInterpolationTemplate = interpolationTemplate;
+  }
+
   @Nullable
   public final Object getValue() {
     return myResolvedCachedValue.getValue();
@@ -255,13 +265,20 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     else {
       // Search in the file that searchStartElement belongs to.
       referenceTextSegments = referenceTextSegments.subList(index, segmentCount);
-      resolvedElement = resolveReferenceInSameModule(searchStartElement, referenceTextSegments, resolveWithOrder);
+      resolvedElement = resolveReferenceOnElement(searchStartElement, referenceTextSegments, resolveWithOrder, true,
+                                                  searchStartElement.getNameElement().fullNameParts().size());
     }
 
     GradleDslFile dslFile = searchStartElement.getDslFile();
     if (resolvedElement == null) {
-      // Now look in the parent projects ext blocks.
-      resolvedElement = resolveReferenceInParentModules(dslFile, referenceTextSegments);
+      // Everything after the file itself doesn't depend on where in the file the reference is, so the result is kept in the table.
+      List<String> nameParts = referenceTextSegments;
+      ModuleResolutionTable table = ModuleResolutionTable.get(dslFile);
+      resolvedElement = table.resolve(nameParts, () -> {
+        GradleDslElement element = resolveReferenceOutsideFile(dslFile, table, nameParts);
+        // Now look in the parent projects ext blocks.
+        return element != null ? element : resolveReferenceInParentModules(table, nameParts);
+      });
     }
 
 
@@ -307,13 +324,7 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
       if (moduleDirectory == null) {
         return null;
       }
-      while (dslFile != null && !filesEqual(dslFile.getDirectoryPath(), virtualToIoFile(ProjectUtil.guessProjectDir(dslFile.getProject())))) {
-        dslFile = dslFile.getParentModuleDslFile();
-      }
-      if (dslFile == null) {
-        return null;
-      }
-      return findDslFile(dslFile, moduleDirectory); // root module dsl File.
+      return ModuleResolutionTable.get(dslFile).findModule(moduleDirectory);
     }
     return null;
   }
@@ -506,24 +517,27 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     return null;
   }
 
+  /**
+   * Looks for the reference in the properties files and the {@code buildscript} block of the module {@code dslFile} belongs to, once it
+   * wasn't found in the scope of the element that refers to it.
+   */
   @Nullable
-  private static me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement resolveReferenceInSameModule(@NotNull me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement startElement,
-                                                                                                                 @NotNull List<String> referenceText,
-                                                                                                                 boolean resolveWithOrder) {
-    // Try to resolve in the build.gradle file the startElement is belongs to.
-    me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement element =
-      resolveReferenceOnElement(startElement, referenceText, resolveWithOrder, true, startElement.getNameElement().fullNameParts().size());
-    if (element != null) {
-      return element;
-    }
-
+  private static GradleDslElement resolveReferenceOutsideFile(@NotNull GradleDslFile dslFile,
+                                                              @NotNull ModuleResolutionTable table,
+                                                              @NotNull List<String> referenceText) {
     // Join the text before looking in the properties files.
     String text = String.join(".", referenceText);
 
-    // TODO: Add support to look at <GRADLE_USER_HOME>/gradle.properties before looking at this module's gradle.properties file.
+    // Properties in <GRADLE_USER_HOME>/gradle.properties take precedence over the ones in the project.
+    GradlePropertiesFile userHomePropertiesFile = dslFile.getContext().getUserHomePropertiesFile();
+    if (userHomePropertiesFile != null) {
+      GradleDslElement userHomeElement = userHomePropertiesFile.getPropertyElement(text);
+      if (userHomeElement != null) {
+        return userHomeElement;
+      }
+    }
 
     // Try to resolve in the gradle.properties file of the startElement's module.
-    GradleDslFile dslFile = startElement.getDslFile();
     me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement propertyElement = resolveReferenceInPropertiesFile(dslFile, text);
     if (propertyElement != null) {
       return propertyElement;
@@ -539,26 +553,17 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     }
 
 
-    if (dslFile.getParentModuleDslFile() == null) {
+    if (table.getParentModules().isEmpty()) {
       return null; // This is the root project build.gradle file and there is no further path to look up.
     }
 
     // Try to resolve in the root project gradle.properties file.
-    GradleDslFile rootProjectDslFile = dslFile;
-    while (true) {
-      GradleDslFile parentModuleDslFile = rootProjectDslFile.getParentModuleDslFile();
-      if (parentModuleDslFile == null) {
-        break;
-      }
-      rootProjectDslFile = parentModuleDslFile;
-    }
-    return resolveReferenceInPropertiesFile(rootProjectDslFile, text);
+    return resolveReferenceInPropertiesFile(table.getRootModule(), text);
   }
 
   @Nullable
-  private static me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement resolveReferenceInParentModules(@NotNull GradleDslFile dslFile, @NotNull List<String> referenceText) {
-    GradleDslFile parentDslFile = dslFile.getParentModuleDslFile();
-    while (parentDslFile != null) {
+  private static me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement resolveReferenceInParentModules(@NotNull ModuleResolutionTable table, @NotNull List<String> referenceText) {
+    for (GradleDslFile parentDslFile : table.getParentModules()) {
       ExtDslElement extDslElement = parentDslFile.getPropertyElement(EXT_BLOCK_NAME, ExtDslElement.class);
       if (extDslElement != null) {
         me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement extPropertyElement = resolveReferenceOnPropertiesElement(extDslElement, referenceText, new Stack<>());
@@ -585,8 +590,6 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
       if (propertyElement != null) {
         return propertyElement;
       }
-
-      parentDslFile = parentDslFile.getParentModuleDslFile();
     }
     return null;
   }
@@ -597,84 +600,19 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     return propertiesDslFile != null ? propertiesDslFile.getPropertyElement(referenceText) : null;
   }
 
-  @Nullable
-  private static GradleDslFile findDslFile(GradleDslFile rootModuleDslFile, File moduleDirectory) {
-    if (filesEqual(rootModuleDslFile.getDirectoryPath(), moduleDirectory)) {
-      return rootModuleDslFile;
-    }
-
-    for (GradleDslFile dslFile : rootModuleDslFile.getChildModuleDslFiles()) {
-      if (filesEqual(dslFile.getDirectoryPath(), moduleDirectory)) {
-        return dslFile;
-      }
-      GradleDslFile childDslFile = findDslFile(dslFile, moduleDirectory);
-      if (childDslFile != null) {
-        return dslFile;
-      }
-    }
-    return null;
-  }
-
   /**
    * Tells the expression that the value has changed, this sets this element to modified and resets the cycle detection state.
    */
   protected void valueChanged() {
-    myHasCycle = ThreeState.UNSURE;
+    getDslFile().getContext().getDependencyManager().expressionChanged(this);
     setModified();
   }
 
   /**
-   * Works out whether or not this GradleDslSimpleExpression has a cycle.
+   * Works out whether or not this GradleDslSimpleExpression has a cycle, see {@link DependencyManager#hasCycle}.
    */
   public boolean hasCycle() {
-    if (myHasCycle != ThreeState.UNSURE) {
-      return myHasCycle == ThreeState.YES;
-    }
-    return hasCycle(this, new HashSet<>(), new HashSet<>());
-  }
-
-  private static boolean hasCycle(@NotNull GradleDslSimpleExpression element,
-                                  @NotNull Set<GradleDslSimpleExpression> seen,
-                                  @NotNull Set<GradleDslSimpleExpression> cycleFree) {
-    if (element.myHasCycle != ThreeState.UNSURE) {
-      return element.myHasCycle == ThreeState.YES;
-    }
-
-    boolean hasCycle = checkCycle(element, seen, cycleFree);
-    element.myHasCycle = hasCycle ? ThreeState.YES : ThreeState.NO;
-    return hasCycle;
-  }
-
-  private static boolean checkCycle(@NotNull GradleDslSimpleExpression element,
-                                    @NotNull Set<GradleDslSimpleExpression> seen,
-                                    @NotNull Set<GradleDslSimpleExpression> cycleFree) {
-    if (cycleFree.contains(element) || element.getExpression() == null) {
-      return false;
-    }
-
-    if (seen.contains(element)) {
-      return true;
-    }
-
-    seen.add(element);
-
-    Collection<GradleReferenceInjection> injections = element.getResolvedVariables();
-
-    for (GradleReferenceInjection injection : injections) {
-      if (injection.getToBeInjectedExpression() == null) {
-        continue;
-      }
-
-      boolean hasCycle = hasCycle(injection.getToBeInjectedExpression(), seen, cycleFree);
-      if (hasCycle) {
-        seen.remove(element);
-        return true;
-      }
-    }
-
-    seen.remove(element);
-    cycleFree.add(element);
-    return false;
+    return getDslFile().getContext().getDependencyManager().hasCycle(this);
   }
 
   @Override
@@ -697,8 +635,10 @@ public abstract class GradleDslSimpleExpression extends GradleDslElementImpl imp
     myDependencies.stream().filter(e -> e.getToBeInjected() != null).forEach(e -> e.getToBeInjected().unregisterDependent(e));
     myDependencies.stream().filter(e -> e.getToBeInjected() == null)
                   .forEach(e -> getDslFile().getContext().getDependencyManager().unregisterUnresolvedReference(e));
-    myDependencies.clear();
-    myDependencies.addAll(fetchDependencies(element));
+    // The template is bound to the old injections.
+    myInterpolationTemplate = null;
+    List<GradleReferenceInjection> dependencies = fetchDependencies(element);
+    myDependencies = dependencies.isEmpty() ? Collections.emptyList() : new ArrayList<>(dependencies);
     // Register any resolved dependencies with the elements they depend on.
     myDependencies.stream().filter(e -> e.getToBeInjected() != null).forEach(e -> e.getToBeInjected().registerDependent(e));
     myDependencies.stream().filter(e -> e.getToBeInjected() == null)
@@ -17,18 +17,22 @@ package me.scana.okgradle.internal.dsl.parser.elements;
 
 import me.scana.okgradle.internal.dsl.parser.ext.ExtDslElement;
 import com.google.common.base.Splitter;
-import com.google.common.collect.Lists;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNamedElement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class GradleNameElement {
   /**
@@ -49,19 +53,26 @@ public class GradleNameElement {
   @NotNull
   public static final Pattern INDEX_PATTERN = Pattern.compile("\\[(.+?)\\]|(.+?)(?=\\[)");
 
+  /**
+   * The same few names, e.g "implementation" or "compileSdkVersion", occur in every build file. These are shared between all name
+   * elements rather than each holding its own copy of the text.
+   */
   @NotNull
-  private final Pattern SPACES = Pattern.compile("\\s+");
+  private static final Interner<String> NAMES = Interners.newWeakInterner();
 
   @Nullable
   private PsiElement myNameElement;
+  /**
+   * The name read from {@link #myNameElement}. Fake names have no slot of their own and are kept here too, so committing a PsiElement to a
+   * fake name replaces the name it was created with, and that name stays replaced if the PsiElement is later cleared.
+   */
   @Nullable
   private String mySavedName;
   @Nullable
   private String myUnsavedName;
+  private boolean myIsFake; // Used for names that do not require a file element.
   @Nullable
-  private String myFakeName; // Used for names that do not require a file element.
-  @Nullable
-  private String myName = null; // Cached version of the final name (to be reset on any change of the above fields).
+  private NameSegments mySegments = null; // Cached split of the final name (to be reset on any change of the above fields).
 
 
   /**
@@ -87,6 +98,7 @@ public class GradleNameElement {
     return new GradleNameElement(name, true);
   }
 
+
   @NotNull
   public static GradleNameElement copy(@NotNull GradleNameElement element) { return new GradleNameElement(element); }
 
@@ -99,17 +111,18 @@ public class GradleNameElement {
 
   private GradleNameElement(@NotNull String name, boolean isFake) {
     if (isFake) {
-      myFakeName = name;
+      mySavedName = NAMES.intern(name);
+      myIsFake = true;
     }
     else {
-      myUnsavedName = name;
+      myUnsavedName = NAMES.intern(name);
     }
   }
 
   private GradleNameElement(@NotNull GradleNameElement element) {
     mySavedName = element.mySavedName;
     myUnsavedName = element.myUnsavedName;
-    myFakeName = element.myFakeName;
+    myIsFake = element.myIsFake;
   }
 
   /**
@@ -122,49 +135,33 @@ public class GradleNameElement {
 
   @NotNull
   public String fullName() {
-    List<String> parts = qualifyingParts();
-    parts.add(name());
-    return createNameFromParts(parts);
+    return segments().myFullName;
   }
 
   @NotNull
   public List<String> fullNameParts() {
-    return Splitter.on(".").splitToList(fullName());
+    return segments().myFullNameParts;
   }
 
   public static String createNameFromParts(@NotNull List<String> parts) {
     return String.join(".", parts);
   }
 
+  /**
+   * @return the unquoted segments of the name before the last one, this list must not be modified.
+   */
   @NotNull
   public List<String> qualifyingParts() {
-    String name = findName();
-    if (name == null) {
-      return Lists.newArrayList();
-    }
-
-    List<String> nameSegments = Splitter.on('.').splitToList(name);
-    // Remove the last element, which is not a qualifying part;
-    return nameSegments.subList(0, nameSegments.size() - 1).stream().map(GradleNameElement::convertNameToKey).collect(Collectors.toList());
+    return segments().myQualifyingParts;
   }
 
   public boolean isQualified() {
-    String name = findName();
-    if (name == null) {
-      return false;
-    }
-
-    return name.contains(".");
+    return !segments().myQualifyingParts.isEmpty();
   }
 
   @NotNull
   public String name() {
-    String name = findName();
-    if (name == null) {
-      return "";
-    }
-    int lastDotIndex = name.lastIndexOf('.') + 1;
-    return convertNameToKey(name.substring(lastDotIndex));
+    return segments().myName;
   }
 
   @Nullable
@@ -178,23 +175,25 @@ public class GradleNameElement {
   }
 
 
+  /**
+   * Renames an element backed by the file by setting its unsaved name. A fake name is renamed in place, as it is never written.
+   */
   public void rename(@NotNull String newName) {
     if (!isFake()) {
-      myUnsavedName = newName;
+      myUnsavedName = NAMES.intern(newName);
     }
     else {
-      myFakeName = newName;
+      mySavedName = NAMES.intern(newName);
     }
-    myName = null;
+    mySegments = null;
   }
 
   public boolean isEmpty() {
-    String name = findName();
-    return name == null || name.isEmpty();
+    return segments().myRawName.isEmpty();
   }
 
   public boolean isFake() {
-    return myNameElement == null && myFakeName != null;
+    return myNameElement == null && myIsFake;
   }
 
   @Override
@@ -209,46 +208,42 @@ public class GradleNameElement {
       return true;
     }
 
-    Matcher matcher = INDEX_PATTERN.matcher(propertyReference);
-    if (matcher.find() && matcher.groupCount() > 0) {
-      String indexName = matcher.group(0);
-      if (indexName.equals(name)) {
-        return true;
+    // The index pattern can only match references that contain an index.
+    if (propertyReference.indexOf('[') >= 0) {
+      Matcher matcher = INDEX_PATTERN.matcher(propertyReference);
+      if (matcher.find() && matcher.groupCount() > 0) {
+        String indexName = matcher.group(0);
+        if (indexName.equals(name)) {
+          return true;
+        }
       }
     }
 
-    List<String> parts = Arrays.asList(propertyReference.split("\\."));
-    if (!parts.isEmpty() && parts.get(0).equals(name)) {
-      return true;
+    // Compares the first and second dot separated parts of the reference without splitting it, a name never contains a dot.
+    if (name.isEmpty()) {
+      return false;
     }
-    if (parts.size() > 1 && parts.get(0).equals(ExtDslElement.EXT_BLOCK_NAME) && parts.get(1).equals(name)) {
+    if (isSegmentAt(propertyReference, 0, name)) {
       return true;
     }
-
-    return false;
+    String extPrefix = ExtDslElement.EXT_BLOCK_NAME + ".";
+    return propertyReference.startsWith(extPrefix) && isSegmentAt(propertyReference, extPrefix.length(), name);
   }
 
-  @Nullable
-  private String findName() {
-    if (myName != null) return myName;
-    String name = null;
-    if (myUnsavedName != null) {
-      name = myUnsavedName;
-    }
-    else if (mySavedName != null) {
-      name = mySavedName;
-    }
-
-    if (name == null && myFakeName != null) {
-      name = myFakeName;
-    }
+  private static boolean isSegmentAt(@NotNull String reference, int offset, @NotNull String segment) {
+    int end = offset + segment.length();
+    return reference.startsWith(segment, offset) && (end == reference.length() || reference.charAt(end) == '.');
+  }
 
-    if (name != null) {
-      // Remove whitespace
-      name = SPACES.matcher(name).replaceAll("");
+  @NotNull
+  private NameSegments segments() {
+    NameSegments segments = mySegments;
+    if (segments == null) {
+      String name = myUnsavedName != null ? myUnsavedName : mySavedName;
+      segments = name == null ? NameSegments.EMPTY : NameSegments.CACHE.getUnchecked(name);
+      mySegments = segments;
     }
-    myName = name;
-    return name;
+    return segments;
   }
 
   @NotNull
@@ -257,16 +252,95 @@ public class GradleNameElement {
   }
 
   /**
+   * Reads the saved name from the given PsiElement, overwriting the name a fake element was created with. A null element keeps the
+   * current saved name.
+   *
    * READ ACCESS REQUIRED.
    */
   private void setUpFrom(@Nullable PsiElement element) {
     myNameElement = element;
     if (myNameElement instanceof PsiNamedElement) {
-      mySavedName = ((PsiNamedElement)myNameElement).getName();
+      String name = ((PsiNamedElement)myNameElement).getName();
+      if (name != null) {
+        mySavedName = NAMES.intern(name);
+      }
+      else if (!myIsFake) {
+        // Fake elements fall back to the name they were created with.
+        mySavedName = null;
+      }
     }
     else if (myNameElement != null) {
-      mySavedName = myNameElement.getText();
+      mySavedName = NAMES.intern(myNameElement.getText());
+    }
+    mySegments = null;
+  }
+
+  /**
+   * A name split into its dot separated segments along with the joined forms that are derived from them. Instances are immutable and
+   * shared between all elements with the same name text, so a name is only split, unquoted and joined once however many elements
+   * carry it.
+   */
+  private static final class NameSegments {
+    @NotNull private static final NameSegments EMPTY = new NameSegments("");
+
+    @NotNull private static final LoadingCache<String, NameSegments> CACHE =
+      CacheBuilder.newBuilder().weakValues().build(CacheLoader.from(NameSegments::new));
+
+    @NotNull private final String myRawName;
+    @NotNull private final List<String> myQualifyingParts;
+    @NotNull private final String myName;
+    @NotNull private final String myFullName;
+    @NotNull private final List<String> myFullNameParts;
+
+    private NameSegments(@NotNull String name) {
+      myRawName = removeWhitespace(name);
+
+      List<String> segments = Splitter.on('.').splitToList(myRawName);
+      ImmutableList.Builder<String> qualifyingParts = ImmutableList.builder();
+      // The last segment is not a qualifying part.
+      for (int i = 0; i < segments.size() - 1; i++) {
+        qualifyingParts.add(NAMES.intern(convertNameToKey(segments.get(i))));
+      }
+      myQualifyingParts = qualifyingParts.build();
+      myName = NAMES.intern(convertNameToKey(segments.get(segments.size() - 1)));
+
+      if (myQualifyingParts.isEmpty()) {
+        myFullName = myName;
+      }
+      else {
+        List<String> parts = new ArrayList<>(myQualifyingParts);
+        parts.add(myName);
+        myFullName = NAMES.intern(createNameFromParts(parts));
+      }
+      myFullNameParts = ImmutableList.copyOf(Splitter.on('.').splitToList(myFullName).stream().map(NAMES::intern).iterator());
+    }
+
+    @NotNull
+    private static String removeWhitespace(@NotNull String name) {
+      int length = name.length();
+      int i = 0;
+      while (i < length && !isSpace(name.charAt(i))) {
+        i++;
+      }
+      if (i == length) {
+        return name;
+      }
+
+      StringBuilder result = new StringBuilder(length).append(name, 0, i);
+      for (; i < length; i++) {
+        char c = name.charAt(i);
+        if (!isSpace(c)) {
+          result.append(c);
+        }
+      }
+      return NAMES.intern(result.toString());
+    }
+
+    /**
+     * Matches the same characters as {@code \s} in a regular expression.
+     */
+    private static boolean isSpace(char c) {
+      return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
-    myName = null;
   }
 }
@@ -30,7 +30,10 @@ import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleNameElement;
 import me.scana.okgradle.internal.dsl.parser.ext.ElementSort;
 import me.scana.okgradle.internal.dsl.parser.ext.ExtDslElement;
+import me.scana.okgradle.internal.dsl.parser.files.BuildFileChangedException;
 import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
 import com.intellij.psi.PsiElement;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -58,6 +61,8 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
   @NotNull private final static Predicate<ElementList.ElementItem> ANY_FILTER = e -> true;
 
   @NotNull private final ElementList myProperties = new ElementList();
+  // Parses the contents of this block, set while the block has been recorded by the parser but not yet materialised.
+  @Nullable private Runnable myDeferredParse;
 
   protected GradlePropertiesDslElement(@Nullable me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement parent,
                                        @Nullable PsiElement psiElement,
@@ -65,6 +70,90 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
     super(parent, psiElement, name);
   }
 
+  /**
+   * Records that the contents of this block should be parsed by {@code deferredParse} the first time they are accessed rather than
+   * straight away. Blocks that are never looked at are then never converted into elements. If the block already has contents waiting
+   * to be parsed (e.g. the block appears more than once in the file) they are parsed first so that the order of the elements is kept.
+   */
+  public void deferParse(@NotNull Runnable deferredParse) {
+    Runnable previous = myDeferredParse;
+    myDeferredParse = previous == null ? deferredParse : () -> {
+      previous.run();
+      deferredParse.run();
+    };
+  }
+
+  public boolean isMaterialized() {
+    return myDeferredParse == null;
+  }
+
+  /**
+   * All access to {@code myProperties} must go through here so that deferred blocks are materialised on demand.
+   */
+  @NotNull
+  private ElementList properties() {
+    if (myDeferredParse != null) {
+      Runnable deferredParse = myDeferredParse;
+      myDeferredParse = null;
+      List<ElementList.ElementItem> existing = myProperties.snapshot();
+      try {
+        ApplicationManager.getApplication().runReadAction(deferredParse);
+      }
+      catch (ProcessCanceledException | BuildFileChangedException e) {
+        // Interrupted, e.g to let a write action run, or the file has changed since it was parsed. The block is parsed again from the
+        // start the next time it is accessed, which keeps failing in the latter case until the file is parsed again.
+        discardParsedElements(existing);
+        myProperties.restore(existing);
+        myDeferredParse = deferredParse;
+        throw e;
+      }
+      // References from the new elements to elements later in the file could not be resolved while parsing, see GradleDslFile#parse().
+      getDslFile().getContext().getDependencyManager().resolveAll();
+    }
+    return myProperties;
+  }
+
+  /**
+   * Drops what the elements added since {@code existing} was taken registered outside of this block: the references they left unresolved
+   * in the dependency manager and the dependents they added to the elements they resolved to.
+   */
+  private void discardParsedElements(@NotNull List<ElementList.ElementItem> existing) {
+    Set<ElementList.ElementItem> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+    kept.addAll(existing);
+    for (ElementList.ElementItem item : myProperties.snapshot()) {
+      if (!kept.contains(item)) {
+        unregisterResolvedVariables(item.myElement);
+        getDslFile().getContext().getDependencyManager().elementRemoved(item.myElement);
+      }
+    }
+  }
+
+  /**
+   * Like {@link GradleDslElementImpl#getResolvedVariables()} but without materialising nested blocks, those that were never parsed have
+   * not registered anything.
+   */
+  private static void unregisterResolvedVariables(@NotNull GradleDslElement element) {
+    if (element instanceof GradlePropertiesDslElement) {
+      GradlePropertiesDslElement block = (GradlePropertiesDslElement)element;
+      if (block.isMaterialized()) {
+        block.myProperties.forEach(item -> unregisterResolvedVariables(item.myElement));
+      }
+      return;
+    }
+    if (element instanceof GradleDslSimpleExpression) {
+      for (GradleReferenceInjection injection : element.getResolvedVariables()) {
+        GradleDslElement toBeInjected = injection.getToBeInjected();
+        if (toBeInjected != null) {
+          toBeInjected.unregisterDependent(injection);
+        }
+      }
+    }
+    // E.g the arguments of a method call.
+    for (GradleDslElement child : element.getChildren()) {
+      unregisterResolvedVariables(child);
+    }
+  }
+
   /**
    * Adds the given {@code property}. All additions to {@code myProperties} should be made via this function to
    * ensure that {@code myVariables} is also updated.
@@ -74,10 +163,10 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
   private void addPropertyInternal(@NotNull me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement element, @NotNull me.scana.okgradle.internal.dsl.parser.elements.ElementState state) {
     if (this instanceof ExtDslElement && state == TO_BE_ADDED) {
       int index = reorderAndMaybeGetNewIndex(element);
-      myProperties.addElementAtIndex(element, state, index, false);
+      properties().addElementAtIndex(element, state, index, false);
     }
     else {
-      myProperties.addElement(element, state, state == EXISTING);
+      properties().addElement(element, state, state == EXISTING);
     }
 
     if (state == TO_BE_ADDED) {
@@ -87,11 +176,11 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
   }
 
   public void addParsedPropertyAsFirstElement(@NotNull me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement extElement) {
-    myProperties.addElementAtIndex(extElement, EXISTING, 0, true);
+    properties().addElementAtIndex(extElement, EXISTING, 0, true);
   }
 
   private void addPropertyInternal(int index, @NotNull me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement element, @NotNull me.scana.okgradle.internal.dsl.parser.elements.ElementState state) {
-    myProperties.addElementAtIndex(element, state, index, state == EXISTING);
+    properties().addElementAtIndex(element, state, index, state == EXISTING);
     if (state == TO_BE_ADDED) {
       updateDependenciesOnAddElement(element);
       element.setModified();
@@ -104,7 +193,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
   }
 
   private void removePropertyInternal(@NotNull String property) {
-    List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> elements = myProperties.removeAll(e -> e.myElement.getName().equals(property));
+    List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> elements = properties().removeAll(e -> e.myElement.getName().equals(property));
     elements.forEach(e -> {
       e.setModified();
       updateDependenciesOnRemoveElement(e);
@@ -118,7 +207,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
    */
   private me.scana.okgradle.internal.dsl.parser.elements.ElementState removePropertyInternal(@NotNull me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement element) {
     element.setModified();
-    me.scana.okgradle.internal.dsl.parser.elements.ElementState state = myProperties.remove(element);
+    me.scana.okgradle.internal.dsl.parser.elements.ElementState state = properties().remove(element);
     updateDependenciesOnRemoveElement(element);
     return state;
   }
@@ -128,13 +217,13 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
     updateDependenciesOnReplaceElement(element, newElement);
     newElement.setModified();
 
-    me.scana.okgradle.internal.dsl.parser.elements.ElementState oldState = myProperties.replaceElement(element, newElement);
+    me.scana.okgradle.internal.dsl.parser.elements.ElementState oldState = properties().replaceElement(element, newElement);
     reorderAndMaybeGetNewIndex(newElement);
     return oldState;
   }
 
   private void hidePropertyInternal(@NotNull String property) {
-    myProperties.hideAll(e -> e.myElement.getName().equals(property));
+    properties().hideAll(e -> e.myElement.getName().equals(property));
   }
 
   public void addAppliedModelProperties(@NotNull GradleDslFile file) {
@@ -291,14 +380,14 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
 
   @NotNull
   public <T extends me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> List<T> getPropertyElements(@NotNull String name, @NotNull Class<T> clazz) {
-    return myProperties.getElementsWhere(PROPERTY_FILTER).stream()
+    return properties().getElementsWhere(PROPERTY_FILTER).stream()
                        .filter(e -> clazz.isAssignableFrom(e.getClass()) && e.getName().equals(name))
                        .map(e -> clazz.cast(e)).collect(Collectors.toList());
   }
 
   @NotNull
   public List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> getAllPropertyElements() {
-    return myProperties.getElementsWhere(PROPERTY_FILTER);
+    return properties().getElementsWhere(PROPERTY_FILTER);
   }
 
   @NotNull
@@ -313,13 +402,13 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
 
   @NotNull
   public List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> getAllElements() {
-    return myProperties.getElementsWhere(ANY_FILTER);
+    return properties().getElementsWhere(ANY_FILTER);
   }
 
   @NotNull
   private Map<String, me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> getElementsWhere(@NotNull Predicate<ElementList.ElementItem> predicate) {
     Map<String, me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> results = new LinkedHashMap<>();
-    List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> elements = myProperties.getElementsWhere(predicate);
+    List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> elements = properties().getElementsWhere(predicate);
     for (me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement element : elements) {
       if (element != null) {
         results.put(element.getName(), element);
@@ -357,7 +446,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
       return getElementWhere(property, PROPERTY_FILTER);
     }
     else {
-      return myProperties
+      return properties()
         .getElementBeforeChildWhere(e -> PROPERTY_FILTER.test(e) && e.myElement.getName().equals(property), element, includeSelf);
     }
   }
@@ -368,7 +457,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
       return getElementWhere(property, ANY_FILTER);
     }
     else {
-      return myProperties
+      return properties()
         .getElementBeforeChildWhere(e -> ANY_FILTER.test(e) && e.myElement.getName().equals(property), element, includeSelf);
     }
   }
@@ -385,29 +474,29 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
 
   @Nullable
   public <T extends me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> T getPropertyElement(@NotNull List<String> properties, @NotNull Class<T> clazz) {
-    me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement propertyElement = myProperties.getElementWhere(e -> properties.contains(e.myElement.getName()));
+    me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement propertyElement = properties().getElementWhere(e -> properties.contains(e.myElement.getName()));
     return clazz.isInstance(propertyElement) ? clazz.cast(propertyElement) : null;
   }
 
   @NotNull
   public <T extends me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> List<T> getPropertyElements(@NotNull Class<T> clazz) {
-    return myProperties.getElementsWhere(PROPERTY_FILTER).stream().filter(e -> clazz.isAssignableFrom(e.getClass())).map(e -> clazz.cast(e))
+    return properties().getElementsWhere(PROPERTY_FILTER).stream().filter(e -> clazz.isAssignableFrom(e.getClass())).map(e -> clazz.cast(e))
                        .collect(Collectors.toList());
   }
 
   @NotNull
   public List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> getPropertyElementsByName(@NotNull String propertyName) {
-    return myProperties.getElementsWhere(e -> e.myElement.getName().equals(propertyName) && PROPERTY_FILTER.test(e));
+    return properties().getElementsWhere(e -> e.myElement.getName().equals(propertyName) && PROPERTY_FILTER.test(e));
   }
 
   @NotNull
   public List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> getOriginalElements() {
-    return myProperties.myElements.stream().filter(e -> e.myExistsOnFile).map(e -> e.myElement).collect(Collectors.toList());
+    return properties().myElements.stream().filter(e -> e.myExistsOnFile).map(e -> e.myElement).collect(Collectors.toList());
   }
 
   @Nullable
   public me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement getOriginalElementForNameAndType(@NotNull String name, @NotNull PropertyType type) {
-    return myProperties.myElements.stream().filter(
+    return properties().myElements.stream().filter(
       e -> e.myElement.getName().equals(name) && e.myExistsOnFile && e.myElement.getElementType() == type).map(e -> e.myElement)
                                   .reduce((a, b) -> b).orElse(null);
   }
@@ -417,7 +506,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
    */
   @NotNull
   public List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> getCurrentElements() {
-    return myProperties.myElements.stream().filter(e -> e.myElementState == TO_BE_ADDED || e.myElementState == EXISTING)
+    return properties().myElements.stream().filter(e -> e.myElementState == TO_BE_ADDED || e.myElementState == EXISTING)
                                   .map(e -> e.myElement).collect(Collectors.toList());
   }
 
@@ -452,7 +541,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
 
   public void moveElementTo(int index, @NotNull me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement newElement) {
     assert newElement.getParent() == this;
-    myProperties.moveElementToIndex(newElement, index);
+    properties().moveElementToIndex(newElement, index);
   }
 
   @NotNull
@@ -560,7 +649,7 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
     // We need to find the element before `element` in my properties. The last one that has a psiElement, has the same name scheme as
     // the given element (to ensure that they should be placed in the same block) and much either have a state of TO_BE_ADDED or EXISTING.
     me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement lastElement = null;
-    for (ElementList.ElementItem item : myProperties.myElements) {
+    for (ElementList.ElementItem item : properties().myElements) {
       if (item.myElement == element) {
         return lastElement;
       }
@@ -609,14 +698,14 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
   @Override
   protected void apply() {
     getDslFile().getWriter().applyDslPropertiesElement(this);
-    myProperties.removeElements(me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement::delete);
-    myProperties.createElements((e) -> e.create() != null);
-    myProperties.applyElements(e -> {
+    properties().removeElements(me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement::delete);
+    properties().createElements((e) -> e.create() != null);
+    properties().applyElements(e -> {
       if (e.isModified()) {
         e.applyChanges();
       }
     });
-    myProperties.forEach(item -> {
+    properties().forEach(item -> {
       if (item.myElementState == MOVED) {
         item.myElement.move();
       }
@@ -625,10 +714,14 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
 
   @Override
   protected void reset() {
-    myProperties.reset();
+    // Blocks that have not been materialised can't have been changed.
+    if (isMaterialized()) {
+      myProperties.reset();
+    }
   }
 
   protected void clear() {
+    myDeferredParse = null;
     myProperties.clear();
   }
 
@@ -640,49 +733,40 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
 
   private int sortElementsAndMaybeGetNewIndex(@NotNull me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement element) {
     List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> currentElements =
-      myProperties.getElementsWhere(e -> e.myElementState == EXISTING || e.myElementState == TO_BE_ADDED);
-    List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> sortedElements = new ArrayList<>();
-    boolean result = ElementSort.create(this, element).sort(currentElements, sortedElements);
-    int resultIndex = myProperties.myElements.size();
+      properties().getElementsWhere(e -> e.myElementState == EXISTING || e.myElementState == TO_BE_ADDED);
+    List<me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement> sortedElements = new ArrayList<>(currentElements);
+    int index = ElementSort.create(this, element).sort(sortedElements);
 
-    if (!result) {
+    if (index < 0) {
       notification(PROPERTY_PLACEMENT);
-      return resultIndex;
+      return properties().myElements.size();
     }
 
-    int i = 0, j = 0;
-    while (i < currentElements.size() && j < sortedElements.size()) {
-      if (currentElements.get(i) == sortedElements.get(i)) {
-        i++;
-        j++;
-        continue;
+    // Only the region between the element and its last dependency can have changed, elements are moved one at a time so the positions
+    // before the one being filled stay put.
+    for (int i = 0; i < sortedElements.size(); i++) {
+      me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement sorted = sortedElements.get(i);
+      if (currentElements.get(i) != sorted) {
+        moveElementTo(i, sorted);
+        currentElements.remove(sorted);
+        currentElements.add(i, sorted);
       }
-
-      if (sortedElements.get(i) == element && !currentElements.contains(element)) {
-        resultIndex = i;
-        j++;
-        continue;
-      }
-
-      // Move the element into the correct position.
-      moveElementTo(i, sortedElements.get(j));
-      i++;
-      j++;
     }
 
-    return resultIndex;
+    // New elements that nothing refers to are added after everything else.
+    return index == currentElements.size() ? properties().myElements.size() : index;
   }
 
   @Override
   @NotNull
   public List<GradleReferenceInjection> getDependencies() {
-    return myProperties.getElementsWhere(e -> e.myElementState != APPLIED).stream().map(me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement::getDependencies)
+    return properties().getElementsWhere(e -> e.myElementState != APPLIED).stream().map(me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement::getDependencies)
                        .flatMap(Collection::stream).collect(
         Collectors.toList());
   }
 
   public boolean isApplied(@NotNull me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement element) {
-    for (ElementList.ElementItem item : myProperties.myElements) {
+    for (ElementList.ElementItem item : properties().myElements) {
       if (item.myElement == element) {
         return item.myElementState == APPLIED;
       }
@@ -720,6 +804,16 @@ public abstract class GradlePropertiesDslElement extends GradleDslElementImpl {
       myElements = new ArrayList<>();
     }
 
+    @NotNull
+    private List<ElementItem> snapshot() {
+      return new ArrayList<>(myElements);
+    }
+
+    private void restore(@NotNull List<ElementItem> snapshot) {
+      myElements.clear();
+      myElements.addAll(snapshot);
+    }
+
     private void forEach(@NotNull Consumer<ElementItem> func) {
       myElements.forEach(func);
     }
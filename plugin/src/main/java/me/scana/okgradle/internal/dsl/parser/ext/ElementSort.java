@@ -15,18 +15,23 @@
  */
 package me.scana.okgradle.internal.dsl.parser.ext;
 
+import me.scana.okgradle.internal.dsl.parser.DependencyManager;
+import me.scana.okgradle.internal.dsl.parser.GradleReferenceInjection;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
 import me.scana.okgradle.internal.dsl.parser.elements.GradlePropertiesDslElement;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Keeps the elements of a block in an order where every element comes after the elements it refers to, as Gradle evaluates them from
+ * top to bottom. The elements are expected to be in such an order already except for the one element that was added or changed, so
+ * positions in the list act as order labels and only the elements between that element and its last dependency are looked at.
+ */
 public final class ElementSort {
-  private enum State {
-    UNMARKED, TEMP_MARK, PERM_MARK
-  }
-
   @NotNull private final GradleDslElement myElement; // Element we are sorting for, used for unresolved dependencies.
   @NotNull private final GradlePropertiesDslElement myParent;
 
@@ -39,41 +44,118 @@ public final class ElementSort {
     return new ElementSort(parent, element);
   }
 
-  public boolean sort(@NotNull List<GradleDslElement> elementList, @NotNull List<GradleDslElement> resultList) {
-    Map<GradleDslElement, State> states = new HashMap<>();
-    elementList.forEach(e -> states.put(e, State.UNMARKED));
-    List<GradleDslElement> postSort = new ArrayList<>();
+  /**
+   * Moves the element being sorted for after its dependencies, along with every element between them that depends on it, directly or
+   * not. The elements that don't depend on it keep their order and move up.
+   *
+   * @param elementList the current elements of the parent, reordered in place. If the element isn't in the list it is treated as being
+   *                    inserted just before the first element that refers to it, or at the end if none do.
+   * @return the index of the element in the reordered list, i.e the index to insert it at if it isn't in the list, or -1 if it is part of
+   * a cycle of dependencies, in which case the list is left untouched.
+   */
+  public int sort(@NotNull List<GradleDslElement> elementList) {
+    return sort(elementList, myElement, this::gatherDependencies, this::gatherNewDependents);
+  }
+
+  /**
+   * The order labelling behind {@link #sort(List)}, kept apart from the elements so it can be tested on its own.
+   *
+   * @param dependencies  gives the items of the list an item refers to, an item that refers to {@code element} is expected to give it
+   *                      even if the reference can't be resolved yet.
+   * @param newDependents gives the items that will refer to {@code element} once it is added, only used if it isn't in the list.
+   */
+  static <T> int sort(@NotNull List<T> elementList,
+                      @NotNull T element,
+                      @NotNull Function<T, List<T>> dependencies,
+                      @NotNull Supplier<List<T>> newDependents) {
+    Map<T, Integer> indexes = new IdentityHashMap<>();
+    for (int i = 0; i < elementList.size(); i++) {
+      indexes.put(elementList.get(i), i);
+    }
 
-    for (GradleDslElement e : elementList) {
-      if (!visit(states, e, postSort)) {
-        return false;
+    Integer currentIndex = indexes.get(element);
+    int index = elementList.size();
+    if (currentIndex != null) {
+      index = currentIndex;
+    }
+    else {
+      for (T dependent : newDependents.get()) {
+        Integer dependentIndex = indexes.get(dependent);
+        if (dependentIndex != null) {
+          index = Math.min(index, dependentIndex);
+        }
       }
     }
 
-    resultList.clear();
-    resultList.addAll(postSort);
-    return true;
-  }
+    Set<T> elementDependencies = Collections.newSetFromMap(new IdentityHashMap<>());
+    int lastDependency = -1;
+    for (T dependency : dependencies.apply(element)) {
+      if (dependency == element) {
+        return -1;
+      }
+      Integer dependencyIndex = indexes.get(dependency);
+      if (dependencyIndex != null) {
+        elementDependencies.add(dependency);
+        lastDependency = Math.max(lastDependency, dependencyIndex);
+      }
+    }
+    if (lastDependency < index) {
+      return index;
+    }
+
+    // Dependents always come after what they depend on, so a single pass finds everything in the region that depends on the element.
+    Set<T> followers = Collections.newSetFromMap(new IdentityHashMap<>());
+    followers.add(element);
+    List<T> before = new ArrayList<>();
+    List<T> after = new ArrayList<>();
+    for (int i = currentIndex != null ? index + 1 : index; i <= lastDependency; i++) {
+      T current = elementList.get(i);
+      if (dependencies.apply(current).stream().anyMatch(followers::contains)) {
+        if (elementDependencies.contains(current)) {
+          return -1;
+        }
+        followers.add(current);
+        after.add(current);
+      }
+      else {
+        before.add(current);
+      }
+    }
 
-  private boolean visit(@NotNull Map<GradleDslElement, State> states,
-                        @NotNull GradleDslElement element,
-                        @NotNull List<GradleDslElement> postSort) {
-    if (states.get(element) == State.PERM_MARK) {
-      return true;
+    int i = index;
+    for (T current : before) {
+      elementList.set(i++, current);
+    }
+    int result = i;
+    if (currentIndex != null) {
+      elementList.set(i++, element);
     }
-    if (states.get(element) == State.TEMP_MARK) {
-      return false;
+    for (T current : after) {
+      elementList.set(i++, current);
     }
+    return result;
+  }
 
-    states.put(element, State.TEMP_MARK);
-    for (GradleDslElement item : gatherDependencies(element)) {
-      if (!visit(states, item, postSort)) {
-        return false;
+  /**
+   * @return the elements of the parent with references that can't be resolved yet and that will refer to the element once it is added.
+   */
+  @NotNull
+  private List<GradleDslElement> gatherNewDependents() {
+    List<GradleDslElement> result = new ArrayList<>();
+    DependencyManager dependencyManager = myParent.getDslFile().getContext().getDependencyManager();
+    for (GradleReferenceInjection injection : dependencyManager.getUnresolvedReferences(myElement.getName())) {
+      if (!myElement.getNameElement().containsPropertyReference(injection.getName())) {
+        continue;
+      }
+      GradleDslElement element = injection.getOriginElement();
+      while (element != null && element.getParent() != myParent) {
+        element = element.getParent();
+      }
+      if (element != null) {
+        result.add(element);
       }
     }
-    states.put(element, State.PERM_MARK);
-    postSort.add(element);
-    return true;
+    return result;
   }
 
   private List<GradleDslElement> gatherDependencies(@NotNull GradleDslElement element) {
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.files;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Thrown when the elements of a {@link GradleDslFile} no longer match its PSI because the file was modified after they were created, so
+ * pending changes can't be written and blocks whose parsing was deferred can't be parsed. The changes are left pending, the file needs
+ * to be parsed again before it can be used.
+ */
+public final class BuildFileChangedException extends IllegalStateException {
+  @NotNull private final VirtualFile myFile;
+
+  public BuildFileChangedException(@NotNull VirtualFile file) {
+    super(file.getPath() + " was modified after it was parsed");
+    myFile = file;
+  }
+
+  @NotNull
+  public VirtualFile getFile() {
+    return myFile;
+  }
+}
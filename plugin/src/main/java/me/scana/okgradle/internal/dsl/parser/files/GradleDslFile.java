@@ -15,7 +15,6 @@
  */
 package me.scana.okgradle.internal.dsl.parser.files;
 
-import static me.scana.okgradle.util.AndroidPluginUtils.getGradleSettingsFile;
 import static com.intellij.openapi.vfs.VfsUtilCore.virtualToIoFile;
 
 import me.scana.okgradle.internal.dsl.api.BuildModelNotification;
@@ -35,13 +34,17 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
+import com.intellij.psi.codeStyle.CodeStyleManager;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
 import org.jetbrains.annotations.NotNull;
@@ -63,6 +66,14 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
 
   @Nullable private ApplyDslElement myApplyDslElement;
   @NotNull private final BuildModelContext myBuildModelContext;
+  @Nullable private ModuleResolutionTable myResolutionTable;
+  // The modification stamp of the PsiFile when the elements were parsed or this model last wrote to it, blocks that are parsed on first
+  // access would no longer match the rest of the elements if the PSI has been changed by anything else since.
+  private long myPsiModificationStamp = -1;
+  // Set while this model writes its changes to the PSI, the PSI only changes where the written elements are.
+  private boolean myApplying;
+  // PsiElements inserted by the writer since the file was last saved, only their text is reformatted when it is.
+  @NotNull private final List<PsiElement> myWrittenPsiElements = new ArrayList<>();
 
   protected GradleDslFile(@NotNull VirtualFile file,
                           @NotNull Project project,
@@ -99,6 +110,8 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
    * (for example, after making changes to the PSI elements.)
    */
   public void reparse() {
+    myBuildModelContext.getAppliedScriptGraph().removeApplier(this);
+    myBuildModelContext.getDependencyManager().elementRemoved(this);
     clear();
     parse();
   }
@@ -116,6 +129,11 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
     // When key1 is parsed it can't find ext.vars.key. This is a bug with the parser that should be fixed in the future.
     // For now however we call resolveAll() here.
     getContext().getDependencyManager().resolveAll();
+    // References looked up while parsing may not have found elements that were parsed after them, and the resolution tables that
+    // remembered this are only discarded once one of their files is modified. The elements match the file so it isn't modified.
+    modify();
+    commit();
+    recordPsiModificationStamp();
   }
 
   @NotNull
@@ -141,6 +159,18 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
   public void setParentModuleDslFile(@NotNull GradleDslFile parentModuleDslFile) {
     myParentModuleDslFile = parentModuleDslFile;
     myParentModuleDslFile.myChildModuleDslFiles.add(this);
+    myBuildModelContext.moduleHierarchyChanged();
+  }
+
+  /**
+   * Undoes {@link #setParentModuleDslFile(GradleDslFile)}.
+   */
+  public void detachFromParentModuleDslFile() {
+    if (myParentModuleDslFile != null) {
+      myParentModuleDslFile.myChildModuleDslFiles.remove(this);
+      myParentModuleDslFile = null;
+      myBuildModelContext.moduleHierarchyChanged();
+    }
   }
 
   @Nullable
@@ -160,6 +190,7 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
    */
   public void setSiblingDslFile(@NotNull GradleDslFile siblingDslFile) {
     mySiblingDslFile = siblingDslFile;
+    myBuildModelContext.moduleHierarchyChanged();
   }
 
   /**
@@ -172,6 +203,25 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
     return mySiblingDslFile;
   }
 
+  /**
+   * Use {@link ModuleResolutionTable#get(GradleDslFile)} rather than this, it checks whether the table is still valid.
+   */
+  @Nullable
+  ModuleResolutionTable getResolutionTable() {
+    return myResolutionTable;
+  }
+
+  void setResolutionTable(@Nullable ModuleResolutionTable resolutionTable) {
+    myResolutionTable = resolutionTable;
+  }
+
+  @Override
+  protected void reset() {
+    super.reset();
+    // Elements added since the last commit are gone, bump the count so no resolution table still returns them.
+    modify();
+  }
+
   @NotNull
   public GradleDslWriter getWriter() {
     return myGradleDslWriter;
@@ -187,6 +237,13 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
     return myBuildModelContext;
   }
 
+  @Override
+  public void setModified() {
+    super.setModified();
+    // All modifications of elements in this file end up here, use this to let the context know this file needs to be written.
+    myBuildModelContext.markModified(this);
+  }
+
   @Override
   protected void apply() {
     // First make sure we update all our applied files.
@@ -197,7 +254,31 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
     }
 
     // And update us.
-    super.apply();
+    myApplying = true;
+    try {
+      super.apply();
+    }
+    finally {
+      myApplying = false;
+    }
+    recordPsiModificationStamp();
+  }
+
+  private void recordPsiModificationStamp() {
+    PsiElement psiFile = getPsiElement();
+    myPsiModificationStamp = psiFile instanceof PsiFile ? ((PsiFile)psiFile).getModificationStamp() : -1;
+  }
+
+  /**
+   * @return whether the PSI of the file has been changed by anything other than this model since its elements were parsed, in which case
+   * blocks whose parsing was deferred can no longer be parsed consistently with the rest of the elements.
+   */
+  public boolean isPsiChangedSinceParse() {
+    if (myApplying) {
+      return false;
+    }
+    PsiElement psiFile = getPsiElement();
+    return psiFile instanceof PsiFile && ((PsiFile)psiFile).getModificationStamp() != myPsiModificationStamp;
   }
 
   public void registerApplyElement(@NotNull ApplyDslElement applyElement) {
@@ -228,9 +309,54 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
     if (psiDocumentManager.isDocumentBlockedByPsi(document)) {
       psiDocumentManager.doPostponedOperationsAndUnblockDocument(document);
     }
+    formatWrittenRanges((PsiFile)element);
 
     // Save the file to disk to ensure the changes exist when it is read.
     FileDocumentManager.getInstance().saveDocument(document);
+    recordPsiModificationStamp();
+  }
+
+  /**
+   * Records that {@code element} was inserted into this file, the writer calls this for each statement, block or closure it adds or
+   * moves so that only their text needs to be reformatted.
+   */
+  public void recordWrittenPsiElement(@NotNull PsiElement element) {
+    myWrittenPsiElements.add(element);
+  }
+
+  /**
+   * Reformats and reindents the text of the elements recorded by {@link #recordWrittenPsiElement} that are still in the file, the rest of
+   * the file is left as it is.
+   */
+  private void formatWrittenRanges(@NotNull PsiFile psiFile) {
+    if (myWrittenPsiElements.isEmpty()) {
+      return;
+    }
+
+    List<TextRange> ranges = new ArrayList<>();
+    for (PsiElement written : myWrittenPsiElements) {
+      if (written.isValid() && written.getContainingFile() == psiFile) {
+        ranges.add(written.getTextRange());
+      }
+    }
+    myWrittenPsiElements.clear();
+    if (ranges.isEmpty()) {
+      return;
+    }
+
+    // Elements are often written inside other written elements, the formatter should only see each piece of text once.
+    ranges.sort(Comparator.comparingInt(TextRange::getStartOffset));
+    List<TextRange> merged = new ArrayList<>();
+    for (TextRange range : ranges) {
+      int last = merged.size() - 1;
+      if (last >= 0 && merged.get(last).getEndOffset() >= range.getStartOffset()) {
+        merged.set(last, merged.get(last).union(range));
+      }
+      else {
+        merged.add(range);
+      }
+    }
+    CodeStyleManager.getInstance(getProject()).reformatText(psiFile, merged);
   }
 
   @Nullable
@@ -240,13 +366,9 @@ public abstract class GradleDslFile extends GradlePropertiesDslElement {
     }
 
     VirtualFile buildFileParent = getFile().getParent();
-    while (buildFileParent != null) {
-      VirtualFile maybeSettingsFile = getGradleSettingsFile(virtualToIoFile(buildFileParent));
-      if (maybeSettingsFile != null) {
-        return maybeSettingsFile;
-      }
-      buildFileParent = buildFileParent.getParent();
+    if (buildFileParent == null) {
+      return null;
     }
-    return null;
+    return myBuildModelContext.findSettingsFile(buildFileParent);
   }
 }
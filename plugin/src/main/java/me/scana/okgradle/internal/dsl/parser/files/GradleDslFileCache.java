@@ -25,16 +25,13 @@ import me.scana.okgradle.internal.dsl.parser.files.GradleBuildFile;
 import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
 import me.scana.okgradle.internal.dsl.parser.files.GradlePropertiesFile;
 import me.scana.okgradle.internal.dsl.parser.files.GradleSettingsFile;
-import com.google.common.base.Charsets;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -109,8 +106,7 @@ public class GradleDslFileCache {
     me.scana.okgradle.internal.dsl.parser.files.GradleDslFile dslFile = myParsedBuildFiles.get(file.getUrl());
     if (dslFile == null) {
       try {
-        Properties properties = getProperties(file);
-        dslFile = new GradlePropertiesFile(properties, file, myProject, moduleName, context);
+        dslFile = new GradlePropertiesFile(PropertiesFileContent.load(file), file, myProject, moduleName, context);
         myParsedBuildFiles.put(file.getUrl(), dslFile);
       } catch (IOException e) {
         LOG.warn("Failed to process properties file " + file.getPath(), e);
@@ -123,10 +119,9 @@ public class GradleDslFileCache {
     return (GradlePropertiesFile)dslFile;
   }
 
-  private static Properties getProperties(@NotNull VirtualFile file) throws IOException {
-    Properties properties = new Properties();
-    properties.load(new InputStreamReader(file.getInputStream(), Charsets.UTF_8));
-    return properties;
+  @Nullable
+  public GradleDslFile getFile(@NotNull VirtualFile file) {
+    return myParsedBuildFiles.get(file.getUrl());
   }
 
   @NotNull
@@ -22,26 +22,49 @@ import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleNameElement;
 import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
 import com.google.common.collect.ImmutableList;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.*;
 
 import static me.scana.okgradle.internal.dsl.api.ext.PropertyType.PROPERTIES_FILE;
 
 public final class GradlePropertiesFile extends GradleDslFile {
+  private static final Logger LOG = Logger.getInstance(GradlePropertiesFile.class);
+
+  @NotNull
+  private final PropertiesFileContent myContent;
+  // Elements are created the first time their key is looked up and then reused, so they keep any pending changes.
   @NotNull
-  private final Properties myProperties;
+  private final Map<String, GradlePropertyElement> myPropertyElements = new HashMap<>();
+  // Set for files outside of the project, e.g the one in the Gradle user home, whose values are only used for resolution.
+  private boolean myReadOnly;
 
-  public GradlePropertiesFile(@NotNull Properties properties,
+  public GradlePropertiesFile(@NotNull PropertiesFileContent content,
                               @NotNull VirtualFile file,
                               @NotNull Project project,
                               @NotNull String moduleName,
                               @NotNull BuildModelContext context) {
     super(file, project, moduleName, context);
-    myProperties = properties;
+    myContent = content;
+  }
+
+  /**
+   * Stops the values of this file from being changed, setting one throws an {@link UnsupportedOperationException}.
+   */
+  public void setReadOnly() {
+    myReadOnly = true;
+  }
+
+  public boolean isReadOnly() {
+    return myReadOnly;
   }
 
   @Override
@@ -58,21 +81,23 @@ public final class GradlePropertiesFile extends GradleDslFile {
   @Override
   @Nullable
   public GradleDslSimpleExpression getPropertyElement(@NotNull String property) {
-    String value = myProperties.getProperty(property);
-    if (value == null) {
-      return null;
+    GradlePropertyElement propertyElement = myPropertyElements.get(property);
+    if (propertyElement == null) {
+      String value = myContent.getValue(property);
+      if (value == null) {
+        return null;
+      }
+      propertyElement = new GradlePropertyElement(this, GradleNameElement.fake(property), value);
+      myPropertyElements.put(property, propertyElement);
     }
-
-    GradlePropertyElement propertyElement = new GradlePropertyElement(this, GradleNameElement.fake(property));
-    propertyElement.setValue(value);
     return propertyElement;
   }
 
   @Override
   @NotNull
   public Map<String, GradleDslElement> getPropertyElements() {
-    Map<String, GradleDslElement> results = new HashMap<>();
-    for (String name : myProperties.stringPropertyNames()) {
+    Map<String, GradleDslElement> results = new LinkedHashMap<>();
+    for (String name : myContent.getValues().keySet()) {
       results.put(name, getPropertyElement(name));
     }
     return results;
@@ -91,12 +116,83 @@ public final class GradlePropertiesFile extends GradleDslFile {
     return new GradleDslWriter.Adapter();
   }
 
+  /**
+   * Writes the changed values into the document of the file. Only the text of each changed value is replaced, the rest of the file,
+   * including comments and the order of the entries, is left as it is.
+   */
+  @Override
+  protected void apply() {
+    if (myReadOnly) {
+      return;
+    }
+    Document document = FileDocumentManager.getInstance().getDocument(getFile());
+    if (document == null) {
+      return;
+    }
+
+    PropertiesFileContent current;
+    try {
+      current = PropertiesFileContent.load(getFile());
+    }
+    catch (IOException e) {
+      LOG.warn("Failed to read properties file " + getFile().getPath(), e);
+      return;
+    }
+
+    // Replace from the end of the file so that the ranges of the values that are still to be replaced stay valid.
+    List<GradlePropertyElement> changed = new ArrayList<>();
+    myPropertyElements.values().forEach(element -> {
+      if (element.isModified()) {
+        changed.add(element);
+      }
+    });
+    List<TextRange> ranges = new ArrayList<>();
+    List<String> values = new ArrayList<>();
+    List<GradlePropertyElement> written = new ArrayList<>();
+    for (GradlePropertyElement element : changed) {
+      TextRange range = current.getValueRange(element.getName());
+      if (range == null) {
+        LOG.warn("Can't update " + element.getName() + " in " + getFile().getPath() + ", it isn't written on a single line");
+        continue;
+      }
+      int index = 0;
+      while (index < ranges.size() && ranges.get(index).getStartOffset() > range.getStartOffset()) {
+        index++;
+      }
+      ranges.add(index, range);
+      values.add(index, PropertiesFileContent.escapeValue(String.valueOf(element.getValue())));
+      written.add(element);
+    }
+    for (int i = 0; i < ranges.size(); i++) {
+      document.replaceString(ranges.get(i).getStartOffset(), ranges.get(i).getEndOffset(), values.get(i));
+    }
+    // Values that couldn't be written keep their changes.
+    written.forEach(GradlePropertyElement::written);
+  }
+
+  @Override
+  protected void reset() {
+    myPropertyElements.values().forEach(element -> element.resetState());
+  }
+
+  @Override
+  public void saveAllChanges() {
+    Document document = FileDocumentManager.getInstance().getCachedDocument(getFile());
+    if (document != null) {
+      FileDocumentManager.getInstance().saveDocument(document);
+    }
+  }
+
   private static class GradlePropertyElement extends GradleDslSimpleExpression {
+    // The value in the file as of the last time it was read or written.
+    @Nullable private Object myOriginalValue;
     @Nullable private Object myValue;
 
-    private GradlePropertyElement(@Nullable GradleDslElement parent, @NotNull GradleNameElement name) {
+    private GradlePropertyElement(@Nullable GradleDslElement parent, @NotNull GradleNameElement name, @NotNull Object value) {
       super(parent, null, name, null);
       setElementType(PROPERTIES_FILE);
+      myOriginalValue = value;
+      myValue = value;
     }
 
     @Override
@@ -129,6 +225,10 @@ public final class GradlePropertiesFile extends GradleDslFile {
 
     @Override
     public void setValue(@NotNull Object value) {
+      GradlePropertiesFile file = (GradlePropertiesFile)getDslFile();
+      if (file.isReadOnly()) {
+        throw new UnsupportedOperationException("Can't set " + getName() + ", " + file.getFile().getPath() + " is read-only");
+      }
       myValue = value;
       valueChanged();
     }
@@ -142,8 +242,8 @@ public final class GradlePropertiesFile extends GradleDslFile {
     @NotNull
     @Override
     public GradleDslSimpleExpression copy() {
-      GradlePropertyElement element = new GradlePropertyElement(myParent, GradleNameElement.copy(myName));
-      element.myValue = myValue;
+      GradlePropertyElement element = new GradlePropertyElement(myParent, GradleNameElement.copy(myName), myValue);
+      element.myOriginalValue = myOriginalValue;
       return element;
     }
 
@@ -155,7 +255,18 @@ public final class GradlePropertiesFile extends GradleDslFile {
 
     @Override
     protected void apply() {
-      // There is nothing to apply here as this is just a dummy dsl element to represent a property.
+      // Values are written by the file, see GradlePropertiesFile#apply().
+    }
+
+    @Override
+    protected void reset() {
+      super.reset();
+      myValue = myOriginalValue;
+    }
+
+    private void written() {
+      myOriginalValue = myValue;
+      commit();
     }
   }
-}
\ No newline at end of file
+}
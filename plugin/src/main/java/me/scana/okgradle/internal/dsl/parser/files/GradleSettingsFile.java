@@ -15,6 +15,8 @@
  */
 package me.scana.okgradle.internal.dsl.parser.files;
 
+import me.scana.okgradle.internal.dsl.model.CachedValue;
+import me.scana.okgradle.internal.dsl.model.ModulePathIndex;
 import me.scana.okgradle.internal.dsl.parser.BuildModelContext;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
 import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
@@ -25,11 +27,37 @@ import org.jetbrains.annotations.NotNull;
 import static me.scana.okgradle.internal.dsl.model.GradleSettingsModelImpl.INCLUDE;
 
 public class GradleSettingsFile extends GradleDslFile {
+  @NotNull private final CachedValue<GradleSettingsFile> myModulePathIndex;
+
   public GradleSettingsFile(@NotNull VirtualFile file,
                             @NotNull Project project,
                             @NotNull String moduleName,
                             @NotNull BuildModelContext context) {
     super(file, project, moduleName, context);
+    myModulePathIndex = new CachedValue<>(this, ModulePathIndex::build);
+  }
+
+  /**
+   * @return the index of module paths to module directories for this settings file, this is rebuilt only when the file has been
+   * modified since the index was last requested.
+   */
+  @NotNull
+  public ModulePathIndex getModulePathIndex() {
+    ModulePathIndex index = (ModulePathIndex)myModulePathIndex.getValue();
+    assert index != null;
+    return index;
+  }
+
+  @Override
+  public void reparse() {
+    myModulePathIndex.clear();
+    super.reparse();
+  }
+
+  @Override
+  protected void reset() {
+    super.reset();
+    myModulePathIndex.clear();
   }
 
   @Override
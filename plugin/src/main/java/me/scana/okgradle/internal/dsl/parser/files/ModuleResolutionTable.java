@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.files;
+
+import com.google.common.collect.ImmutableList;
+import me.scana.okgradle.internal.dsl.model.ModulePathIndex;
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The part of the reference resolution order of a {@link GradleDslFile} that lies outside of the file itself, i.e the Gradle user home
+ * and module {@code gradle.properties} files, the {@code buildscript} block and the {@code ext} blocks, {@code buildscript} blocks and
+ * properties files of the parent modules.
+ *
+ * <p>Resolving a reference that isn't defined in the file itself walks all of these, and a build file usually contains many such
+ * references to the same few properties. The table keeps the parent modules of the file and remembers the element each reference
+ * resolved to, or that it didn't resolve, in a single map. The map is cleared when any of the files that took part in the lookups has
+ * been modified, including the scripts they apply, or the module hierarchy of the context changed.
+ */
+public final class ModuleResolutionTable {
+  @NotNull private final GradleDslFile myFile;
+  @NotNull private final List<GradleDslFile> myParentModules = new ArrayList<>();
+  @NotNull private final GradleDslFile myRootModule;
+  @NotNull private final ResolvedReferences myResolved = new ResolvedReferences();
+  // The files whose elements can be returned by the lookups, and their modification counts when the table was built.
+  @NotNull private final GradleDslFile[] myContributors;
+  @NotNull private final long[] myModificationCounts;
+  private final long myHierarchyVersion;
+  // Module directory paths to the files found below myRootModule, built on first use.
+  @Nullable private Map<String, GradleDslFile> myModulesByDirectory;
+
+  private ModuleResolutionTable(@NotNull GradleDslFile file) {
+    myFile = file;
+    myHierarchyVersion = file.getContext().getModuleHierarchyVersion();
+
+    GradleDslFile root = file;
+    for (GradleDslFile parent = file.getParentModuleDslFile(); parent != null; parent = parent.getParentModuleDslFile()) {
+      myParentModules.add(parent);
+      root = parent;
+    }
+    myRootModule = root;
+
+    List<GradleDslFile> contributors = new ArrayList<>();
+    addWithSibling(contributors, file);
+    myParentModules.forEach(parent -> addWithSibling(contributors, parent));
+    GradleDslFile userHomeProperties = file.getContext().getUserHomePropertiesFile();
+    if (userHomeProperties != null) {
+      contributors.add(userHomeProperties);
+    }
+    myContributors = contributors.toArray(new GradleDslFile[0]);
+    myModificationCounts = new long[myContributors.length];
+    for (int i = 0; i < myContributors.length; i++) {
+      myModificationCounts[i] = myContributors[i].getModificationCount();
+    }
+  }
+
+  private static void addWithSibling(@NotNull List<GradleDslFile> contributors, @NotNull GradleDslFile file) {
+    contributors.add(file);
+    GradleDslFile sibling = file.getSiblingDslFile();
+    if (sibling != null) {
+      contributors.add(sibling);
+    }
+    // Elements merged in from applied scripts are modified through the script, not the file.
+    contributors.addAll(file.getContext().getAppliedScriptGraph().getAppliedScripts(file));
+  }
+
+  /**
+   * @return the table of {@code file}, rebuilt if it has changed since it was last requested.
+   */
+  @NotNull
+  public static ModuleResolutionTable get(@NotNull GradleDslFile file) {
+    ModuleResolutionTable table = file.getResolutionTable();
+    if (table == null || !table.isValid()) {
+      table = new ModuleResolutionTable(file);
+      file.setResolutionTable(table);
+    }
+    return table;
+  }
+
+  private boolean isValid() {
+    if (myHierarchyVersion != myFile.getContext().getModuleHierarchyVersion()) {
+      return false;
+    }
+    for (int i = 0; i < myContributors.length; i++) {
+      if (myModificationCounts[i] != myContributors[i].getModificationCount()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the parent modules of the file, closest first.
+   */
+  @NotNull
+  public List<GradleDslFile> getParentModules() {
+    return myParentModules;
+  }
+
+  /**
+   * @return the topmost parent module of the file, or the file itself if it has no parent.
+   */
+  @NotNull
+  public GradleDslFile getRootModule() {
+    return myRootModule;
+  }
+
+  /**
+   * @return the file of the module in {@code directory} among the root module and the modules below it, null if it hasn't been parsed.
+   */
+  @Nullable
+  public GradleDslFile findModule(@NotNull File directory) {
+    if (myModulesByDirectory == null) {
+      myModulesByDirectory = indexByDirectory(myRootModule, GradleDslFile::getDirectoryPath, GradleDslFile::getChildModuleDslFiles);
+    }
+    return myModulesByDirectory.get(ModulePathIndex.directoryKey(directory));
+  }
+
+  /**
+   * @return {@code root} and all the modules below it, at any depth, by the {@link ModulePathIndex#directoryKey(File)} of their
+   * directory, the same key the settings file uses to look up the module path of a directory. If two modules share a directory the one
+   * closer to the root is kept.
+   */
+  @NotNull
+  static <T> Map<String, T> indexByDirectory(@NotNull T root,
+                                             @NotNull Function<T, File> directory,
+                                             @NotNull Function<T, Collection<T>> children) {
+    Map<String, T> modules = new HashMap<>();
+    Deque<T> queue = new ArrayDeque<>();
+    queue.add(root);
+    while (!queue.isEmpty()) {
+      T module = queue.poll();
+      modules.putIfAbsent(ModulePathIndex.directoryKey(directory.apply(module)), module);
+      queue.addAll(children.apply(module));
+    }
+    return modules;
+  }
+
+  /**
+   * @return the element the reference made up of {@code nameParts} resolves to outside of the file, computed by {@code lookup} the first
+   * time it is asked for.
+   */
+  @Nullable
+  public GradleDslElement resolve(@NotNull List<String> nameParts, @NotNull Supplier<GradleDslElement> lookup) {
+    return myResolved.resolve(nameParts, lookup);
+  }
+
+  /**
+   * The elements references resolved to, including the references that didn't resolve.
+   */
+  static final class ResolvedReferences {
+    private static final Object NOT_FOUND = new Object();
+
+    @NotNull private final Map<List<String>, Object> myResolved = new HashMap<>();
+
+    @Nullable
+    GradleDslElement resolve(@NotNull List<String> nameParts, @NotNull Supplier<GradleDslElement> lookup) {
+      Object result = myResolved.get(nameParts);
+      if (result == null) {
+        GradleDslElement element = lookup.get();
+        result = element == null ? NOT_FOUND : element;
+        // nameParts is usually a view of a longer list.
+        myResolved.put(ImmutableList.copyOf(nameParts), result);
+      }
+      return result == NOT_FOUND ? null : (GradleDslElement)result;
+    }
+  }
+}
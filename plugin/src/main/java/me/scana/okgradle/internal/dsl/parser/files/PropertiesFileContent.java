@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.files;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The entries of a properties file along with where their values are in its text, so that a value can be replaced without rewriting the
+ * rest of the file.
+ *
+ * <p>Contents are shared by all the build models of the application and only read again once the file, or its unsaved document, has
+ * changed. Only the contents of the most recently used files are kept.
+ */
+public final class PropertiesFileContent {
+  // Keyed by file url. Bounded since files that are no longer used are never removed, e.g those of closed projects.
+  private static final Cache<String, PropertiesFileContent> ourContents = CacheBuilder.newBuilder().maximumSize(256).build();
+
+  private final long myStamp;
+  private final boolean myFromDocument;
+  // The values as read by java.util.Properties, in the order the keys first appear in the file.
+  @NotNull private final Map<String, String> myValues;
+  // The range of the value of each key that is written on a single line without escapes, these are the only ones that can be edited.
+  @NotNull private final Map<String, TextRange> myValueRanges;
+
+  private PropertiesFileContent(long stamp, boolean fromDocument, @NotNull CharSequence text) throws IOException {
+    myStamp = stamp;
+    myFromDocument = fromDocument;
+
+    Properties properties = new Properties();
+    properties.load(new StringReader(text.toString()));
+    Map<String, TextRange> ranges = new LinkedHashMap<>();
+    scan(text, ranges);
+
+    Map<String, String> values = new LinkedHashMap<>();
+    for (String key : ranges.keySet()) {
+      String value = properties.getProperty(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    for (String key : properties.stringPropertyNames()) {
+      values.putIfAbsent(key, properties.getProperty(key));
+    }
+    ranges.values().removeIf(range -> range == null);
+    myValues = ImmutableMap.copyOf(values);
+    myValueRanges = ImmutableMap.copyOf(ranges);
+  }
+
+  /**
+   * @return the content of {@code file}, taken from its document if it has unsaved changes.
+   */
+  @NotNull
+  public static PropertiesFileContent load(@NotNull VirtualFile file) throws IOException {
+    Document document = FileDocumentManager.getInstance().getCachedDocument(file);
+    boolean fromDocument = document != null;
+    long stamp = fromDocument ? document.getModificationStamp() : file.getModificationStamp();
+
+    PropertiesFileContent content = ourContents.getIfPresent(file.getUrl());
+    if (content != null && content.myStamp == stamp && content.myFromDocument == fromDocument) {
+      return content;
+    }
+    CharSequence text = fromDocument ? document.getImmutableCharSequence() : VfsUtilCore.loadText(file);
+    content = new PropertiesFileContent(stamp, fromDocument, text);
+    ourContents.put(file.getUrl(), content);
+    return content;
+  }
+
+  /**
+   * @return the keys of the file and their values, in the order they appear in the file.
+   */
+  @NotNull
+  public Map<String, String> getValues() {
+    return myValues;
+  }
+
+  @Nullable
+  public String getValue(@NotNull String key) {
+    return myValues.get(key);
+  }
+
+  /**
+   * @return the range of the value of the last entry for {@code key}, or null if there is no such entry or it can't be edited in place
+   * because its value is continued on the next line or contains escapes.
+   */
+  @Nullable
+  public TextRange getValueRange(@NotNull String key) {
+    return myValueRanges.get(key);
+  }
+
+  /**
+   * @return {@code value} written so that it reads back the same from a properties file, this keeps it on one line.
+   */
+  @NotNull
+  public static String escapeValue(@NotNull String value) {
+    StringBuilder result = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          result.append("\\\\");
+          break;
+        case '\n':
+          result.append("\\n");
+          break;
+        case '\r':
+          result.append("\\r");
+          break;
+        case ' ':
+        case '\t':
+        case '\f':
+          // Leading whitespace would be dropped when read.
+          result.append(result.length() == 0 ? "\\" : "").append(c);
+          break;
+        default:
+          result.append(c);
+      }
+    }
+    return result.toString();
+  }
+
+  /**
+   * Finds the value ranges of simple entries, i.e {@code key=value}, {@code key: value} or {@code key value} on a single line. Keys of
+   * entries that are written some other way are mapped to null.
+   */
+  private static void scan(@NotNull CharSequence text, @NotNull Map<String, TextRange> ranges) {
+    int lineStart = 0;
+    boolean continued = false;
+    while (lineStart < text.length()) {
+      int lineEnd = lineStart;
+      while (lineEnd < text.length() && text.charAt(lineEnd) != '\n' && text.charAt(lineEnd) != '\r') {
+        lineEnd++;
+      }
+      int valueEnd = lineEnd;
+      while (valueEnd > lineStart && isWhitespace(text.charAt(valueEnd - 1))) {
+        valueEnd--;
+      }
+      boolean continues = endsWithContinuation(text, lineStart, valueEnd);
+
+      int keyStart = skipWhitespace(text, lineStart, lineEnd);
+      boolean isComment = keyStart < lineEnd && (text.charAt(keyStart) == '#' || text.charAt(keyStart) == '!');
+      if (!continued && !isComment && keyStart < lineEnd) {
+        int keyEnd = keyStart;
+        boolean simple = true;
+        while (keyEnd < lineEnd && !isSeparator(text.charAt(keyEnd))) {
+          simple &= text.charAt(keyEnd) != '\\';
+          keyEnd++;
+        }
+        int valueStart = skipWhitespace(text, keyEnd, lineEnd);
+        if (valueStart < lineEnd && (text.charAt(valueStart) == '=' || text.charAt(valueStart) == ':')) {
+          valueStart = skipWhitespace(text, valueStart + 1, lineEnd);
+        }
+        for (int i = valueStart; i < valueEnd && simple; i++) {
+          simple = text.charAt(i) != '\\';
+        }
+        if (simple) {
+          ranges.put(text.subSequence(keyStart, keyEnd).toString(), new TextRange(valueStart, Math.max(valueStart, valueEnd)));
+        }
+        else {
+          // The last entry for a key wins, so one that can't be edited in place hides any earlier simple entry for the same key.
+          ranges.put(text.subSequence(keyStart, keyEnd).toString(), null);
+        }
+      }
+      continued = !isComment && continues;
+      lineStart = lineEnd + 1;
+      if (lineEnd + 1 < text.length() && text.charAt(lineEnd) == '\r' && text.charAt(lineEnd + 1) == '\n') {
+        lineStart++;
+      }
+    }
+  }
+
+  private static boolean endsWithContinuation(@NotNull CharSequence text, int start, int end) {
+    int backslashes = 0;
+    while (end - backslashes > start && text.charAt(end - backslashes - 1) == '\\') {
+      backslashes++;
+    }
+    return backslashes % 2 == 1;
+  }
+
+  private static int skipWhitespace(@NotNull CharSequence text, int start, int end) {
+    while (start < end && isWhitespace(text.charAt(start))) {
+      start++;
+    }
+    return start;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\f';
+  }
+
+  private static boolean isSeparator(char c) {
+    return c == '=' || c == ':' || isWhitespace(c);
+  }
+}
@@ -31,6 +31,7 @@ import me.scana.okgradle.internal.dsl.api.ext.ReferenceTo;
 import me.scana.okgradle.internal.dsl.model.GradleBuildModelImpl;
 import me.scana.okgradle.internal.dsl.parser.GradleDslParser;
 import me.scana.okgradle.internal.dsl.parser.GradleReferenceInjection;
+import me.scana.okgradle.internal.dsl.parser.InterpolationTemplate;
 import me.scana.okgradle.internal.dsl.parser.SharedParserUtilsKt;
 import me.scana.okgradle.internal.dsl.parser.configurations.ConfigurationDslElement;
 import me.scana.okgradle.internal.dsl.parser.configurations.ConfigurationsDslElement;
@@ -47,16 +48,19 @@ import me.scana.okgradle.internal.dsl.parser.elements.GradleDslSimpleExpression;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleDslUnknownElement;
 import me.scana.okgradle.internal.dsl.parser.elements.GradleNameElement;
 import me.scana.okgradle.internal.dsl.parser.elements.GradlePropertiesDslElement;
+import me.scana.okgradle.internal.dsl.parser.files.BuildFileChangedException;
 import me.scana.okgradle.internal.dsl.parser.files.GradleDslFile;
 import me.scana.okgradle.internal.dsl.parser.groovy.GroovyDslUtil;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
 import com.intellij.util.IncorrectOperationException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -133,6 +137,7 @@ public class GroovyDslParser implements GradleDslParser {
       }
 
       void process(GroovyPsiElement e) {
+        ProgressManager.checkCanceled();
         parse(e, myDslFile);
       }
     }));
@@ -202,9 +207,15 @@ public class GroovyDslParser implements GradleDslParser {
       return ensureUnquotedText(literal.getText());
     }
 
-    // Otherwise resolve the value and then return the resolved text.
-    Collection<GradleReferenceInjection> injections = context.getResolvedVariables();
-    return ensureUnquotedText(GradleReferenceInjection.injectAll(literal, injections));
+    // Otherwise resolve the value and then return the resolved text. The string is only split into literal chunks and injections the
+    // first time, after that the template is rendered from the values of the injected elements without looking at the PSI.
+    List<GradleReferenceInjection> injections = context.getResolvedVariables();
+    InterpolationTemplate template = context.getInterpolationTemplate();
+    if (template == null || !template.isCompiledFrom(literal, injections)) {
+      template = InterpolationTemplate.compile(literal, injections);
+      context.setInterpolationTemplate(template);
+    }
+    return ensureUnquotedText(template.render());
   }
 
   @Override
@@ -365,13 +376,37 @@ public class GroovyDslParser implements GradleDslParser {
     if (blockElements.isEmpty()) {
       return false;
     }
+    SmartPsiElementPointer<GrClosableBlock> closurePointer = null;
     for (GradlePropertiesDslElement element : blockElements) {
-      parse(closableBlock, element);
+      if (myDslFile.getContext().isLazyBlockParsing() && !(element instanceof GradleDslFile)) {
+        // Only record the closure for now, it is parsed the first time anything asks the block for its elements. The PSI can be
+        // rebuilt in the meantime, e.g when changes written to the file are committed, so the closure is also tracked with a smart pointer.
+        if (closurePointer == null) {
+          closurePointer = SmartPointerManager.getInstance(closableBlock.getProject()).createSmartPsiElementPointer(closableBlock);
+        }
+        SmartPsiElementPointer<GrClosableBlock> pointer = closurePointer;
+        element.deferParse(() -> {
+          // The closure has to be parsed from the same PSI as the rest of the file, or the block wouldn't match the other elements.
+          if (myDslFile.isPsiChangedSinceParse()) {
+            throw new BuildFileChangedException(myDslFile.getFile());
+          }
+          GrClosableBlock closure = closableBlock.isValid() ? closableBlock : pointer.getElement();
+          if (closure == null) {
+            // Parsing nothing would leave an empty block, and the next change to it would write a duplicate block into the file.
+            throw new BuildFileChangedException(myDslFile.getFile());
+          }
+          parse(closure, element);
+        });
+      }
+      else {
+        parse(closableBlock, element);
+      }
     }
     return true;
   }
 
   private void parse(@NotNull GrClosableBlock closure, @NotNull final GradlePropertiesDslElement blockElement) {
+    ProgressManager.checkCanceled();
     closure.acceptChildren(new GroovyElementVisitor() {
       @Override
       public void visitMethodCallExpression(@NotNull GrMethodCallExpression methodCallExpression) {
@@ -695,4 +730,5 @@ public class GroovyDslParser implements GradleDslParser {
     parse(closableBlock, closureElement);
     return closureElement;
   }
+
 }
@@ -919,6 +919,7 @@ public final class GroovyDslUtil {
     GrClosableBlock block = factory.createClosureFromText("{ }");
     psiElement.addAfter(factory.createWhiteSpace(), psiElement.getLastChild());
     PsiElement newElement = psiElement.addAfter(block, psiElement.getLastChild());
+    element.getDslFile().recordWrittenPsiElement(newElement);
     closure.setPsiElement(newElement);
     closure.applyChanges();
     element.setParsedClosureElement(closure);
@@ -83,6 +83,7 @@ public class GroovyDslWriter implements GradleDslWriter {
 
     // 6. Delete the original tree.
     e.delete();
+    element.getDslFile().recordWrittenPsiElement(newTree);
 
     // 7. Set the new PsiElement. Note: The internal state of this element will have invalid elements. It is required to reparse the file
     // to obtain the correct elements.
@@ -184,6 +185,7 @@ public class GroovyDslWriter implements GradleDslWriter {
       addedElement = parentPsiElement.addAfter(statement, anchor);
       parentPsiElement.addBefore(lineTerminator, addedElement);
     }
+    element.getDslFile().recordWrittenPsiElement(addedElement);
     if (element.isBlockElement()) {
       GrClosableBlock closableBlock = getClosableBlock(addedElement);
       if (closableBlock != null) {
@@ -258,6 +260,7 @@ public class GroovyDslWriter implements GradleDslWriter {
       "()";
     GrStatement statement = factory.createStatementFromText(statementText);
     PsiElement addedElement = parentPsiElement.addAfter(statement, anchor);
+    methodCall.getDslFile().recordWrittenPsiElement(addedElement);
 
     if (addedElement instanceof GrApplicationStatement) {
       GrExpression[] expressionArguments = ((GrApplicationStatement)addedElement).getArgumentList().getExpressionArguments();
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.standalone;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The languages a build script can be written in.
+ */
+public enum ScriptLanguage {
+  GROOVY(".gradle"),
+  KOTLIN(".gradle.kts");
+
+  @NotNull private final String myExtension;
+
+  ScriptLanguage(@NotNull String extension) {
+    myExtension = extension;
+  }
+
+  @NotNull
+  public String getExtension() {
+    return myExtension;
+  }
+
+  /**
+   * @return the language of the script with the given file name, or null if it isn't a Gradle script.
+   */
+  @Nullable
+  public static ScriptLanguage forFileName(@NotNull String fileName) {
+    if (fileName.endsWith(KOTLIN.myExtension)) {
+      return KOTLIN;
+    }
+    if (fileName.endsWith(GROOVY.myExtension)) {
+      return GROOVY;
+    }
+    return null;
+  }
+}
@@ -0,0 +1,548 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.standalone;
+
+import me.scana.okgradle.internal.dsl.parser.standalone.ScriptToken.Kind;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A parser for Groovy and Kotlin build scripts that doesn't depend on the IntelliJ platform, so it can be used from tools that run
+ * outside of the IDE. It only understands the subset of both languages that build scripts are usually written in, see
+ * {@link ScriptStatement}, anything else (control flow, class and function declarations, ...) is skipped.
+ *
+ * <p>Like the PSI based parsers this never fails, statements that can't be understood are dropped and parsing continues on the next line.
+ */
+public final class ScriptParser {
+  private static final Set<String> BINARY_OPERATORS =
+    new HashSet<>(Arrays.asList("+", "-", "*", "/", "%", "?:", "==", "!=", "<", ">", "<=", ">=", "&&", "||", ".."));
+  // Infix functions and keywords that combine two expressions, e.g Kotlin's "a" to "b" or Groovy's x as String.
+  private static final Set<String> INFIX_KEYWORDS = new HashSet<>(Arrays.asList("to", "as", "in", "is"));
+  private static final Set<String> DECLARATION_KEYWORDS = new HashSet<>(Arrays.asList("val", "var", "def"));
+  // Statements starting with these are skipped, together with any blocks that follow them.
+  private static final Set<String> SKIPPED_KEYWORDS = new HashSet<>(Arrays.asList(
+    "import", "package", "if", "else", "for", "while", "do", "try", "catch", "finally", "return", "throw", "when", "class", "object",
+    "interface", "fun", "private", "internal", "public", "protected", "abstract", "open", "data", "enum", "switch"));
+
+  @NotNull private final CharSequence myText;
+  @NotNull private final List<ScriptToken> myTokens;
+  @NotNull private final ScriptLanguage myLanguage;
+  private int myIndex;
+
+  private ScriptParser(@NotNull CharSequence text, @NotNull ScriptLanguage language) {
+    myText = text;
+    myTokens = ScriptTokenizer.tokenize(text);
+    myLanguage = language;
+  }
+
+  /**
+   * @return the top level statements of the given script.
+   */
+  @NotNull
+  public static List<ScriptStatement> parse(@NotNull CharSequence text, @NotNull ScriptLanguage language) {
+    return new ScriptParser(text, language).parseStatements(false);
+  }
+
+  @NotNull
+  private List<ScriptStatement> parseStatements(boolean inClosure) {
+    List<ScriptStatement> statements = new ArrayList<>();
+    while (true) {
+      skipSeparators();
+      ScriptToken token = current();
+      if (token.getKind() == Kind.EOF) {
+        break;
+      }
+      if (token.isSymbol("}")) {
+        if (inClosure) {
+          advance();
+          break;
+        }
+        // Unbalanced closing brace at the top level, ignore it.
+        advance();
+        continue;
+      }
+
+      int start = myIndex;
+      ScriptStatement statement = parseStatement();
+      if (statement != null) {
+        statements.add(statement);
+      }
+      if (myIndex == start) {
+        skipBalanced();
+      }
+      skipRestOfStatement();
+    }
+    return statements;
+  }
+
+  @Nullable
+  private ScriptStatement parseStatement() {
+    ScriptToken token = current();
+    int line = token.getLine();
+
+    if (token.getKind() == Kind.IDENTIFIER && SKIPPED_KEYWORDS.contains(token.getText())) {
+      return null;
+    }
+    if (token.getKind() == Kind.IDENTIFIER && DECLARATION_KEYWORDS.contains(token.getText())) {
+      return parseDeclaration();
+    }
+
+    String name;
+    if (token.getKind() == Kind.STRING && peek(1).isSymbol("(")) {
+      // Kotlin configurations that aren't generated accessors, e.g "kapt"("a:b:c").
+      name = token.getText();
+      advance();
+    }
+    else {
+      name = parseQualifiedName();
+    }
+    if (name == null) {
+      return null;
+    }
+
+    token = current();
+    if (token.isSymbol("=")) {
+      advance();
+      return new ScriptStatement(ScriptStatement.Kind.ASSIGNMENT, name, Collections.emptyList(), Collections.emptyMap(), parseExpression(),
+                                 Collections.emptyList(), line);
+    }
+    if (token.isSymbol("{")) {
+      advance();
+      return new ScriptStatement(ScriptStatement.Kind.BLOCK, name, Collections.emptyList(), Collections.emptyMap(), null,
+                                 parseStatements(true), line);
+    }
+
+    List<ScriptValue> arguments = new ArrayList<>();
+    Map<String, ScriptValue> namedArguments = new LinkedHashMap<>();
+    if (token.isSymbol("(")) {
+      parseArguments(arguments, namedArguments);
+    }
+    else if (myLanguage == ScriptLanguage.GROOVY && startsExpression(token)) {
+      parseCommandArguments(arguments, namedArguments);
+    }
+    else if (!isEndOfStatement(token)) {
+      // Something we don't understand, e.g an operator other than "=".
+      return null;
+    }
+
+    List<ScriptStatement> children = Collections.emptyList();
+    if (current().isSymbol("{")) {
+      advance();
+      children = parseStatements(true);
+    }
+    return new ScriptStatement(ScriptStatement.Kind.CALL, name, arguments, namedArguments, null, children, line);
+  }
+
+  /**
+   * Parses {@code val x = ...}, {@code val x: String by extra} or {@code def x = ...} into an assignment.
+   */
+  @Nullable
+  private ScriptStatement parseDeclaration() {
+    int line = current().getLine();
+    advance();
+    ScriptToken name = current();
+    if (name.getKind() != Kind.IDENTIFIER) {
+      return null;
+    }
+    advance();
+
+    if (current().isSymbol(":")) {
+      // Kotlin type, skip it.
+      while (!isEndOfStatement(current()) && !current().isSymbol("=") && !current().is(Kind.IDENTIFIER, "by")) {
+        skipBalanced();
+      }
+    }
+    else if (current().getKind() == Kind.IDENTIFIER && peek(1).isSymbol("=")) {
+      // Groovy type, def String x = ...
+      name = current();
+      advance();
+    }
+
+    if (!current().isSymbol("=") && !current().is(Kind.IDENTIFIER, "by")) {
+      return null;
+    }
+    advance();
+    return new ScriptStatement(ScriptStatement.Kind.ASSIGNMENT, name.getText(), Collections.emptyList(), Collections.emptyMap(),
+                               parseExpression(), Collections.emptyList(), line);
+  }
+
+  /**
+   * Parses a dotted name, index expressions with string keys become parts of the name, e.g {@code extra["kotlin"]} is
+   * {@code extra.kotlin}.
+   */
+  @Nullable
+  private String parseQualifiedName() {
+    ScriptToken token = current();
+    if (token.getKind() != Kind.IDENTIFIER) {
+      return null;
+    }
+    StringBuilder name = new StringBuilder(token.getText());
+    advance();
+    while (true) {
+      token = current();
+      if ((token.isSymbol(".") || token.isSymbol("?.")) && peek(1).getKind() == Kind.IDENTIFIER) {
+        name.append('.').append(peek(1).getText());
+        advance();
+        advance();
+      }
+      else if (token.isSymbol("[") && peek(1).getKind() == Kind.STRING && peek(2).isSymbol("]")) {
+        name.append('.').append(peek(1).getText());
+        advance();
+        advance();
+        advance();
+      }
+      else {
+        return name.toString();
+      }
+    }
+  }
+
+  /**
+   * Parses a parenthesized argument list, the current token must be the opening parenthesis.
+   */
+  private void parseArguments(@NotNull List<ScriptValue> arguments, @NotNull Map<String, ScriptValue> namedArguments) {
+    advance();
+    while (true) {
+      skipNewlines();
+      ScriptToken token = current();
+      if (token.getKind() == Kind.EOF) {
+        return;
+      }
+      if (token.isSymbol(")")) {
+        advance();
+        return;
+      }
+      parseArgument(arguments, namedArguments);
+      skipNewlines();
+      if (current().isSymbol(",")) {
+        advance();
+      }
+      else if (!current().isSymbol(")")) {
+        // Something we don't understand, skip to the next argument.
+        while (!current().isSymbol(",") && !current().isSymbol(")") && current().getKind() != Kind.EOF) {
+          skipBalanced();
+        }
+      }
+    }
+  }
+
+  /**
+   * Parses the arguments of a Groovy application statement, e.g {@code compile 'a:b:c', 'd:e:f'} or {@code apply plugin: 'java'}.
+   */
+  private void parseCommandArguments(@NotNull List<ScriptValue> arguments, @NotNull Map<String, ScriptValue> namedArguments) {
+    while (true) {
+      parseArgument(arguments, namedArguments);
+      if (!current().isSymbol(",")) {
+        return;
+      }
+      advance();
+      // A trailing comma continues the arguments on the next line.
+      skipNewlines();
+    }
+  }
+
+  private void parseArgument(@NotNull List<ScriptValue> arguments, @NotNull Map<String, ScriptValue> namedArguments) {
+    ScriptToken token = current();
+    ScriptToken next = peek(1);
+    boolean isLabel = token.getKind() == Kind.IDENTIFIER || token.getKind() == Kind.STRING;
+    if (isLabel && (next.isSymbol(":") || (token.getKind() == Kind.IDENTIFIER && next.isSymbol("=")))) {
+      advance();
+      advance();
+      skipNewlines();
+      namedArguments.put(token.getText(), parseExpression());
+    }
+    else {
+      arguments.add(parseExpression());
+    }
+  }
+
+  @NotNull
+  private ScriptValue parseExpression() {
+    int start = myIndex;
+    ScriptValue value = parsePrimary();
+    boolean composite = false;
+    while (true) {
+      ScriptToken token = current();
+      if ((token.getKind() == Kind.SYMBOL && BINARY_OPERATORS.contains(token.getText())) ||
+          (token.getKind() == Kind.IDENTIFIER && INFIX_KEYWORDS.contains(token.getText()))) {
+        advance();
+        skipNewlines();
+        parsePrimary();
+        composite = true;
+      }
+      else if (token.isSymbol(".") || token.isSymbol("?.")) {
+        // A call or property on something other than a name, e.g "a:b:c".toString() or project(":a").file("b").
+        advance();
+        if (current().getKind() == Kind.IDENTIFIER) {
+          advance();
+        }
+        if (current().isSymbol("(")) {
+          skipBalanced();
+        }
+        composite = true;
+      }
+      else if (token.isSymbol("!")) {
+        // Kotlin's not-null assertion.
+        advance();
+        composite = true;
+      }
+      else {
+        break;
+      }
+    }
+    return composite && myIndex > start ? ScriptValue.of(ScriptValue.Kind.UNKNOWN, sourceText(start)) : value;
+  }
+
+  @NotNull
+  private ScriptValue parsePrimary() {
+    int start = myIndex;
+    ScriptToken token = current();
+    switch (token.getKind()) {
+      case STRING:
+        advance();
+        return ScriptValue.string(token.getText(), token.isInterpolated());
+      case NUMBER:
+        advance();
+        return ScriptValue.of(ScriptValue.Kind.NUMBER, token.getText());
+      case IDENTIFIER:
+        return parseNamedPrimary();
+      case NEWLINE:
+      case EOF:
+        return ScriptValue.of(ScriptValue.Kind.UNKNOWN, "");
+      default:
+        break;
+    }
+
+    if (token.isSymbol("-") && peek(1).getKind() == Kind.NUMBER) {
+      advance();
+      advance();
+      return ScriptValue.of(ScriptValue.Kind.NUMBER, "-" + peek(-1).getText());
+    }
+    if (token.isSymbol("[")) {
+      return parseListOrMap();
+    }
+    if (token.isSymbol("(")) {
+      advance();
+      skipNewlines();
+      ScriptValue value = parseExpression();
+      while (!current().isSymbol(")") && current().getKind() != Kind.EOF) {
+        skipBalanced();
+      }
+      advance();
+      return value;
+    }
+    if (token.isSymbol("{")) {
+      skipBalanced();
+      return ScriptValue.of(ScriptValue.Kind.UNKNOWN, sourceText(start));
+    }
+    if (token.isSymbol(")") || token.isSymbol("]") || token.isSymbol("}") || token.isSymbol(",") || token.isSymbol(";")) {
+      // Nothing to parse, leave the token for the caller.
+      return ScriptValue.of(ScriptValue.Kind.UNKNOWN, "");
+    }
+    advance();
+    return ScriptValue.of(ScriptValue.Kind.UNKNOWN, token.getText());
+  }
+
+  @NotNull
+  private ScriptValue parseNamedPrimary() {
+    int start = myIndex;
+    ScriptToken token = current();
+    switch (token.getText()) {
+      case "true":
+      case "false":
+        advance();
+        return ScriptValue.of(ScriptValue.Kind.BOOLEAN, token.getText());
+      case "null":
+        advance();
+        return ScriptValue.of(ScriptValue.Kind.NULL, token.getText());
+      case "new":
+        advance();
+        parsePrimary();
+        return ScriptValue.of(ScriptValue.Kind.UNKNOWN, sourceText(start));
+      default:
+        break;
+    }
+
+    String name = parseQualifiedName();
+    if (name == null) {
+      advance();
+      return ScriptValue.of(ScriptValue.Kind.UNKNOWN, token.getText());
+    }
+    if (current().isSymbol("(")) {
+      List<ScriptValue> arguments = new ArrayList<>();
+      Map<String, ScriptValue> namedArguments = new LinkedHashMap<>();
+      parseArguments(arguments, namedArguments);
+      return ScriptValue.call(name, arguments, namedArguments);
+    }
+    return ScriptValue.of(ScriptValue.Kind.REFERENCE, name);
+  }
+
+  /**
+   * Parses a Groovy list ({@code ['a', 'b']}) or map ({@code [a: 'b']} or {@code [:]}), the current token must be the opening bracket.
+   */
+  @NotNull
+  private ScriptValue parseListOrMap() {
+    int start = myIndex;
+    advance();
+    List<ScriptValue> elements = new ArrayList<>();
+    Map<String, ScriptValue> entries = new LinkedHashMap<>();
+    boolean isMap = false;
+    while (true) {
+      skipNewlines();
+      ScriptToken token = current();
+      if (token.getKind() == Kind.EOF) {
+        break;
+      }
+      if (token.isSymbol("]")) {
+        advance();
+        break;
+      }
+      if (token.isSymbol(":") && peek(1).isSymbol("]")) {
+        // Empty map.
+        isMap = true;
+        advance();
+        continue;
+      }
+
+      ScriptToken next = peek(1);
+      boolean isKey = token.getKind() == Kind.IDENTIFIER || token.getKind() == Kind.STRING || token.getKind() == Kind.NUMBER;
+      if (isKey && next.isSymbol(":")) {
+        isMap = true;
+        advance();
+        advance();
+        skipNewlines();
+        entries.put(token.getText(), parseExpression());
+      }
+      else {
+        elements.add(parseExpression());
+      }
+
+      skipNewlines();
+      if (current().isSymbol(",")) {
+        advance();
+      }
+      else if (!current().isSymbol("]")) {
+        while (!current().isSymbol(",") && !current().isSymbol("]") && current().getKind() != Kind.EOF) {
+          skipBalanced();
+        }
+      }
+    }
+    return isMap ? ScriptValue.map(sourceText(start), entries) : ScriptValue.list(sourceText(start), elements);
+  }
+
+  private static boolean startsExpression(@NotNull ScriptToken token) {
+    switch (token.getKind()) {
+      case STRING:
+      case NUMBER:
+      case IDENTIFIER:
+        return true;
+      case SYMBOL:
+        return token.isSymbol("[") || token.isSymbol("-");
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isEndOfStatement(@NotNull ScriptToken token) {
+    return token.getKind() == Kind.NEWLINE || token.getKind() == Kind.EOF || token.isSymbol(";") || token.isSymbol("}");
+  }
+
+  private void skipSeparators() {
+    while (current().getKind() == Kind.NEWLINE || current().isSymbol(";")) {
+      advance();
+    }
+  }
+
+  private void skipNewlines() {
+    while (current().getKind() == Kind.NEWLINE) {
+      advance();
+    }
+  }
+
+  private void skipRestOfStatement() {
+    while (!isEndOfStatement(current())) {
+      skipBalanced();
+    }
+  }
+
+  /**
+   * Skips the current token, or everything up to and including the matching closing bracket if it is an opening bracket.
+   */
+  private void skipBalanced() {
+    if (current().getKind() == Kind.EOF) {
+      return;
+    }
+    String close = closingBracket(current());
+    advance();
+    if (close == null) {
+      return;
+    }
+    while (current().getKind() != Kind.EOF) {
+      if (current().isSymbol(close)) {
+        advance();
+        return;
+      }
+      skipBalanced();
+    }
+  }
+
+  @Nullable
+  private static String closingBracket(@NotNull ScriptToken token) {
+    if (token.isSymbol("(")) {
+      return ")";
+    }
+    if (token.isSymbol("[")) {
+      return "]";
+    }
+    if (token.isSymbol("{")) {
+      return "}";
+    }
+    return null;
+  }
+
+  @NotNull
+  private String sourceText(int startIndex) {
+    int start = myTokens.get(startIndex).getStartOffset();
+    int end = myIndex > startIndex ? myTokens.get(myIndex - 1).getEndOffset() : start;
+    return myText.subSequence(start, end).toString();
+  }
+
+  @NotNull
+  private ScriptToken current() {
+    return myTokens.get(myIndex);
+  }
+
+  @NotNull
+  private ScriptToken peek(int distance) {
+    int index = Math.max(0, Math.min(myIndex + distance, myTokens.size() - 1));
+    return myTokens.get(index);
+  }
+
+  private void advance() {
+    if (myIndex < myTokens.size() - 1) {
+      myIndex++;
+    }
+  }
+}
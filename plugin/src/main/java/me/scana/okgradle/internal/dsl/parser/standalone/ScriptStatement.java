@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.standalone;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A statement in a build script as understood by {@link ScriptParser}. The shapes mirror the ones {@code GroovyDslParser} turns into
+ * elements: blocks ({@code android { ... }}), method calls and application statements ({@code compile 'a:b:c'},
+ * {@code implementation("a:b:c") { ... }}) and assignments ({@code compileSdkVersion = 28}, {@code def x = 1}, {@code val x = 1}).
+ */
+public final class ScriptStatement {
+  public enum Kind {
+    BLOCK,
+    CALL,
+    ASSIGNMENT,
+  }
+
+  @NotNull private final Kind myKind;
+  @NotNull private final String myName;
+  @NotNull private final List<ScriptValue> myArguments;
+  @NotNull private final Map<String, ScriptValue> myNamedArguments;
+  @Nullable private final ScriptValue myValue;
+  @NotNull private final List<ScriptStatement> myChildren;
+  private final int myLine;
+
+  ScriptStatement(@NotNull Kind kind,
+                  @NotNull String name,
+                  @NotNull List<ScriptValue> arguments,
+                  @NotNull Map<String, ScriptValue> namedArguments,
+                  @Nullable ScriptValue value,
+                  @NotNull List<ScriptStatement> children,
+                  int line) {
+    myKind = kind;
+    myName = name;
+    myArguments = Collections.unmodifiableList(new ArrayList<>(arguments));
+    myNamedArguments = Collections.unmodifiableMap(new LinkedHashMap<>(namedArguments));
+    myValue = value;
+    myChildren = Collections.unmodifiableList(new ArrayList<>(children));
+    myLine = line;
+  }
+
+  @NotNull
+  public Kind getKind() {
+    return myKind;
+  }
+
+  /**
+   * @return the dotted name of the block, method or assigned property, e.g {@code android.defaultConfig} or {@code ext.kotlin}.
+   */
+  @NotNull
+  public String getName() {
+    return myName;
+  }
+
+  /**
+   * @return the positional arguments of a method call.
+   */
+  @NotNull
+  public List<ScriptValue> getArguments() {
+    return myArguments;
+  }
+
+  /**
+   * @return the named arguments of a method call, in the order they were written.
+   */
+  @NotNull
+  public Map<String, ScriptValue> getNamedArguments() {
+    return myNamedArguments;
+  }
+
+  /**
+   * @return the assigned value of an assignment.
+   */
+  @Nullable
+  public ScriptValue getValue() {
+    return myValue;
+  }
+
+  /**
+   * @return the statements in the closure of a block or method call.
+   */
+  @NotNull
+  public List<ScriptStatement> getChildren() {
+    return myChildren;
+  }
+
+  /**
+   * @return the 1-based line the statement starts on.
+   */
+  public int getLine() {
+    return myLine;
+  }
+
+  @Override
+  public String toString() {
+    return myKind + "(" + myName + ")@" + myLine;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.standalone;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A token produced by {@link ScriptTokenizer}.
+ */
+public final class ScriptToken {
+  public enum Kind {
+    IDENTIFIER,
+    /**
+     * A string literal, the text of the token is the content of the string with escapes processed but templates left as written.
+     */
+    STRING,
+    NUMBER,
+    SYMBOL,
+    NEWLINE,
+    EOF,
+  }
+
+  @NotNull private final Kind myKind;
+  @NotNull private final String myText;
+  // Whether this is a string that contains template expressions, e.g "$version" or "${version}".
+  private final boolean myInterpolated;
+  private final int myStartOffset;
+  private final int myEndOffset;
+  private final int myLine;
+
+  ScriptToken(@NotNull Kind kind, @NotNull String text, boolean interpolated, int startOffset, int endOffset, int line) {
+    myKind = kind;
+    myText = text;
+    myInterpolated = interpolated;
+    myStartOffset = startOffset;
+    myEndOffset = endOffset;
+    myLine = line;
+  }
+
+  @NotNull
+  public Kind getKind() {
+    return myKind;
+  }
+
+  @NotNull
+  public String getText() {
+    return myText;
+  }
+
+  public boolean isInterpolated() {
+    return myInterpolated;
+  }
+
+  public int getStartOffset() {
+    return myStartOffset;
+  }
+
+  public int getEndOffset() {
+    return myEndOffset;
+  }
+
+  /**
+   * @return the 1-based line the token starts on.
+   */
+  public int getLine() {
+    return myLine;
+  }
+
+  public boolean is(@NotNull Kind kind, @NotNull String text) {
+    return myKind == kind && myText.equals(text);
+  }
+
+  public boolean isSymbol(@NotNull String text) {
+    return is(Kind.SYMBOL, text);
+  }
+
+  @Override
+  public String toString() {
+    return myKind + "(" + myText + ")@" + myLine;
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.standalone;
+
+import me.scana.okgradle.internal.dsl.parser.standalone.ScriptToken.Kind;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the text of a Groovy or Kotlin build script into {@link ScriptToken}s. Comments and whitespace are dropped, runs of line breaks
+ * become a single {@link Kind#NEWLINE} token since line breaks end statements in both languages.
+ *
+ * <p>The tokenizer never fails, text it doesn't understand is returned as single character symbols.
+ */
+public final class ScriptTokenizer {
+  private static final String[] MULTI_CHARACTER_SYMBOLS = {"?.", "?:", "::", "->", "..", "==", "!=", "<=", ">=", "&&", "||", "+=", "-="};
+
+  @NotNull private final CharSequence myText;
+  @NotNull private final List<ScriptToken> myTokens = new ArrayList<>();
+  private int myOffset;
+  private int myLine = 1;
+
+  private ScriptTokenizer(@NotNull CharSequence text) {
+    myText = text;
+  }
+
+  @NotNull
+  public static List<ScriptToken> tokenize(@NotNull CharSequence text) {
+    ScriptTokenizer tokenizer = new ScriptTokenizer(text);
+    tokenizer.run();
+    return tokenizer.myTokens;
+  }
+
+  private void run() {
+    while (myOffset < myText.length()) {
+      char c = myText.charAt(myOffset);
+      if (c == '\n') {
+        addNewline();
+        myOffset++;
+        myLine++;
+      }
+      else if (Character.isWhitespace(c)) {
+        myOffset++;
+      }
+      else if (c == '\\' && peek(1) == '\n') {
+        // Explicit line continuation.
+        myOffset += 2;
+        myLine++;
+      }
+      else if (c == '/' && peek(1) == '/') {
+        skipLineComment();
+      }
+      else if (c == '/' && peek(1) == '*') {
+        skipBlockComment();
+      }
+      else if (c == '#' && myOffset == 0 && peek(1) == '!') {
+        // Shebang line.
+        skipLineComment();
+      }
+      else if (c == '\'' || c == '"') {
+        readString(c);
+      }
+      else if (c == '`') {
+        readQuotedIdentifier();
+      }
+      else if (Character.isDigit(c)) {
+        readNumber();
+      }
+      else if (Character.isJavaIdentifierStart(c)) {
+        readIdentifier();
+      }
+      else {
+        readSymbol();
+      }
+    }
+    myTokens.add(new ScriptToken(Kind.EOF, "", false, myOffset, myOffset, myLine));
+  }
+
+  private char peek(int distance) {
+    int offset = myOffset + distance;
+    return offset < myText.length() ? myText.charAt(offset) : 0;
+  }
+
+  private boolean startsWith(@NotNull String text) {
+    if (myOffset + text.length() > myText.length()) {
+      return false;
+    }
+    for (int i = 0; i < text.length(); i++) {
+      if (myText.charAt(myOffset + i) != text.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void addNewline() {
+    if (!myTokens.isEmpty() && myTokens.get(myTokens.size() - 1).getKind() == Kind.NEWLINE) {
+      return;
+    }
+    myTokens.add(new ScriptToken(Kind.NEWLINE, "\n", false, myOffset, myOffset + 1, myLine));
+  }
+
+  private void skipLineComment() {
+    while (myOffset < myText.length() && myText.charAt(myOffset) != '\n') {
+      myOffset++;
+    }
+  }
+
+  private void skipBlockComment() {
+    myOffset += 2;
+    while (myOffset < myText.length() && !startsWith("*/")) {
+      if (myText.charAt(myOffset) == '\n') {
+        myLine++;
+      }
+      myOffset++;
+    }
+    myOffset = Math.min(myOffset + 2, myText.length());
+  }
+
+  private void readString(char quote) {
+    int start = myOffset;
+    int line = myLine;
+    boolean triple = peek(1) == quote && peek(2) == quote;
+    myOffset += triple ? 3 : 1;
+
+    StringBuilder content = new StringBuilder();
+    boolean interpolated = false;
+    while (myOffset < myText.length()) {
+      char c = myText.charAt(myOffset);
+      if (triple ? c == quote && peek(1) == quote && peek(2) == quote : c == quote) {
+        myOffset += triple ? 3 : 1;
+        break;
+      }
+      if (c == '\n') {
+        if (!triple) {
+          // Unterminated string, stop at the end of the line.
+          break;
+        }
+        myLine++;
+      }
+      if (c == '\\' && myOffset + 1 < myText.length()) {
+        char escaped = myText.charAt(myOffset + 1);
+        if (escaped == '\n') {
+          // Line continuation, the line break isn't part of the string but still counts as a line.
+          myLine++;
+        }
+        else {
+          content.append(unescape(escaped));
+        }
+        myOffset += 2;
+        continue;
+      }
+      if (c == '$' && quote == '"') {
+        if (peek(1) == '{') {
+          interpolated = true;
+          myOffset = appendTemplateExpression(content);
+          continue;
+        }
+        if (Character.isJavaIdentifierStart(peek(1))) {
+          interpolated = true;
+        }
+      }
+      content.append(c);
+      myOffset++;
+    }
+    myTokens.add(new ScriptToken(Kind.STRING, content.toString(), interpolated, start, myOffset, line));
+  }
+
+  /**
+   * Appends a {@code ${...}} template expression, which can itself contain braces and strings, and returns the offset after it.
+   */
+  private int appendTemplateExpression(@NotNull StringBuilder content) {
+    int offset = myOffset;
+    int depth = 0;
+    while (offset < myText.length()) {
+      char c = myText.charAt(offset);
+      content.append(c);
+      offset++;
+      if (c == '{') {
+        depth++;
+      }
+      else if (c == '}' && --depth == 0) {
+        break;
+      }
+      else if (c == '\n') {
+        myLine++;
+      }
+    }
+    return offset;
+  }
+
+  private static char unescape(char c) {
+    switch (c) {
+      case 'n':
+        return '\n';
+      case 't':
+        return '\t';
+      case 'r':
+        return '\r';
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      default:
+        return c;
+    }
+  }
+
+  private void readQuotedIdentifier() {
+    int start = myOffset;
+    myOffset++;
+    while (myOffset < myText.length() && myText.charAt(myOffset) != '`' && myText.charAt(myOffset) != '\n') {
+      myOffset++;
+    }
+    String name = myText.subSequence(start + 1, myOffset).toString();
+    if (myOffset < myText.length() && myText.charAt(myOffset) == '`') {
+      myOffset++;
+    }
+    myTokens.add(new ScriptToken(Kind.IDENTIFIER, name, false, start, myOffset, myLine));
+  }
+
+  private void readNumber() {
+    int start = myOffset;
+    while (myOffset < myText.length()) {
+      char c = myText.charAt(myOffset);
+      if (Character.isLetterOrDigit(c) || c == '_') {
+        myOffset++;
+      }
+      else if (c == '.' && Character.isDigit(peek(1))) {
+        myOffset += 2;
+      }
+      else {
+        break;
+      }
+    }
+    myTokens.add(new ScriptToken(Kind.NUMBER, myText.subSequence(start, myOffset).toString(), false, start, myOffset, myLine));
+  }
+
+  private void readIdentifier() {
+    int start = myOffset;
+    myOffset++;
+    while (myOffset < myText.length() && Character.isJavaIdentifierPart(myText.charAt(myOffset))) {
+      myOffset++;
+    }
+    myTokens.add(new ScriptToken(Kind.IDENTIFIER, myText.subSequence(start, myOffset).toString(), false, start, myOffset, myLine));
+  }
+
+  private void readSymbol() {
+    int start = myOffset;
+    String symbol = null;
+    for (String candidate : MULTI_CHARACTER_SYMBOLS) {
+      if (startsWith(candidate)) {
+        symbol = candidate;
+        break;
+      }
+    }
+    if (symbol == null) {
+      symbol = String.valueOf(myText.charAt(myOffset));
+    }
+    myOffset += symbol.length();
+    myTokens.add(new ScriptToken(Kind.SYMBOL, symbol, false, start, myOffset, myLine));
+  }
+}
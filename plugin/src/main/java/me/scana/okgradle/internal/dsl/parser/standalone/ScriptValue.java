@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.standalone;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An expression in a build script as understood by {@link ScriptParser}. Expressions that don't map onto any of the supported kinds are
+ * kept as {@link Kind#UNKNOWN} with their source text.
+ */
+public final class ScriptValue {
+  public enum Kind {
+    STRING,
+    NUMBER,
+    BOOLEAN,
+    NULL,
+    /**
+     * A reference to a property or variable, e.g {@code versions.kotlin} or {@code rootProject.ext["kotlin"]}.
+     */
+    REFERENCE,
+    LIST,
+    MAP,
+    /**
+     * A method call, e.g {@code project(":lib")}. The text is the method name.
+     */
+    CALL,
+    UNKNOWN,
+  }
+
+  @NotNull private final Kind myKind;
+  @NotNull private final String myText;
+  private final boolean myInterpolated;
+  @NotNull private final List<ScriptValue> myArguments;
+  @NotNull private final Map<String, ScriptValue> myNamedArguments;
+
+  private ScriptValue(@NotNull Kind kind,
+                      @NotNull String text,
+                      boolean interpolated,
+                      @NotNull List<ScriptValue> arguments,
+                      @NotNull Map<String, ScriptValue> namedArguments) {
+    myKind = kind;
+    myText = text;
+    myInterpolated = interpolated;
+    myArguments = arguments;
+    myNamedArguments = namedArguments;
+  }
+
+  @NotNull
+  static ScriptValue of(@NotNull Kind kind, @NotNull String text) {
+    return new ScriptValue(kind, text, false, Collections.emptyList(), Collections.emptyMap());
+  }
+
+  @NotNull
+  static ScriptValue string(@NotNull String text, boolean interpolated) {
+    return new ScriptValue(Kind.STRING, text, interpolated, Collections.emptyList(), Collections.emptyMap());
+  }
+
+  @NotNull
+  static ScriptValue list(@NotNull String text, @NotNull List<ScriptValue> elements) {
+    return new ScriptValue(Kind.LIST, text, false, Collections.unmodifiableList(new ArrayList<>(elements)), Collections.emptyMap());
+  }
+
+  @NotNull
+  static ScriptValue map(@NotNull String text, @NotNull Map<String, ScriptValue> entries) {
+    return new ScriptValue(Kind.MAP, text, false, Collections.emptyList(), Collections.unmodifiableMap(new LinkedHashMap<>(entries)));
+  }
+
+  @NotNull
+  static ScriptValue call(@NotNull String name, @NotNull List<ScriptValue> arguments, @NotNull Map<String, ScriptValue> namedArguments) {
+    return new ScriptValue(Kind.CALL, name, false, Collections.unmodifiableList(new ArrayList<>(arguments)),
+                           Collections.unmodifiableMap(new LinkedHashMap<>(namedArguments)));
+  }
+
+  @NotNull
+  public Kind getKind() {
+    return myKind;
+  }
+
+  /**
+   * @return the content of a string, the text of a number, boolean or reference, the name of a called method or the source text of any
+   * other expression.
+   */
+  @NotNull
+  public String getText() {
+    return myText;
+  }
+
+  /**
+   * @return whether this is a string containing template expressions.
+   */
+  public boolean isInterpolated() {
+    return myInterpolated;
+  }
+
+  /**
+   * @return the elements of a list or the positional arguments of a method call.
+   */
+  @NotNull
+  public List<ScriptValue> getArguments() {
+    return myArguments;
+  }
+
+  /**
+   * @return the entries of a map or the named arguments of a method call, in the order they were written.
+   */
+  @NotNull
+  public Map<String, ScriptValue> getNamedArguments() {
+    return myNamedArguments;
+  }
+
+  /**
+   * @return the value of a string that doesn't need interpolating, otherwise null.
+   */
+  @Nullable
+  public String getLiteralString() {
+    return myKind == Kind.STRING && !myInterpolated ? myText : null;
+  }
+
+  @Override
+  public String toString() {
+    return myKind + "(" + myText + ")";
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2018 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.scana.okgradle.internal.dsl.parser.standalone;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A build script parsed by {@link ScriptParser}, with helpers to query it without knowing which language it was written in.
+ */
+public final class StandaloneBuildScript {
+  @NotNull private final String myPath;
+  @NotNull private final ScriptLanguage myLanguage;
+  @NotNull private final List<ScriptStatement> myStatements;
+
+  private StandaloneBuildScript(@NotNull String path, @NotNull ScriptLanguage language, @NotNull List<ScriptStatement> statements) {
+    myPath = path;
+    myLanguage = language;
+    myStatements = statements;
+  }
+
+  /**
+   * Reads and parses the script at {@code path}, the language is picked from the file name.
+   */
+  @NotNull
+  public static StandaloneBuildScript read(@NotNull Path path) throws IOException {
+    ScriptLanguage language = ScriptLanguage.forFileName(path.getFileName().toString());
+    if (language == null) {
+      throw new IOException("Not a Gradle build script: " + path);
+    }
+    String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    return parse(path.toString(), text, language);
+  }
+
+  @NotNull
+  public static StandaloneBuildScript parse(@NotNull String path, @NotNull CharSequence text, @NotNull ScriptLanguage language) {
+    return new StandaloneBuildScript(path, language, ScriptParser.parse(text, language));
+  }
+
+  @NotNull
+  public String getPath() {
+    return myPath;
+  }
+
+  @NotNull
+  public ScriptLanguage getLanguage() {
+    return myLanguage;
+  }
+
+  @NotNull
+  public List<ScriptStatement> getStatements() {
+    return myStatements;
+  }
+
+  /**
+   * @return the statements with the given dotted path, which is made up of the names of the enclosing blocks and the statement's own
+   * name. For example both {@code android { defaultConfig { minSdkVersion 21 } }} and {@code android.defaultConfig.minSdkVersion = 21}
+   * are found with {@code android.defaultConfig.minSdkVersion}.
+   */
+  @NotNull
+  public List<ScriptStatement> find(@NotNull String path) {
+    List<ScriptStatement> result = new ArrayList<>();
+    find(myStatements, "", path, result);
+    return result;
+  }
+
+  private static void find(@NotNull List<ScriptStatement> statements,
+                           @NotNull String prefix,
+                           @NotNull String path,
+                           @NotNull List<ScriptStatement> result) {
+    for (ScriptStatement statement : statements) {
+      String statementPath = prefix + statement.getName();
+      if (statementPath.equals(path)) {
+        result.add(statement);
+      }
+      else if (path.startsWith(statementPath + ".")) {
+        find(statement.getChildren(), statementPath + ".", path, result);
+      }
+    }
+  }
+
+  /**
+   * @return the dependencies declared in any {@code dependencies} block of the script, including the ones in {@code buildscript},
+   * {@code allprojects} and {@code subprojects}, in the order they were written.
+   */
+  @NotNull
+  public List<Dependency> getDependencies() {
+    List<Dependency> result = new ArrayList<>();
+    collectDependencies(myStatements, "", result);
+    return result;
+  }
+
+  private static void collectDependencies(@NotNull List<ScriptStatement> statements,
+                                          @NotNull String prefix,
+                                          @NotNull List<Dependency> result) {
+    for (ScriptStatement statement : statements) {
+      String path = prefix + statement.getName();
+      if (statement.getName().equals("dependencies") || statement.getName().endsWith(".dependencies")) {
+        for (ScriptStatement declaration : statement.getChildren()) {
+          addDependencies(path, declaration, result);
+        }
+      }
+      else {
+        collectDependencies(statement.getChildren(), path + ".", result);
+      }
+    }
+  }
+
+  private static void addDependencies(@NotNull String scope, @NotNull ScriptStatement declaration, @NotNull List<Dependency> result) {
+    if (declaration.getKind() != ScriptStatement.Kind.CALL) {
+      return;
+    }
+    String configuration = declaration.getName();
+    Map<String, ScriptValue> namedArguments = declaration.getNamedArguments();
+    if (namedArguments.containsKey("name")) {
+      // compile group: 'a', name: 'b', version: 'c'
+      result.add(new Dependency(scope, configuration, mapNotation(namedArguments), declaration.getLine()));
+    }
+    for (ScriptValue argument : declaration.getArguments()) {
+      String notation = argument.getKind() == ScriptValue.Kind.MAP ? mapNotation(argument.getNamedArguments()) : notation(argument);
+      result.add(new Dependency(scope, configuration, notation, declaration.getLine()));
+    }
+  }
+
+  @NotNull
+  private static String mapNotation(@NotNull Map<String, ScriptValue> entries) {
+    StringBuilder notation = new StringBuilder();
+    appendPart(notation, entries.get("group"));
+    notation.append(':');
+    appendPart(notation, entries.get("name"));
+    ScriptValue version = entries.get("version");
+    if (version != null) {
+      notation.append(':');
+      appendPart(notation, version);
+    }
+    return notation.toString();
+  }
+
+  private static void appendPart(@NotNull StringBuilder notation, @Nullable ScriptValue value) {
+    if (value != null) {
+      notation.append(notation(value));
+    }
+  }
+
+  /**
+   * @return the text of a dependency notation as it would be written in Groovy, e.g {@code project(':lib')} or {@code a:b:${version}}.
+   */
+  @NotNull
+  private static String notation(@NotNull ScriptValue value) {
+    if (value.getKind() != ScriptValue.Kind.CALL) {
+      return value.getText();
+    }
+    StringBuilder call = new StringBuilder(value.getText()).append('(');
+    String separator = "";
+    for (ScriptValue argument : value.getArguments()) {
+      call.append(separator).append(quote(argument));
+      separator = ", ";
+    }
+    for (Map.Entry<String, ScriptValue> entry : value.getNamedArguments().entrySet()) {
+      call.append(separator).append(entry.getKey()).append(": ").append(quote(entry.getValue()));
+      separator = ", ";
+    }
+    return call.append(')').toString();
+  }
+
+  @NotNull
+  private static String quote(@NotNull ScriptValue value) {
+    if (value.getKind() == ScriptValue.Kind.STRING) {
+      return value.isInterpolated() ? "\"" + value.getText() + "\"" : "'" + value.getText() + "'";
+    }
+    return notation(value);
+  }
+
+  /**
+   * A dependency declaration found by {@link #getDependencies()}.
+   */
+  public static final class Dependency {
+    @NotNull private final String myScope;
+    @NotNull private final String myConfiguration;
+    @NotNull private final String myNotation;
+    private final int myLine;
+
+    Dependency(@NotNull String scope, @NotNull String configuration, @NotNull String notation, int line) {
+      myScope = scope;
+      myConfiguration = configuration;
+      myNotation = notation;
+      myLine = line;
+    }
+
+    /**
+     * @return the path of the enclosing {@code dependencies} block, e.g {@code dependencies} or {@code buildscript.dependencies}.
+     */
+    @NotNull
+    public String getScope() {
+      return myScope;
+    }
+
+    @NotNull
+    public String getConfiguration() {
+      return myConfiguration;
+    }
+
+    @NotNull
+    public String getNotation() {
+      return myNotation;
+    }
+
+    public int getLine() {
+      return myLine;
+    }
+
+    @Override
+    public String toString() {
+      return myConfiguration + " " + myNotation;
+    }
+  }
+}
@@ -1,10 +1,7 @@
 package me.scana.okgradle.util
 
 import com.intellij.openapi.module.Module
-import com.intellij.openapi.module.ModuleManager
 import com.intellij.openapi.project.Project
-import org.jetbrains.kotlin.idea.util.rootManager
-import org.jetbrains.kotlin.idea.util.sourceRoots
 
 object ToolsFactory {
     fun intellijTools(project: Project?): IntellijTools {
@@ -17,34 +14,23 @@ object ToolsFactory {
 }
 
 interface IntellijTools {
+    /**
+     * Modules with sources and a Gradle build file, sorted by name.
+     */
     fun getModules(): List<Module>
+
+    fun getModuleBuildFiles(): List<ModuleBuildFile>
 }
 
 class IntellijToolsImpl(private val project: Project) : IntellijTools {
 
-    override fun getModules(): List<Module> {
-        return ModuleManager.getInstance(project)
-            .modules
-            .toList()
-            .withSourcesOnly()
-            .withGradleFilesOnly()
-    }
-
-    private fun List<Module>.withSourcesOnly(): List<Module> {
-        return filter { it.sourceRoots.isNotEmpty() }
-    }
+    override fun getModules() = ModuleBuildFileIndex.getInstance(project).getModules()
 
-    private fun List<Module>.withGradleFilesOnly(): List<Module> {
-        return filter { module ->
-            module.rootManager.contentRoots.any { root ->
-                root.children.any { child ->
-                    child.name in Constants.BUILD_GRADLE_FILES
-                }
-            }
-        }
-    }
+    override fun getModuleBuildFiles() = ModuleBuildFileIndex.getInstance(project).getModuleBuildFiles()
 }
 
 class DummyTools : IntellijTools {
     override fun getModules() = emptyList<Module>()
+
+    override fun getModuleBuildFiles() = emptyList<ModuleBuildFile>()
 }
@@ -0,0 +1,134 @@
+package me.scana.okgradle.util
+
+import com.intellij.ProjectTopics
+import com.intellij.openapi.Disposable
+import com.intellij.openapi.application.ApplicationManager
+import com.intellij.openapi.components.ServiceManager
+import com.intellij.openapi.module.Module
+import com.intellij.openapi.module.ModuleManager
+import com.intellij.openapi.project.ModuleListener
+import com.intellij.openapi.project.Project
+import com.intellij.openapi.roots.ModuleRootEvent
+import com.intellij.openapi.roots.ModuleRootListener
+import com.intellij.openapi.roots.ModuleRootManager
+import com.intellij.openapi.util.Computable
+import com.intellij.openapi.vfs.VirtualFile
+import com.intellij.openapi.vfs.VirtualFileEvent
+import com.intellij.openapi.vfs.VirtualFileListener
+import com.intellij.openapi.vfs.VirtualFileManager
+import com.intellij.openapi.vfs.VirtualFileMoveEvent
+import com.intellij.openapi.vfs.VirtualFilePropertyEvent
+import com.intellij.util.Function
+
+/**
+ * A module of the project that has sources and a Gradle build file in one of its content roots.
+ */
+data class ModuleBuildFile(val module: Module, val buildFile: VirtualFile)
+
+/**
+ * Keeps the modules that can have dependencies added to them, sorted by name, together with their build files.
+ *
+ * The list is built the first time it is asked for and kept until a module is added, removed or renamed, the roots of a module change
+ * or a build file is created, deleted, moved or renamed. Opening the module picker then doesn't walk every module of the project.
+ */
+class ModuleBuildFileIndex(private val project: Project) : Disposable {
+
+    @Volatile
+    private var moduleBuildFiles: List<ModuleBuildFile>? = null
+
+    // Incremented by every invalidation, a scan that started before one doesn't publish its result.
+    private var modificationStamp = 0L
+
+    init {
+        val connection = project.messageBus.connect(this)
+        connection.subscribe(ProjectTopics.MODULES, object : ModuleListener {
+            override fun moduleAdded(project: Project, module: Module) = invalidate()
+
+            override fun moduleRemoved(project: Project, module: Module) = invalidate()
+
+            override fun modulesRenamed(project: Project, modules: List<Module>, oldNameProvider: Function<Module, String>) = invalidate()
+        })
+        connection.subscribe(ProjectTopics.PROJECT_ROOTS, object : ModuleRootListener {
+            override fun rootsChanged(event: ModuleRootEvent) = invalidate()
+        })
+        VirtualFileManager.getInstance().addVirtualFileListener(BuildFileListener(), this)
+    }
+
+    fun getModuleBuildFiles(): List<ModuleBuildFile> {
+        moduleBuildFiles?.let { return it }
+        val stamp = synchronized(this) { modificationStamp }
+        val result = ApplicationManager.getApplication().runReadAction(Computable { scan() })
+        synchronized(this) {
+            if (stamp == modificationStamp) {
+                moduleBuildFiles = result
+            }
+        }
+        return result
+    }
+
+    fun getModules(): List<Module> = getModuleBuildFiles().map { it.module }
+
+    fun invalidate() {
+        synchronized(this) {
+            modificationStamp++
+            moduleBuildFiles = null
+        }
+    }
+
+    override fun dispose() {
+        invalidate()
+    }
+
+    private fun scan(): List<ModuleBuildFile> {
+        return ModuleManager.getInstance(project)
+            .modules
+            .filter { !it.isDisposed && ModuleRootManager.getInstance(it).sourceRoots.isNotEmpty() }
+            .mapNotNull { module -> findBuildFile(module)?.let { ModuleBuildFile(module, it) } }
+            .sortedBy { it.module.name }
+    }
+
+    private fun findBuildFile(module: Module): VirtualFile? {
+        for (root in ModuleRootManager.getInstance(module).contentRoots) {
+            for (name in Constants.BUILD_GRADLE_FILES) {
+                root.findChild(name)?.let { return it }
+            }
+        }
+        return null
+    }
+
+    private inner class BuildFileListener : VirtualFileListener {
+        override fun fileCreated(event: VirtualFileEvent) = onChanged(event.file)
+
+        override fun fileDeleted(event: VirtualFileEvent) {
+            // Deleting a directory doesn't send events for the files in it.
+            if (event.file.isDirectory) {
+                if (moduleBuildFiles?.any { !it.buildFile.isValid } == true) {
+                    invalidate()
+                }
+            } else {
+                onChanged(event.file)
+            }
+        }
+
+        override fun fileMoved(event: VirtualFileMoveEvent) = onChanged(event.file)
+
+        override fun propertyChanged(event: VirtualFilePropertyEvent) {
+            if (event.propertyName == VirtualFile.PROP_NAME &&
+                (event.oldValue in Constants.BUILD_GRADLE_FILES || event.newValue in Constants.BUILD_GRADLE_FILES)) {
+                invalidate()
+            }
+        }
+
+        private fun onChanged(file: VirtualFile) {
+            if (file.name in Constants.BUILD_GRADLE_FILES) {
+                invalidate()
+            }
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        fun getInstance(project: Project): ModuleBuildFileIndex =
+            ServiceManager.getService(project, ModuleBuildFileIndex::class.java)
+    }
+}
@@ -20,6 +20,10 @@ class Notifier(private val project: Project?) {
         showMessage(Copys.DEPENDENCY_ADDED_TITLE.format(module), dependencies.joinToString("\n"))
     }
 
+    fun showDependenciesAlreadyDeclaredMessage(module: String?, dependencies: List<String>) {
+        showMessage(Copys.DEPENDENCY_ALREADY_DECLARED_TITLE.format(module), dependencies.joinToString("\n"))
+    }
+
     fun showDependenciesStatementCopiedMessage() {
         showMessage(Copys.DEPENDENCY_COPIED_TITLE, Copys.DEPENDENCY_COPIED_MSG)
     }
@@ -0,0 +1,132 @@
+package me.scana.okgradle.data
+
+import me.scana.okgradle.data.repository.NetworkClient
+import me.scana.okgradle.data.repository.NetworkResult
+import okhttp3.*
+import okhttp3.MediaType.Companion.toMediaType
+import okhttp3.ResponseBody.Companion.toResponseBody
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class NetworkClientTest {
+
+    private val callCount = AtomicInteger()
+    private val callStarted = CountDownLatch(1)
+    private val twoCallsStarted = CountDownLatch(2)
+    private val releaseResponse = CountDownLatch(1)
+
+    private val callShared = CountDownLatch(1)
+
+    private val networkClient = NetworkClient(OkHttpClient.Builder()
+            .addInterceptor(BlockingInterceptor())
+            .build())
+            .apply { onCallShared = { callShared.countDown() } }
+
+    @Test
+    fun `shares one call between concurrent identical requests`() {
+        val executor = Executors.newFixedThreadPool(2)
+        val first = executor.submit<NetworkResult<String>> { networkClient.execute(request("http://url.com/a")) { string() } }
+        callStarted.await(5, TimeUnit.SECONDS)
+        val second = executor.submit<NetworkResult<String>> { networkClient.execute(request("http://url.com/a")) { string() } }
+        callShared.await(5, TimeUnit.SECONDS)
+        releaseResponse.countDown()
+
+        assertEquals(NetworkResult.Success("response"), first.get(5, TimeUnit.SECONDS))
+        assertEquals(NetworkResult.Success("response"), second.get(5, TimeUnit.SECONDS))
+        assertEquals(1, callCount.get())
+        executor.shutdown()
+    }
+
+    @Test
+    fun `parses a shared call separately for each caller`() {
+        val executor = Executors.newFixedThreadPool(2)
+        val first = executor.submit<NetworkResult<String>> { networkClient.execute(request("http://url.com/a")) { string() } }
+        callStarted.await(5, TimeUnit.SECONDS)
+        val second = executor.submit<NetworkResult<Int>> { networkClient.execute(request("http://url.com/a")) { string().length } }
+        callShared.await(5, TimeUnit.SECONDS)
+        releaseResponse.countDown()
+
+        assertEquals(NetworkResult.Success("response"), first.get(5, TimeUnit.SECONDS))
+        assertEquals(NetworkResult.Success(8), second.get(5, TimeUnit.SECONDS))
+        assertEquals(1, callCount.get())
+        executor.shutdown()
+    }
+
+    @Test
+    fun `does not share calls between requests with different headers`() {
+        val executor = Executors.newFixedThreadPool(2)
+        val first = executor.submit<NetworkResult<String>> {
+            networkClient.execute(request("http://url.com/a").newBuilder().header("Accept", "text/xml").build()) { string() }
+        }
+        val second = executor.submit<NetworkResult<String>> {
+            networkClient.execute(request("http://url.com/a").newBuilder().header("Accept", "application/json").build()) { string() }
+        }
+
+        assertTrue(twoCallsStarted.await(5, TimeUnit.SECONDS))
+        releaseResponse.countDown()
+
+        assertEquals(NetworkResult.Success("response"), first.get(5, TimeUnit.SECONDS))
+        assertEquals(NetworkResult.Success("response"), second.get(5, TimeUnit.SECONDS))
+        assertEquals(2, callCount.get())
+        executor.shutdown()
+    }
+
+    @Test
+    fun `does not share calls between different requests`() {
+        releaseResponse.countDown()
+
+        networkClient.execute(request("http://url.com/a")) { string() }
+        networkClient.execute(request("http://url.com/b")) { string() }
+
+        assertEquals(2, callCount.get())
+    }
+
+    @Test
+    fun `issues a new call once the previous one has finished`() {
+        releaseResponse.countDown()
+
+        networkClient.execute(request("http://url.com/a")) { string() }
+        networkClient.execute(request("http://url.com/a")) { string() }
+
+        assertEquals(2, callCount.get())
+    }
+
+    @Test
+    fun `cancels the call when the last caller leaves`() {
+        val caller = Thread { networkClient.execute(request("http://url.com/a")) { string() } }
+        caller.start()
+        callStarted.await(5, TimeUnit.SECONDS)
+        caller.interrupt()
+        caller.join(5000)
+        releaseResponse.countDown()
+
+        val result = networkClient.execute(request("http://url.com/a")) { string() }
+
+        assertTrue(result is NetworkResult.Success)
+        assertEquals(2, callCount.get())
+    }
+
+    private fun request(url: String) = Request.Builder().url(url).build()
+
+    private inner class BlockingInterceptor : Interceptor {
+
+        override fun intercept(chain: Interceptor.Chain): Response {
+            callCount.incrementAndGet()
+            callStarted.countDown()
+            twoCallsStarted.countDown()
+            releaseResponse.await(5, TimeUnit.SECONDS)
+            return Response.Builder()
+                    .code(200)
+                    .body("response".toResponseBody("text/plain".toMediaType()))
+                    .protocol(Protocol.HTTP_2)
+                    .message("")
+                    .request(chain.request())
+                    .build()
+        }
+    }
+}
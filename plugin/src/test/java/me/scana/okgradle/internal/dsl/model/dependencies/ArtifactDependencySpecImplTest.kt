@@ -0,0 +1,124 @@
+package me.scana.okgradle.internal.dsl.model.dependencies
+
+import com.google.common.base.Splitter
+import me.scana.okgradle.internal.dsl.api.dependencies.ArtifactCoordinates
+import org.junit.Test
+import java.util.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class ArtifactDependencySpecImplTest {
+
+    @Test
+    fun `parses notations the same way as the splitting parser`() {
+        val random = Random(39)
+        repeat(2_000_000) {
+            val notation = (0 until random.nextInt(9)).joinToString("") { NOTATION_PARTS[random.nextInt(NOTATION_PARTS.size)] }
+            val expected = legacyCreate(notation)
+            val actual = ArtifactDependencySpecImpl.create(notation)
+            if (expected == null) {
+                assertNull(actual, "'$notation' is not an artifact")
+            }
+            else {
+                val spec = assertNotNull(actual, "'$notation' is an artifact")
+                assertEquals(components(expected), components(spec), "components of '$notation'")
+            }
+        }
+    }
+
+    @Test
+    fun `parses all components`() {
+        val spec = assertNotNull(ArtifactDependencySpecImpl.parse(" org.gradle : service : 1.0 : jdk15@jar "))
+
+        assertEquals(listOf("service", "org.gradle", "1.0", "jdk15", "jar"), components(spec))
+    }
+
+    @Test
+    fun `shares parsed coordinates between callers`() {
+        val first = ArtifactDependencySpecImpl.parse("com.example:library:1.0")
+        val second = ArtifactDependencySpecImpl.parse(String("com.example:library:1.0".toCharArray()))
+
+        assertSame(first, second)
+    }
+
+    @Test
+    fun `interns names and groups`() {
+        val first = assertNotNull(ArtifactDependencySpecImpl.create("com.example:library:1.0"))
+        val second = assertNotNull(ArtifactDependencySpecImpl.create("com.example:library:2.0"))
+
+        assertSame(first.name, second.name)
+        assertSame(first.group, second.group)
+    }
+
+    @Test
+    fun `created specs are copies of the shared coordinates`() {
+        val spec = assertNotNull(ArtifactDependencySpecImpl.create("com.example:library:1.0"))
+
+        spec.version = "2.0"
+
+        assertEquals("1.0", ArtifactDependencySpecImpl.parse("com.example:library:1.0")?.version)
+        assertEquals("com.example:library:2.0", spec.compactNotation())
+    }
+
+    @Test
+    fun `copies equal the shared coordinates`() {
+        val shared = assertNotNull(ArtifactDependencySpecImpl.parse("com.example:library:1.0"))
+        val copy = assertNotNull(ArtifactDependencySpecImpl.create("com.example:library:1.0"))
+
+        assertEquals<Any>(shared, copy)
+        assertEquals<Any>(copy, shared)
+        assertEquals(shared.hashCode(), copy.hashCode())
+    }
+
+    private fun components(spec: ArtifactCoordinates): List<String?> {
+        return listOf(spec.name, spec.group, spec.version, spec.classifier, spec.extension)
+    }
+
+    /**
+     * The parser as it was before it scanned the notation by index.
+     */
+    private fun legacyCreate(notation: String): ArtifactCoordinates? {
+        val segments = Splitter.on(':').trimResults().omitEmptyStrings().splitToList(notation).toMutableList()
+        if (segments.isEmpty()) {
+            return null
+        }
+        var lastSegment = segments.removeAt(segments.size - 1)
+        var extension: String? = null
+        val indexOfAt = lastSegment.indexOf('@')
+        if (indexOfAt != -1) {
+            extension = lastSegment.substring(indexOfAt + 1)
+            lastSegment = lastSegment.substring(0, indexOfAt)
+        }
+        segments.add(lastSegment)
+
+        var group: String? = null
+        var name: String? = null
+        var version: String? = null
+        var classifier: String? = null
+        if (segments.size == 2) {
+            if (lastSegment.isNotEmpty() && Character.isDigit(lastSegment[0])) {
+                name = segments[0]
+                version = lastSegment
+            }
+            else {
+                group = segments[0]
+                name = segments[1]
+            }
+        }
+        else if (segments.size == 3 || segments.size == 4) {
+            group = segments[0]
+            name = segments[1]
+            version = segments[2]
+            if (segments.size == 4) {
+                classifier = segments[3]
+            }
+        }
+        return if (name.isNullOrEmpty()) null else ArtifactDependencySpecImpl(name, group, version, classifier, extension)
+    }
+
+    companion object {
+        private val NOTATION_PARTS = listOf("com.example", "lib", "1.0", "2", ":", ":", "@", "jar", " ", "\t", "\${v}", "a b", "")
+    }
+}
@@ -0,0 +1,175 @@
+package me.scana.okgradle.internal.dsl.parser.elements
+
+import com.google.common.base.Splitter
+import com.intellij.openapi.util.text.StringUtil
+import org.junit.Test
+import java.util.Random
+import java.util.regex.Pattern
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class GradleNameElementTest {
+
+    @Test
+    fun `renames fake names in place`() {
+        val name = GradleNameElement.fake("ext.foo")
+
+        name.rename("ext.bar")
+
+        assertTrue(name.isFake)
+        assertNull(name.unsavedName)
+        assertEquals("ext.bar", name.fullName())
+    }
+
+    @Test
+    fun `renames other names through the unsaved name`() {
+        val name = GradleNameElement.create("foo")
+
+        name.rename("bar")
+
+        assertFalse(name.isFake)
+        assertEquals("bar", name.unsavedName)
+        assertEquals("bar", name.fullName())
+    }
+
+    @Test
+    fun `clearing the element keeps the saved name of a fake name`() {
+        val name = GradleNameElement.fake("foo")
+
+        name.commitNameChange(null)
+
+        assertTrue(name.isFake)
+        assertEquals("foo", name.fullName())
+    }
+
+    @Test
+    fun `copies keep the fake name`() {
+        val name = GradleNameElement.copy(GradleNameElement.fake("foo"))
+
+        assertTrue(name.isFake)
+        assertEquals("foo", name.fullName())
+    }
+
+    @Test
+    fun `segments match the accessors that split the name on every call`() {
+        val random = Random(37)
+        repeat(100_000) {
+            val text = randomText(random, NAME_PARTS)
+            for (name in listOf(GradleNameElement.create(text), GradleNameElement.fake(text))) {
+                val legacy = LegacyName(text)
+                assertEquals(legacy.qualifyingParts(), name.qualifyingParts(), "qualifyingParts of '$text'")
+                assertEquals(legacy.name(), name.name(), "name of '$text'")
+                assertEquals(legacy.fullName(), name.fullName(), "fullName of '$text'")
+                assertEquals(legacy.fullNameParts(), name.fullNameParts(), "fullNameParts of '$text'")
+                assertEquals(legacy.isQualified(), name.isQualified, "isQualified of '$text'")
+                assertEquals(legacy.isEmpty(), name.isEmpty, "isEmpty of '$text'")
+            }
+        }
+    }
+
+    @Test
+    fun `property references match the accessor that split the reference on every call`() {
+        val random = Random(37)
+        repeat(100_000) {
+            val text = randomText(random, NAME_PARTS)
+            val reference = randomText(random, REFERENCE_PARTS)
+            val name = GradleNameElement.create(text)
+            // Empty names no longer match references that start with a dot.
+            if (!name.name().isEmpty()) {
+                assertEquals(
+                        LegacyName(text).containsPropertyReference(reference),
+                        name.containsPropertyReference(reference),
+                        "'$text' contains '$reference'"
+                )
+            }
+        }
+    }
+
+    @Test
+    fun `names with the same text share their segments`() {
+        val first = GradleNameElement.create("android.'defaultConfig'.minSdkVersion")
+        val second = GradleNameElement.fake("android.'defaultConfig'.minSdkVersion")
+
+        assertSame(first.qualifyingParts(), second.qualifyingParts())
+        assertSame(first.fullNameParts(), second.fullNameParts())
+        assertSame(first.fullName(), second.fullName())
+    }
+
+    @Test
+    fun `renaming a name leaves the names that shared its segments unchanged`() {
+        val first = GradleNameElement.create("a.b")
+        val second = GradleNameElement.create("a.b")
+        first.fullName()
+        second.fullName()
+
+        first.rename("c.d")
+
+        assertEquals(listOf("c"), first.qualifyingParts())
+        assertEquals("c.d", first.fullName())
+        assertEquals(listOf("a"), second.qualifyingParts())
+        assertEquals("a.b", second.fullName())
+    }
+
+    @Test
+    fun `shared segments cannot be modified`() {
+        val name = GradleNameElement.create("a.b")
+
+        assertFailsWith<UnsupportedOperationException> { (name.qualifyingParts() as MutableList<String>).add("c") }
+        assertFailsWith<UnsupportedOperationException> { (name.fullNameParts() as MutableList<String>).clear() }
+        assertEquals("a.b", GradleNameElement.create("a.b").fullName())
+    }
+
+    private fun randomText(random: Random, parts: List<String>): String {
+        return (0 until random.nextInt(6)).joinToString("") { parts[random.nextInt(parts.size)] }
+    }
+
+    /**
+     * The accessors as they were before the segments were cached, splitting and joining the name on every call.
+     */
+    private class LegacyName(text: String) {
+        private val name = SPACES.matcher(text).replaceAll("")
+
+        fun qualifyingParts(): List<String> {
+            val segments = Splitter.on('.').splitToList(name)
+            return segments.subList(0, segments.size - 1).map { StringUtil.unquoteString(it) }
+        }
+
+        fun isQualified() = name.contains(".")
+
+        fun name(): String = StringUtil.unquoteString(name.substring(name.lastIndexOf('.') + 1))
+
+        fun fullName() = (qualifyingParts() + name()).joinToString(".")
+
+        fun fullNameParts(): List<String> = Splitter.on(".").splitToList(fullName())
+
+        fun isEmpty() = name.isEmpty()
+
+        fun containsPropertyReference(propertyReference: String): Boolean {
+            val name = name()
+            if (propertyReference == name) {
+                return true
+            }
+            val matcher = GradleNameElement.INDEX_PATTERN.matcher(propertyReference)
+            if (matcher.find() && matcher.groupCount() > 0 && matcher.group(0) == name) {
+                return true
+            }
+            val parts = DOT.split(propertyReference).toList()
+            if (parts.isNotEmpty() && parts[0] == name) {
+                return true
+            }
+            return parts.size > 1 && parts[0] == "ext" && parts[1] == name
+        }
+    }
+
+    companion object {
+        private val SPACES = Pattern.compile("\\s+")
+        private val DOT = Pattern.compile("\\.")
+
+        private val NAME_PARTS = listOf("a", "b", "ext", ".", "'", "\"", " ", "\t", "'x y'", "[0]")
+        private val REFERENCE_PARTS = listOf("a", "b", "ext", ".", "[0]", "['a']", "'a'")
+    }
+}
@@ -0,0 +1,159 @@
+package me.scana.okgradle.internal.dsl.parser.ext
+
+import org.junit.Test
+import java.util.ArrayDeque
+import java.util.Random
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+class ElementSortTest {
+
+    @Test
+    fun `leaves elements that come after their dependencies in place`() {
+        val a = Item("a")
+        val b = Item("b", a)
+        val c = Item("c", b)
+        val elements = mutableListOf(a, b, c)
+
+        assertEquals(1, sort(elements, b))
+        assertEquals(listOf(a, b, c), elements)
+    }
+
+    @Test
+    fun `moves an element after its last dependency`() {
+        val c = Item("c")
+        val a = Item("a", c)
+        val b = Item("b")
+        val elements = mutableListOf(a, b, c)
+
+        assertEquals(2, sort(elements, a))
+        assertEquals(listOf(b, c, a), elements)
+    }
+
+    @Test
+    fun `moves the elements that depend on the element along with it`() {
+        val d = Item("d")
+        val a = Item("a", d)
+        val b = Item("b", a)
+        val c = Item("c")
+        val e = Item("e", b)
+        val elements = mutableListOf(a, b, c, d, e)
+
+        assertEquals(2, sort(elements, a))
+        assertEquals(listOf(c, d, a, b, e), elements)
+    }
+
+    @Test
+    fun `doesn't move an element that refers to itself`() {
+        val a = Item("a")
+        a.dependencies += a
+        val b = Item("b")
+        val elements = mutableListOf(a, b)
+
+        assertEquals(-1, sort(elements, a))
+        assertEquals(listOf(a, b), elements)
+    }
+
+    @Test
+    fun `doesn't move an element that is part of a cycle`() {
+        val a = Item("a")
+        val b = Item("b", a)
+        val c = Item("c", b)
+        a.dependencies += c
+        val elements = mutableListOf(a, b, c)
+
+        assertEquals(-1, sort(elements, a))
+        assertEquals(listOf(a, b, c), elements)
+    }
+
+    @Test
+    fun `inserts a new element before the first element that will refer to it`() {
+        val a = Item("a")
+        val b = Item("b")
+        val c = Item("c")
+        val x = Item("x")
+        b.dependencies += x
+        val elements = mutableListOf(a, b, c)
+
+        assertEquals(1, sort(elements, x, newDependents = listOf(b)))
+        assertEquals(listOf(a, b, c), elements)
+    }
+
+    @Test
+    fun `inserts a new element after its dependencies and moves its dependents after it`() {
+        val a = Item("a")
+        val c = Item("c")
+        val x = Item("x", c)
+        val b = Item("b", x)
+        val elements = mutableListOf(a, b, c)
+
+        val index = sort(elements, x, newDependents = listOf(b))
+        elements.add(index, x)
+
+        assertEquals(listOf(a, c, x, b), elements)
+    }
+
+    @Test
+    fun `inserts a new element at the end if nothing refers to it`() {
+        val a = Item("a")
+        val b = Item("b")
+
+        assertEquals(2, sort(mutableListOf(a, b), Item("x", a)))
+    }
+
+    @Test
+    fun `orders elements after their dependencies unless there is a cycle`() {
+        val random = Random(50)
+        repeat(20_000) {
+            // Every element only refers to elements before it, except the one being sorted which may refer to any other element.
+            val elements = (0 until 1 + random.nextInt(12)).map { Item("$it") }
+            elements.forEachIndexed { i, item ->
+                repeat(random.nextInt(3)) {
+                    if (i > 0) item.dependencies += elements[random.nextInt(i)]
+                }
+            }
+            val element = elements[random.nextInt(elements.size)]
+            repeat(random.nextInt(3)) { element.dependencies += elements[random.nextInt(elements.size)] }
+            val sorted = elements.toMutableList()
+
+            val index = sort(sorted, element)
+
+            if (hasCycle(element)) {
+                assertEquals(-1, index, "$element is part of a cycle")
+                assertEquals(elements, sorted)
+            }
+            else {
+                assertEquals(element, sorted[index])
+                assertEquals(elements.toSet(), sorted.toSet())
+                sorted.forEachIndexed { i, item ->
+                    assertTrue(item.dependencies.all { sorted.indexOf(it) < i }, "$item comes after its dependencies in $sorted")
+                }
+            }
+        }
+    }
+
+    private fun sort(elements: MutableList<Item>, element: Item, newDependents: List<Item> = emptyList()): Int {
+        return ElementSort.sort(elements, element, { it.dependencies }, { newDependents })
+    }
+
+    private fun hasCycle(element: Item): Boolean {
+        val visited = mutableSetOf<Item>()
+        val toVisit = ArrayDeque<Item>(element.dependencies)
+        while (toVisit.isNotEmpty()) {
+            val item = toVisit.poll()
+            if (item === element) {
+                return true
+            }
+            if (visited.add(item)) {
+                toVisit.addAll(item.dependencies)
+            }
+        }
+        return false
+    }
+
+    private class Item(private val name: String, vararg dependencies: Item) {
+        val dependencies = dependencies.toMutableList()
+
+        override fun toString() = name
+    }
+}
@@ -0,0 +1,104 @@
+package me.scana.okgradle.internal.dsl.parser.files
+
+import me.scana.okgradle.internal.dsl.model.ModulePathIndex
+import me.scana.okgradle.internal.dsl.parser.elements.GradleDslElement
+import org.junit.Test
+import java.io.File
+import java.lang.reflect.Proxy
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+class ModuleResolutionTableTest {
+
+    @Test
+    fun `finds modules nested below other modules`() {
+        val b = Module("/project/a/b")
+        val a = Module("/project/a", b)
+        val root = Module("/project", a, Module("/project/c"))
+
+        val modules = index(root)
+
+        // project(':a:b') used to resolve to the module of ':a', the first module whose directory contained it.
+        assertSame(b, modules[ModulePathIndex.directoryKey(File("/project/a/b"))])
+        assertSame(a, modules[ModulePathIndex.directoryKey(File("/project/a"))])
+        assertSame(root, modules[ModulePathIndex.directoryKey(File("/project"))])
+    }
+
+    @Test
+    fun `doesn't find directories without a module`() {
+        val root = Module("/project", Module("/project/a", Module("/project/a/b")))
+
+        val modules = index(root)
+
+        assertNull(modules[ModulePathIndex.directoryKey(File("/project/a/b/c"))])
+        assertNull(modules[ModulePathIndex.directoryKey(File("/project/b"))])
+    }
+
+    @Test
+    fun `keeps the module closest to the root for a shared directory`() {
+        val nested = Module("/project/a")
+        val a = Module("/project/a", nested)
+        val root = Module("/project", a)
+
+        assertSame(a, index(root)[ModulePathIndex.directoryKey(File("/project/a"))])
+    }
+
+    @Test
+    fun `finds modules by the canonical path of their directory`() {
+        val b = Module("/project/a/../b")
+        val root = Module("/project", Module("/project/a"), b)
+
+        assertSame(b, index(root)[ModulePathIndex.directoryKey(File("/project/./b"))])
+    }
+
+    @Test
+    fun `looks up each reference once`() {
+        val references = ModuleResolutionTable.ResolvedReferences()
+        val element = element()
+        var lookups = 0
+
+        repeat(3) {
+            assertSame(element, references.resolve(listOf("ext", "foo")) { lookups++; element })
+        }
+
+        assertEquals(1, lookups)
+    }
+
+    @Test
+    fun `remembers references that didn't resolve`() {
+        val references = ModuleResolutionTable.ResolvedReferences()
+        var lookups = 0
+
+        repeat(3) {
+            assertNull(references.resolve(listOf("foo")) { lookups++; null })
+        }
+
+        assertEquals(1, lookups)
+    }
+
+    @Test
+    fun `keeps the reference when the list it was a view of changes`() {
+        val references = ModuleResolutionTable.ResolvedReferences()
+        val element = element()
+        val nameParts = mutableListOf("ext", "foo", "bar")
+
+        references.resolve(nameParts.subList(0, 2)) { element }
+        nameParts[1] = "baz"
+
+        assertSame(element, references.resolve(listOf("ext", "foo")) { null })
+        assertNull(references.resolve(listOf("ext", "baz")) { null })
+    }
+
+    private fun element(): GradleDslElement {
+        return Proxy.newProxyInstance(javaClass.classLoader, arrayOf(GradleDslElement::class.java)) { _, _, _ -> null } as GradleDslElement
+    }
+
+    private fun index(root: Module): Map<String, Module> {
+        return ModuleResolutionTable.indexByDirectory(root, { File(it.directory) }, { it.children })
+    }
+
+    private class Module(val directory: String, vararg children: Module) {
+        val children: Collection<Module> = children.toList()
+    }
+}
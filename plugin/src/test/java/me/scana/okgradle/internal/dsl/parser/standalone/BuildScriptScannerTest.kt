@@ -0,0 +1,61 @@
+package me.scana.okgradle.internal.dsl.parser.standalone
+
+import org.junit.After
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.PrintStream
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.test.assertEquals
+
+class BuildScriptScannerTest {
+
+    private val root: Path = Files.createTempDirectory("scanner")
+
+    @After
+    fun deleteRoot() {
+        root.toFile().deleteRecursively()
+    }
+
+    @Test
+    fun `prints the dependencies of every script in the order they were found`() {
+        write("build.gradle", "dependencies {\n  implementation 'a:b:1'\n}\n")
+        write("app/build.gradle.kts", "dependencies {\n  api(\"c:d:2\")\n}\n")
+        write("app/build/generated/build.gradle", "dependencies {\n  implementation 'e:f:3'\n}\n")
+        write("app/notes.txt", "dependencies {\n  implementation 'g:h:4'\n}\n")
+
+        val (exitCode, out) = scan(root)
+
+        assertEquals(0, exitCode)
+        assertEquals(
+                setOf(
+                        "${root.resolve("build.gradle")}\t2\tdependencies\timplementation\ta:b:1",
+                        "${root.resolve("app/build.gradle.kts")}\t2\tdependencies\tapi\tc:d:2"
+                ),
+                out.lines().filter { it.isNotEmpty() }.toSet()
+        )
+    }
+
+    @Test
+    fun `scans a single script`() {
+        val script = write("lib/build.gradle", "dependencies {\n  testImplementation 'junit:junit:4.12'\n}\n")
+
+        val (exitCode, out) = scan(script)
+
+        assertEquals(0, exitCode)
+        assertEquals("$script\t2\tdependencies\ttestImplementation\tjunit:junit:4.12", out.trim())
+    }
+
+    private fun write(path: String, text: String): Path {
+        val file = root.resolve(path)
+        Files.createDirectories(file.parent)
+        Files.write(file, text.toByteArray())
+        return file
+    }
+
+    private fun scan(path: Path): Pair<Int, String> {
+        val out = ByteArrayOutputStream()
+        val exitCode = BuildScriptScanner.run(listOf(path), 2, PrintStream(out, true), PrintStream(ByteArrayOutputStream()))
+        return exitCode to out.toString()
+    }
+}
@@ -0,0 +1,77 @@
+package me.scana.okgradle.internal.dsl.parser.standalone
+
+import me.scana.okgradle.internal.dsl.parser.standalone.ScriptToken.Kind
+import org.junit.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class ScriptTokenizerTest {
+
+    @Test
+    fun `drops comments and merges line breaks`() {
+        val tokens = ScriptTokenizer.tokenize("a = 1 // comment\n\n/* one\ntwo */ b = c ?: d")
+
+        assertEquals(
+                listOf("a", "=", "1", "\n", "b", "=", "c", "?:", "d", ""),
+                tokens.map { it.text }
+        )
+        assertEquals(Kind.EOF, tokens.last().kind)
+    }
+
+    @Test
+    fun `counts lines of block comments`() {
+        val tokens = ScriptTokenizer.tokenize("a\n/* one\ntwo */ b")
+
+        assertEquals(3, tokens.first { it.text == "b" }.line)
+    }
+
+    @Test
+    fun `marks strings with templates as interpolated`() {
+        val tokens = ScriptTokenizer.tokenize("\"\${v}\" + \"\$x\" + '\$x' + \"x\"")
+        val strings = tokens.filter { it.kind == Kind.STRING }
+
+        assertEquals(listOf("\${v}", "\$x", "\$x", "x"), strings.map { it.text })
+        assertEquals(listOf(true, true, false, false), strings.map { it.isInterpolated })
+    }
+
+    @Test
+    fun `processes escapes in strings`() {
+        val token = ScriptTokenizer.tokenize("'a\\tb\\'c'").first()
+
+        assertEquals("a\tb'c", token.text)
+    }
+
+    @Test
+    fun `counts line breaks inside triple quoted strings`() {
+        val tokens = ScriptTokenizer.tokenize("x = '''one\ntwo'''\ny")
+
+        assertEquals("one\ntwo", tokens.first { it.kind == Kind.STRING }.text)
+        assertEquals(3, tokens.first { it.text == "y" }.line)
+    }
+
+    @Test
+    fun `counts escaped line breaks inside triple quoted strings`() {
+        val tokens = ScriptTokenizer.tokenize("x = \"\"\"one\\\ntwo\"\"\"\ny")
+
+        assertEquals("onetwo", tokens.first { it.kind == Kind.STRING }.text)
+        assertEquals(3, tokens.first { it.text == "y" }.line)
+    }
+
+    @Test
+    fun `counts explicit line continuations`() {
+        val tokens = ScriptTokenizer.tokenize("a \\\n b\nc")
+
+        assertFalse(tokens.any { it.kind == Kind.NEWLINE && it.line == 1 })
+        assertEquals(2, tokens.first { it.text == "b" }.line)
+        assertEquals(3, tokens.first { it.text == "c" }.line)
+    }
+
+    @Test
+    fun `stops unterminated strings at the end of the line`() {
+        val tokens = ScriptTokenizer.tokenize("a 'b\nc")
+
+        assertEquals("b", tokens.first { it.kind == Kind.STRING }.text)
+        assertTrue(tokens.any { it.text == "c" && it.line == 2 })
+    }
+}
@@ -0,0 +1,104 @@
+package me.scana.okgradle.internal.dsl.parser.standalone
+
+import org.junit.Test
+import kotlin.test.assertEquals
+
+class StandaloneBuildScriptTest {
+
+    @Test
+    fun `finds dependencies of a groovy script`() {
+        val script = groovy("""
+            buildscript {
+              dependencies {
+                classpath 'com.android.tools.build:gradle:3.5.0'
+              }
+            }
+            dependencies {
+              implementation "a:b:${'$'}v"
+              testImplementation group: 'g', name: 'n', version: '1'
+              api project(':lib')
+            }
+        """)
+
+        assertEquals(
+                listOf(
+                        "buildscript.dependencies classpath com.android.tools.build:gradle:3.5.0 3",
+                        "dependencies implementation a:b:${'$'}v 7",
+                        "dependencies testImplementation g:n:1 8",
+                        "dependencies api project(':lib') 9"
+                ),
+                script.dependencies.map { "${it.scope} ${it.configuration} ${it.notation} ${it.line}" }
+        )
+    }
+
+    @Test
+    fun `finds dependencies of a kotlin script`() {
+        val script = kotlin("""
+            plugins {
+              id("com.android.application")
+            }
+            val v = "1.0"
+            dependencies {
+              implementation("a:b:${'$'}v")
+              testImplementation(kotlin("test"))
+              implementation(project(":lib")) {
+                exclude(group = "x")
+              }
+            }
+        """)
+
+        assertEquals(
+                listOf(
+                        "implementation a:b:${'$'}v 6",
+                        "testImplementation kotlin('test') 7",
+                        "implementation project(':lib') 8"
+                ),
+                script.dependencies.map { "${it.configuration} ${it.notation} ${it.line}" }
+        )
+    }
+
+    @Test
+    fun `finds statements by path in blocks and dotted assignments`() {
+        val script = groovy("""
+            android {
+              defaultConfig {
+                minSdkVersion 21
+              }
+            }
+            android.defaultConfig.targetSdkVersion = 28
+        """)
+
+        val minSdk = script.find("android.defaultConfig.minSdkVersion").single()
+        assertEquals(ScriptStatement.Kind.CALL, minSdk.kind)
+        assertEquals("21", minSdk.arguments.single().text)
+        val targetSdk = script.find("android.defaultConfig.targetSdkVersion").single()
+        assertEquals(ScriptStatement.Kind.ASSIGNMENT, targetSdk.kind)
+        assertEquals("28", targetSdk.value?.text)
+    }
+
+    @Test
+    fun `skips control flow`() {
+        val script = groovy("""
+            if (x) {
+              foo 1
+            }
+            dependencies {
+              compile 'a:b:c'
+            }
+        """)
+
+        assertEquals(listOf("dependencies"), script.statements.map { it.name })
+        assertEquals(5, script.dependencies.single().line)
+    }
+
+    @Test
+    fun `keeps line numbers after multiline strings`() {
+        val script = groovy("def s = '''one\\\ntwo\nthree'''\ndependencies {\n  compile 'a:b:c'\n}\n")
+
+        assertEquals(5, script.dependencies.single().line)
+    }
+
+    private fun groovy(text: String) = StandaloneBuildScript.parse("build.gradle", text.trimIndent(), ScriptLanguage.GROOVY)
+
+    private fun kotlin(text: String) = StandaloneBuildScript.parse("build.gradle.kts", text.trimIndent(), ScriptLanguage.KOTLIN)
+}